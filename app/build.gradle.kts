@@ -25,6 +25,17 @@ android {
             )
         }
     }
+    testOptions {
+        // 本地单元测试直接驱动 WebSocketManager，android.util.Log 等返回默认值
+        unitTests.isReturnDefaultValues = true
+        unitTests.all { test ->
+            // 回放设备上录制的轨迹：./gradlew :app:testDebugUnitTest -PtouchpadTrace=trace.tptr
+            providers.gradleProperty("touchpadTrace").orNull?.let { test.systemProperty("touchpad.trace", it) }
+        }
+    }
+    buildFeatures {
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -32,10 +43,12 @@ android {
 }
 
 dependencies {
-    implementation("com.squareup.okhttp3:okhttp:4.12.0") // WebSocket支持
+    implementation(project(":core"))
+    implementation(libs.okhttp) // WebSocket支持
     implementation(libs.appcompat)
     implementation(libs.material)
     testImplementation(libs.junit)
+    testImplementation(libs.okhttp.mockwebserver)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.chire.touchpadapp;
+
+import com.chire.touchpadapp.core.LatencyTelemetry;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * 测量建立连接时 TCP、TLS 和 WebSocket 升级各阶段的耗时。
+ *
+ * OkHttp 对 WebSocket 请求强制使用 EventListener.NONE，所以这里包装 SocketFactory 和
+ * SSLSocketFactory：TCP 为 connect() 的耗时，TLS 为创建 SSLSocket 到握手完成，
+ * 升级为传输层就绪到 onOpen。TLS 会话复用的次数单独计数。
+ */
+public class ConnectPhaseTimer {
+
+    private final LatencyTelemetry telemetry;
+    private volatile long attemptStartNanos;
+    private volatile long transportReadyNanos;
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+    private final AtomicLong tlsResumed = new AtomicLong();
+
+    public ConnectPhaseTimer(LatencyTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /** 开始一次连接（包括自动重连）。 */
+    public void begin() {
+        attemptStartNanos = System.nanoTime();
+        transportReadyNanos = 0;
+    }
+
+    /** WebSocket 升级完成。 */
+    public void onOpen() {
+        long now = System.nanoTime();
+        long start = attemptStartNanos;
+        if (start == 0) {
+            return;
+        }
+        attemptStartNanos = 0;
+        // 复用了连接池里的连接时没有 TCP/TLS 阶段，升级从本次连接开始算起
+        long ready = transportReadyNanos;
+        telemetry.recordNanos(LatencyTelemetry.STAGE_UPGRADE, now - (ready > start ? ready : start));
+        telemetry.recordNanos(LatencyTelemetry.STAGE_CONNECT, now - start);
+    }
+
+    public long getTlsHandshakeCount() {
+        return tlsHandshakes.get();
+    }
+
+    /** 复用了缓存的 TLS 会话（简短握手）的次数。 */
+    public long getTlsResumedCount() {
+        return tlsResumed.get();
+    }
+
+    public SocketFactory socketFactory() {
+        return new TimingSocketFactory();
+    }
+
+    public SSLSocketFactory sslSocketFactory(SSLSocketFactory delegate) {
+        return new TimingSslSocketFactory(delegate);
+    }
+
+    private final class TimingSocketFactory extends SocketFactory {
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public void connect(SocketAddress endpoint, int timeout) throws IOException {
+                    long start = System.nanoTime();
+                    super.connect(endpoint, timeout);
+                    long end = System.nanoTime();
+                    telemetry.recordNanos(LatencyTelemetry.STAGE_TCP, end - start);
+                    transportReadyNanos = end;
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return SocketFactory.getDefault().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return SocketFactory.getDefault().createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return SocketFactory.getDefault().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return SocketFactory.getDefault().createSocket(address, port, localAddress, localPort);
+        }
+    }
+
+    private final class TimingSslSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+
+        TimingSslSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        // OkHttp 在TCP连接建立后调用此方法，随即开始握手
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            Socket created = delegate.createSocket(socket, host, port, autoClose);
+            if (created instanceof SSLSocket) {
+                long start = System.nanoTime();
+                long startMillis = System.currentTimeMillis();
+                ((SSLSocket) created).addHandshakeCompletedListener(event -> {
+                    long end = System.nanoTime();
+                    telemetry.recordNanos(LatencyTelemetry.STAGE_TLS, end - start);
+                    transportReadyNanos = end;
+                    tlsHandshakes.incrementAndGet();
+                    // 会话创建得比这次握手早，说明复用了缓存的会话
+                    if (event.getSession().getCreationTime() < startMillis) {
+                        tlsResumed.incrementAndGet();
+                    }
+                });
+            }
+            return created;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+    }
+}
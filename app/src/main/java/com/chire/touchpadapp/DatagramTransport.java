@@ -0,0 +1,280 @@
+package com.chire.touchpadapp;
+
+import android.util.Log;
+import com.chire.touchpadapp.core.LatencyTelemetry;
+import com.chire.touchpadapp.core.MotionDatagram;
+import com.chire.touchpadapp.core.TouchProtocol;
+import okhttp3.HttpUrl;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * 局域网低延迟传输：滑动通过UDP发送 {@link MotionDatagram}，单击、双击、心跳和文本消息仍走WebSocket。
+ *
+ * TCP上丢一个包会让之后的所有移动排队等待重传；数据报携带累计位移，丢失的由下一个补上，
+ * 迟到的直接丢弃，始终以最新位置为准。只有接收端在握手时选择了
+ * {@link TouchProtocol#SUBPROTOCOL_DATAGRAM} 才启用，否则与直接使用 {@link WebSocketManager} 相同。
+ * 连接断开期间的滑动也交给WebSocket，随会话续传。
+ */
+public class DatagramTransport implements TouchTransport, TouchTransport.MessageListener {
+    private static final String TAG = "DatagramTransport";
+
+    // 停止滑动后把最后一个数据报再补发几次，最后一个包丢失时光标也能到位
+    private static final int TAIL_REPEATS = 2;
+    private static final long TAIL_REPEAT_INTERVAL_MS = 15;
+
+    private final WebSocketManager reliable;
+    private MessageListener messageListener;
+    // 0 表示与WebSocket地址使用相同端口号
+    private volatile int datagramPort = 0;
+
+    private volatile DatagramChannel channel;
+    private volatile Thread senderThread;
+
+    // 以下字段由 this 保护：UI线程累加，发送线程取最新状态发出
+    private final MotionDatagram state = new MotionDatagram();
+    private boolean pending;
+    private int repeatsLeft;
+    private long pendingEventTime;
+
+    private volatile long sentDatagramCount;
+
+    public DatagramTransport(WebSocketManager reliable) {
+        this.reliable = reliable;
+        reliable.setDatagramOffered(true);
+        reliable.setMessageListener(this);
+    }
+
+    public void setDatagramPort(int port) {
+        this.datagramPort = port;
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) {
+        this.messageListener = listener;
+    }
+
+    @Override
+    public void setServerUrl(String url) {
+        reliable.setServerUrl(url);
+    }
+
+    @Override
+    public void connect() {
+        closeChannel();
+        reliable.connect();
+    }
+
+    @Override
+    public void closeConnection() {
+        closeChannel();
+        reliable.closeConnection();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return reliable.isConnected();
+    }
+
+    /** 滑动当前是否走UDP。 */
+    public boolean isDatagramActive() {
+        return channel != null;
+    }
+
+    public long getSentDatagramCount() {
+        return sentDatagramCount;
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        reliable.sendMessage(message);
+    }
+
+    @Override
+    public void sendEvent(int opcode, int flags, long eventTime, float x, float y) {
+        if (opcode != TouchProtocol.OP_SCROLL || !offerMotion(flags, eventTime, x, y)) {
+            reliable.sendEvent(opcode, flags, eventTime, x, y);
+            return;
+        }
+        reliable.traceEvent(opcode, flags, eventTime, x, y);
+        if ((flags & TouchProtocol.FLAG_PROVISIONAL) == 0) {
+            reliable.getTelemetry().recordSinceEvent(LatencyTelemetry.STAGE_ENQUEUE, eventTime, System.nanoTime());
+        }
+    }
+
+    // 数据报通道未打开时返回 false，由调用方交给WebSocket
+    private synchronized boolean offerMotion(int flags, long eventTime, float x, float y) {
+        if (channel == null) {
+            return false;
+        }
+        // 预测位移不累加，新的预测替换旧的，真实滑动到达时清除
+        if ((flags & TouchProtocol.FLAG_PROVISIONAL) != 0) {
+            state.predictedX = TouchProtocol.quantize(x);
+            state.predictedY = TouchProtocol.quantize(y);
+        } else {
+            state.totalX += MotionDatagram.toFixed(x);
+            state.totalY += MotionDatagram.toFixed(y);
+            state.predictedX = 0;
+            state.predictedY = 0;
+            state.timestamp = eventTime;
+            pendingEventTime = eventTime;
+        }
+        pending = true;
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public boolean sendPointerFrame(byte[] frame, int offset, int length) {
+        // 多指帧包含按下和抬起，必须可靠送达
+        return reliable.sendPointerFrame(frame, offset, length);
+    }
+
+    @Override
+    public void shutdown() {
+        closeChannel();
+        reliable.shutdown();
+    }
+
+    // WebSocket 的回调转发给界面，连接建立或断开时相应开关数据报通道
+
+    @Override
+    public void onMessageReceived(String message) {
+        if (messageListener != null) {
+            messageListener.onMessageReceived(message);
+        }
+    }
+
+    @Override
+    public void onConnectionStatusChanged(boolean isConnected) {
+        // 在 OkHttp 的线程上回调，可以直接做网络操作
+        if (isConnected && reliable.isDatagramProtocol()) {
+            openChannel();
+        } else {
+            closeChannel();
+        }
+        if (messageListener != null) {
+            messageListener.onConnectionStatusChanged(isConnected);
+        }
+    }
+
+    @Override
+    public void onConnectionError(String errorMessage) {
+        if (messageListener != null) {
+            messageListener.onConnectionError(errorMessage);
+        }
+    }
+
+    private void openChannel() {
+        HttpUrl url = WebSocketManager.toHttpUrl(reliable.getServerUrl());
+        if (url == null) {
+            return;
+        }
+        int port = datagramPort > 0 ? datagramPort : url.port();
+        DatagramChannel opened;
+        try {
+            opened = DatagramChannel.open();
+            opened.connect(new InetSocketAddress(url.host(), port));
+        } catch (IOException e) {
+            Log.e(TAG, "Datagram channel failed, motion stays on WebSocket: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            // 新会话从零开始累计；续传的同一会话接着原来的累计值和序号
+            int session = reliable.getSessionId();
+            if (session != state.session) {
+                state.session = session;
+                state.seq = 0;
+                state.totalX = 0;
+                state.totalY = 0;
+            }
+            state.predictedX = 0;
+            state.predictedY = 0;
+            pending = false;
+            repeatsLeft = 0;
+            closeChannel();
+            channel = opened;
+            senderThread = new Thread(() -> runSender(opened), "touchpad-datagram");
+            senderThread.start();
+        }
+        Log.d(TAG, "Motion over UDP to " + url.host() + ":" + port);
+    }
+
+    private synchronized void closeChannel() {
+        DatagramChannel current = channel;
+        if (current == null) {
+            return;
+        }
+        channel = null;
+        senderThread = null;
+        notifyAll();
+        try {
+            current.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Close datagram channel error: " + e.getMessage());
+        }
+    }
+
+    // 每个通道一个发送线程，通道被替换或关闭后退出
+    private void runSender(DatagramChannel own) {
+        byte[] packet = new byte[MotionDatagram.SIZE];
+        ByteBuffer packetBuffer = ByteBuffer.wrap(packet);
+        try {
+            while (true) {
+                long eventTime;
+                synchronized (this) {
+                    if (!waitForDatagram(own)) {
+                        return;
+                    }
+                    if (pending) {
+                        pending = false;
+                        repeatsLeft = TAIL_REPEATS;
+                        state.seq++;
+                        state.encode(packet, 0);
+                        eventTime = pendingEventTime;
+                        pendingEventTime = 0;
+                    } else {
+                        // 补发与上次相同的数据报，接收端按序号去重
+                        repeatsLeft--;
+                        eventTime = 0;
+                    }
+                }
+                packetBuffer.clear();
+                own.write(packetBuffer);
+                sentDatagramCount++;
+                if (eventTime != 0) {
+                    reliable.getTelemetry().recordSinceEvent(LatencyTelemetry.STAGE_TOTAL, eventTime, System.nanoTime());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // 例如接收端端口不可达；连接仍在时回退到WebSocket
+            Log.e(TAG, "Datagram send failed: " + e.getMessage());
+            synchronized (this) {
+                if (channel == own) {
+                    closeChannel();
+                }
+            }
+        }
+    }
+
+    // 持有 this 调用：等到有新状态或到补发时间，通道已被替换或关闭时返回 false
+    private boolean waitForDatagram(DatagramChannel own) throws InterruptedException {
+        while (channel == own && !pending) {
+            if (repeatsLeft == 0) {
+                wait();
+                continue;
+            }
+            long deadline = System.nanoTime() + TAIL_REPEAT_INTERVAL_MS * 1_000_000L;
+            long remaining;
+            while (channel == own && !pending && (remaining = deadline - System.nanoTime()) > 0) {
+                wait(Math.max(1, remaining / 1_000_000L));
+            }
+            return channel == own;
+        }
+        return channel == own;
+    }
+}
@@ -1,115 +1,762 @@
 package com.chire.touchpadapp;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
+import com.chire.touchpadapp.core.DirtyRegionTracker;
+import com.chire.touchpadapp.core.FloatPointBuffer;
+import com.chire.touchpadapp.core.LinearMotionPredictor;
+import com.chire.touchpadapp.core.SmoothCurveBuilder;
+import com.chire.touchpadapp.core.StrokeEncoder;
+import com.chire.touchpadapp.core.StrokeGeometry;
+import com.chire.touchpadapp.core.StrokeGridIndex;
+import com.chire.touchpadapp.core.StrokeSimplifier;
+import com.chire.touchpadapp.core.StrokeStoreReader;
+import com.chire.touchpadapp.core.Viewport;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class DrawingView extends View {
 
+    private static final float STROKE_WIDTH = 8f;
+    // 空间索引的网格边长（世界坐标）
+    private static final float INDEX_CELL_SIZE = 256f;
+    // 橡皮擦半径（屏幕像素）
+    private static final float ERASER_RADIUS = 24f;
+
     private Paint paint;
     private Path currentPath;
+    // 笔画以世界坐标保存，按编号索引；被擦除的笔画置为 null，编号不复用
     private List<Path> paths = new ArrayList<>();
-    private List<Integer> colors = new ArrayList<>();
+    private int[] colors = new int[64]; // 按编号保存颜色，避免装箱
+    private List<float[]> strokePoints = new ArrayList<>();
     private int currentColor = Color.BLUE;
+    private final StrokeGridIndex strokeIndex = new StrokeGridIndex(INDEX_CELL_SIZE);
+    private final float[] strokeBounds = new float[4];
+
+    // 笔画简化：采样点边画边简化为关键点，本地路径、发送的笔画数据和保存的点都只用关键点，
+    // 关键点再拟合为二次贝塞尔曲线。容差按屏幕像素设置，落笔时换算为世界坐标
+    private static final float DEFAULT_SIMPLIFY_TOLERANCE = 0.75f;
+    private float simplifyTolerance = DEFAULT_SIMPLIFY_TOLERANCE;
+    private final StrokeSimplifier simplifier = new StrokeSimplifier(DEFAULT_SIMPLIFY_TOLERANCE, this::onKeyPoint);
+    private final PathWriter currentPathWriter = new PathWriter();
+    private final SmoothCurveBuilder curveBuilder =
+            new SmoothCurveBuilder(DEFAULT_SIMPLIFY_TOLERANCE, currentPathWriter);
+
+    // 持久化：完成的笔画在后台追加写入存储文件。恢复时只读元数据建立索引，
+    // 路径和点在笔画首次被绘制或擦除判断时才从映射的文件读取
+    private StrokeStoreFile strokeStore;
+    private StrokeStoreReader restoredStrokes;
+    private int restoredCount; // 编号小于此值的笔画来自 restoredStrokes，编号即其下标
+    private int[] storeIds = new int[64];
+    private int nextStoreId;
+    private final PathWriter restoreWriter = new PathWriter();
+
+    // 当前笔画的关键点（世界坐标），抬笔时复制保存，用于橡皮擦和点选的精确判断
+    private float[] currentPoints = new float[256];
+    private int currentPointCount;
+
+    // 视口：双指平移和缩放，只绘制与可见范围相交的笔画
+    private final Viewport viewport = new Viewport();
+    private final Matrix viewMatrix = new Matrix();
+    private final float[] visibleRect = new float[4];
+    private ScaleGestureDetector scaleDetector;
+    private boolean transforming; // 本次触摸已进入双指变换，直到全部手指抬起
+    private float lastFocusX;
+    private float lastFocusY;
+    private Canvas drawTarget;
+    private final StrokeGridIndex.Visitor strokeDrawer = this::drawStroke;
+    private int lastDrawnStrokes;
+
+    // 橡皮擦：按索引找候选笔画，再按到折线的距离精确判断
+    private boolean eraserMode;
+    private int[] eraseCandidates = new int[16];
+    private int eraseCandidateCount;
+    private final StrokeGridIndex.Visitor eraseCollector = this::collectEraseCandidate;
+
+    // 已完成笔画的光栅缓存（按当前视口绘制），onDraw 只需贴图再画当前笔画；
+    // 双指变换期间不重建，直接绘制可见笔画，手指全部抬起后按最终视口重建一次
+    private Bitmap strokeCache;
+    private Canvas cacheCanvas;
+    private boolean cacheValid;
+
+    // 局部重绘：累计本帧新增线段的区域，每帧最多失效一次
+    private final DirtyRegionTracker dirtyRegion = new DirtyRegionTracker(STROKE_WIDTH / 2 + 2);
+    private final int[] dirtyRect = new int[4];
+    private final Runnable frameRedraw = this::redrawDirtyRegion;
+    private boolean redrawScheduled;
+    private float lastX;
+    private float lastY;
+
+    // 笔尖预测：在真实笔画末端临时画出外推的一小段，降低感知延迟
+    private final LinearMotionPredictor predictor = new LinearMotionPredictor();
+    private final float[] predictedTip = new float[2];
+    private long predictionHorizonMs = 0; // 0 表示关闭
+    private boolean hasPrediction;
+
+    // 笔画流式编码：绘制过程中每帧发出一个增量分块，抬笔时结束
+    private StrokeEncoder strokeEncoder;
+    private int nextStrokeId;
 
-    private List<Float> touchPoints = new ArrayList<>();
+    // 简化后的触摸点（关键点，世界坐标）(x, y) 交错存储，超过上限后压缩或丢弃最旧的点
+    private static final int DEFAULT_MAX_TOUCH_POINTS = 1 << 16;
+    private final FloatPointBuffer touchPoints = new FloatPointBuffer(256, DEFAULT_MAX_TOUCH_POINTS);
 
     public DrawingView(Context context, AttributeSet attrs) {
         super(context, attrs);
         setupPaint();
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                viewport.zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                onViewportChanged();
+                return true;
+            }
+        });
     }
 
     private void setupPaint() {
         paint = new Paint();
         paint.setColor(currentColor);
         paint.setAntiAlias(true);
-        paint.setStrokeWidth(8f);
+        paint.setStrokeWidth(STROKE_WIDTH);
         paint.setStyle(Paint.Style.STROKE);
         paint.setStrokeJoin(Paint.Join.ROUND);
         paint.setStrokeCap(Paint.Cap.ROUND);
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        rebuildStrokeCache();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (strokeCache == null) {
+            rebuildStrokeCache();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(frameRedraw);
+        redrawScheduled = false;
+        releaseStrokeCache();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        // 绘制所有路径
-        for (int i = 0; i < paths.size(); i++) {
-            paint.setColor(colors.get(i));
-            canvas.drawPath(paths.get(i), paint);
+        // 绘制已完成的路径
+        if (strokeCache != null && !transforming) {
+            if (!cacheValid) {
+                renderStrokeCache();
+            }
+            canvas.drawBitmap(strokeCache, 0, 0, null);
+        } else {
+            // 尚未布局、缓存已释放或正在平移缩放时直接绘制
+            canvas.save();
+            canvas.concat(viewMatrix);
+            drawVisibleStrokes(canvas);
+            canvas.restore();
         }
 
         // 绘制当前路径
         if (currentPath != null) {
+            canvas.save();
+            canvas.concat(viewMatrix);
             paint.setColor(currentColor);
             canvas.drawPath(currentPath, paint);
+            // 尚未确定的尾部：曲线终点 → 最近的关键点 → 最新采样点，未丢弃的采样点都在容差内
+            canvas.drawLine(curveBuilder.getTailX(), curveBuilder.getTailY(),
+                    curveBuilder.getKeyX(), curveBuilder.getKeyY(), paint);
+            canvas.drawLine(curveBuilder.getKeyX(), curveBuilder.getKeyY(), lastX, lastY, paint);
+            if (hasPrediction) {
+                canvas.drawLine(lastX, lastY, predictedTip[0], predictedTip[1], paint);
+            }
+            canvas.restore();
         }
     }
 
+    // 只绘制包围盒与可见范围相交的笔画
+    private void drawVisibleStrokes(Canvas canvas) {
+        viewport.visibleWorld(getWidth(), getHeight(), visibleRect);
+        float pad = STROKE_WIDTH / 2;
+        drawTarget = canvas;
+        lastDrawnStrokes = strokeIndex.query(visibleRect[0] - pad, visibleRect[1] - pad,
+                visibleRect[2] + pad, visibleRect[3] + pad, strokeDrawer);
+        drawTarget = null;
+    }
+
+    private void drawStroke(int id) {
+        paint.setColor(colors[id]);
+        drawTarget.drawPath(loadStroke(id), paint);
+    }
+
+    /** 把 {@link SmoothCurveBuilder} 的输出写入一个 Path。 */
+    private static final class PathWriter implements SmoothCurveBuilder.PathSink {
+        Path path;
+
+        @Override
+        public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+        }
+
+        @Override
+        public void quadTo(float controlX, float controlY, float x, float y) {
+            path.quadTo(controlX, controlY, x, y);
+        }
+    }
+
+    // 恢复的笔画首次使用时才读取点并生成路径
+    private Path loadStroke(int id) {
+        Path path = paths.get(id);
+        if (path == null && id < restoredCount) {
+            StrokeStoreReader reader = restoredStrokes;
+            int n = reader.getPointCount(id);
+            float[] points = new float[n * 2];
+            reader.readPoints(id, points);
+            path = new Path();
+            restoreWriter.path = path;
+            if (reader.isCurve(id)) {
+                SmoothCurveBuilder.build(points, n, reader.getCurveTolerance(id), restoreWriter);
+            } else if (n > 0) {
+                path.moveTo(points[0], points[1]);
+                for (int i = 1; i < n; i++) {
+                    path.lineTo(points[i * 2], points[i * 2 + 1]);
+                }
+            }
+            restoreWriter.path = null;
+            paths.set(id, path);
+            strokePoints.set(id, points);
+        }
+        return path;
+    }
+
+    private float[] strokePointsOf(int id) {
+        loadStroke(id);
+        return strokePoints.get(id);
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        float x = event.getX();
-        float y = event.getY();
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            transforming = false;
+        }
+        // 第二根手指落下后本次触摸只做平移缩放，进行中的笔画就此结束
+        if (action == MotionEvent.ACTION_POINTER_DOWN && !transforming) {
+            transforming = true;
+            finalizeCurrentPath();
+            scheduleRedraw();
+        }
+        if (transforming) {
+            handleViewportGesture(event, action);
+            return true;
+        }
 
-        // 记录触摸点（用于发送）
-        touchPoints.add(x);
-        touchPoints.add(y);
+        // 触摸点换算为世界坐标，视口未变化时与屏幕坐标相同
+        float x = viewport.toWorldX(event.getX());
+        float y = viewport.toWorldY(event.getY());
 
-        switch (event.getAction()) {
+        if (eraserMode) {
+            return handleEraser(event, action, x, y);
+        }
+
+        // MOVE 事件里系统批量打包的历史采样，按时间顺序先于当前点处理
+        if (action == MotionEvent.ACTION_MOVE) {
+            for (int h = 0; h < event.getHistorySize(); h++) {
+                float hx = viewport.toWorldX(event.getHistoricalX(h));
+                float hy = viewport.toWorldY(event.getHistoricalY(h));
+                updateCurrentPath(event.getHistoricalEventTime(h), hx, hy);
+            }
+        }
+
+        switch (action) {
             case MotionEvent.ACTION_DOWN:
-                startNewPath(x, y);
+                startNewPath(event.getEventTime(), x, y);
                 return true;
             case MotionEvent.ACTION_MOVE:
-                updateCurrentPath(x, y);
+                updateCurrentPath(event.getEventTime(), x, y);
+                updatePrediction();
                 break;
             case MotionEvent.ACTION_UP:
+                updateCurrentPath(event.getEventTime(), x, y);
                 finalizeCurrentPath();
                 break;
             default:
                 return false;
         }
 
-        // 重绘视图
-        invalidate();
+        // 只重绘新线段所在区域，同一帧内的多次MOVE合并为一次
+        scheduleRedraw();
         return true;
     }
 
-    private void startNewPath(float x, float y) {
+    // 双指：焦点移动为平移，间距变化为缩放
+    private void handleViewportGesture(MotionEvent event, int action) {
+        scaleDetector.onTouchEvent(event);
+        int skip = action == MotionEvent.ACTION_POINTER_UP ? event.getActionIndex() : -1;
+        float sumX = 0;
+        float sumY = 0;
+        int n = 0;
+        for (int i = 0; i < event.getPointerCount(); i++) {
+            if (i != skip) {
+                sumX += event.getX(i);
+                sumY += event.getY(i);
+                n++;
+            }
+        }
+        if (n == 0) {
+            endTransform();
+            return;
+        }
+        float focusX = sumX / n;
+        float focusY = sumY / n;
+        if (action == MotionEvent.ACTION_MOVE) {
+            viewport.panBy(focusX - lastFocusX, focusY - lastFocusY);
+            onViewportChanged();
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            endTransform();
+        }
+        lastFocusX = focusX;
+        lastFocusY = focusY;
+    }
+
+    // 变换结束：变换期间跳过的缓存重建在下一帧按最终视口做一次
+    private void endTransform() {
+        transforming = false;
+        if (!cacheValid) {
+            invalidateFull();
+        }
+    }
+
+    private boolean handleEraser(MotionEvent event, int action, float x, float y) {
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+                for (int h = 0; h < event.getHistorySize(); h++) {
+                    eraseAt(viewport.toWorldX(event.getHistoricalX(h)), viewport.toWorldY(event.getHistoricalY(h)));
+                }
+                eraseAt(x, y);
+                return true;
+            case MotionEvent.ACTION_UP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void onViewportChanged() {
+        viewMatrix.setScale(viewport.getScale(), viewport.getScale());
+        viewMatrix.postTranslate(viewport.getOffsetX(), viewport.getOffsetY());
+        dirtyRegion.setPadding(STROKE_WIDTH * viewport.getScale() / 2 + 2);
+        cacheValid = false;
+        invalidateFull();
+    }
+
+    private void startNewPath(long time, float x, float y) {
         currentPath = new Path();
-        currentPath.moveTo(x, y);
+        currentPathWriter.path = currentPath;
+        currentPointCount = 0;
+        lastX = x;
+        lastY = y;
+        predictor.reset();
+        predictor.addSample(time, x, y);
+        float tolerance = simplifyTolerance / viewport.getScale();
+        simplifier.setTolerance(tolerance);
+        curveBuilder.setTolerance(tolerance);
+        if (strokeEncoder != null) {
+            strokeEncoder.beginCurveStroke(nextStrokeId++, currentColor, STROKE_WIDTH, tolerance);
+        }
+        simplifier.begin(x, y);
     }
 
-    private void updateCurrentPath(float x, float y) {
+    private void updateCurrentPath(long time, float x, float y) {
         if (currentPath != null) {
-            currentPath.lineTo(x, y);
+            // 尾部在关键点确定前后形状不同，新旧两个尾部都要重绘
+            addDirtyTail();
+            simplifier.add(x, y);
+            lastX = x;
+            lastY = y;
+            addDirtyTail();
+            predictor.addSample(time, x, y);
+        }
+    }
+
+    private void onKeyPoint(float x, float y) {
+        curveBuilder.addPoint(x, y);
+        addCurrentPoint(x, y);
+        // 记录关键点（用于发送）
+        touchPoints.add(x, y);
+        if (strokeEncoder != null) {
+            strokeEncoder.addPoint(x, y);
+        }
+    }
+
+    // 新的曲线段总落在旧尾部的范围内
+    private void addDirtyTail() {
+        addDirtySegment(curveBuilder.getTailX(), curveBuilder.getTailY(), curveBuilder.getKeyX(), curveBuilder.getKeyY());
+        addDirtySegment(curveBuilder.getKeyX(), curveBuilder.getKeyY(), lastX, lastY);
+    }
+
+    private void updatePrediction() {
+        clearPrediction();
+        if (predictionHorizonMs > 0 && currentPath != null
+                && predictor.predict(predictionHorizonMs, predictedTip)) {
+            hasPrediction = true;
+            addDirtySegment(lastX, lastY, predictedTip[0], predictedTip[1]);
+        }
+    }
+
+    // 旧的预测笔尖所在区域也需要重绘
+    private void clearPrediction() {
+        if (hasPrediction) {
+            addDirtySegment(lastX, lastY, predictedTip[0], predictedTip[1]);
+            hasPrediction = false;
+        }
+    }
+
+    // 脏区域按屏幕坐标累计
+    private void addDirtySegment(float x0, float y0, float x1, float y1) {
+        dirtyRegion.addSegment(viewport.toScreenX(x0), viewport.toScreenY(y0),
+                viewport.toScreenX(x1), viewport.toScreenY(y1));
+    }
+
+    private void addCurrentPoint(float x, float y) {
+        if (currentPointCount * 2 + 2 > currentPoints.length) {
+            currentPoints = Arrays.copyOf(currentPoints, currentPoints.length * 2);
+        }
+        currentPoints[currentPointCount * 2] = x;
+        currentPoints[currentPointCount * 2 + 1] = y;
+        currentPointCount++;
+    }
+
+    /** 笔尖预测的提前量（毫秒），0 关闭。 */
+    public void setPredictionHorizonMs(long horizonMs) {
+        predictionHorizonMs = Math.max(0, horizonMs);
+        if (predictionHorizonMs == 0) {
+            clearPrediction();
+            scheduleRedraw();
         }
     }
 
+    /** 笔画简化和曲线拟合的容差（屏幕像素），从下一个笔画开始生效。 */
+    public void setSimplifyTolerance(float pixels) {
+        simplifyTolerance = Math.max(0, pixels);
+    }
+
+    /** 简化前后的点数，用于评估简化效果。 */
+    public long getInputPointCount() {
+        return simplifier.getInputPoints();
+    }
+
+    public long getKeyPointCount() {
+        return simplifier.getKeyPoints();
+    }
+
+    /** 设置笔画分块的接收方（例如 {@link WebSocketManager#sendStrokeChunk}），null 关闭。 */
+    public void setStrokeChunkSink(StrokeEncoder.ChunkSink sink) {
+        strokeEncoder = sink != null ? new StrokeEncoder(sink) : null;
+    }
+
     private void finalizeCurrentPath() {
+        clearPrediction();
         if (currentPath != null) {
+            addDirtyTail();
+            simplifier.end();
+            curveBuilder.end();
+        }
+        if (strokeEncoder != null) {
+            strokeEncoder.endStroke();
+        }
+        if (currentPath != null) {
+            int id = paths.size();
             paths.add(currentPath);
-            colors.add(currentColor);
+            setColor(id, currentColor);
+            strokePoints.add(Arrays.copyOf(currentPoints, currentPointCount * 2));
+            StrokeGeometry.bounds(currentPoints, currentPointCount, STROKE_WIDTH / 2, strokeBounds);
+            strokeIndex.insert(id, strokeBounds[0], strokeBounds[1], strokeBounds[2], strokeBounds[3]);
+            if (strokeStore != null) {
+                int storeId = nextStoreId++;
+                setStoreId(id, storeId);
+                strokeStore.appendStroke(storeId, currentColor, STROKE_WIDTH, true, simplifier.getTolerance(),
+                        strokePoints.get(id), currentPointCount, STROKE_WIDTH / 2);
+            }
+            if (cacheCanvas != null && cacheValid) {
+                cacheCanvas.save();
+                cacheCanvas.concat(viewMatrix);
+                paint.setColor(currentColor);
+                cacheCanvas.drawPath(currentPath, paint);
+                cacheCanvas.restore();
+            }
             currentPath = null;
+            currentPathWriter.path = null;
+        }
+    }
+
+    private void setColor(int id, int color) {
+        if (id >= colors.length) {
+            colors = Arrays.copyOf(colors, Math.max(id + 1, colors.length * 2));
+        }
+        colors[id] = color;
+    }
+
+    private void setStoreId(int id, int storeId) {
+        if (id >= storeIds.length) {
+            storeIds = Arrays.copyOf(storeIds, Math.max(id + 1, storeIds.length * 2));
         }
+        storeIds[id] = storeId;
+    }
+
+    /**
+     * 从存储文件恢复笔画并在之后把完成、擦除的笔画写入该文件，清空画布时清空文件。
+     * 只读取记录头和包围盒，适合配置变化后重建视图时调用。null 停止写入。
+     * 之前设置的文件在这里关闭。
+     */
+    public void setStrokeStore(StrokeStoreFile store) throws IOException {
+        if (strokeStore != null) {
+            // 关闭排在已提交的写入之后；重新打开同一文件时 open 会等它完成
+            strokeStore.close();
+        }
+        clearStrokes();
+        strokeStore = store;
+        if (store == null) {
+            return;
+        }
+        StrokeStoreReader reader = store.open();
+        int n = reader.getStrokeCount();
+        for (int i = 0; i < n; i++) {
+            paths.add(null);
+            setColor(i, reader.getColor(i));
+            strokePoints.add(null);
+            setStoreId(i, reader.getId(i));
+            reader.getBounds(i, strokeBounds);
+            strokeIndex.insert(i, strokeBounds[0], strokeBounds[1], strokeBounds[2], strokeBounds[3]);
+        }
+        restoredStrokes = reader;
+        restoredCount = n;
+        nextStoreId = reader.getNextId();
+        cacheValid = false;
+        invalidateFull();
+    }
+
+    /** 擦除与世界坐标 (x, y) 处橡皮擦相交的笔画。 */
+    private void eraseAt(float x, float y) {
+        float radius = ERASER_RADIUS / viewport.getScale() + STROKE_WIDTH / 2;
+        eraseCandidateCount = 0;
+        strokeIndex.queryNear(x, y, radius, eraseCollector);
+        boolean erased = false;
+        for (int i = 0; i < eraseCandidateCount; i++) {
+            int id = eraseCandidates[i];
+            float[] points = strokePointsOf(id);
+            if (StrokeGeometry.polylineDistanceSq(points, points.length / 2, x, y) <= radius * radius) {
+                strokeIndex.remove(id);
+                paths.set(id, null);
+                strokePoints.set(id, null);
+                if (strokeStore != null) {
+                    strokeStore.appendErase(storeIds[id]);
+                }
+                erased = true;
+            }
+        }
+        if (erased) {
+            cacheValid = false;
+            invalidateFull();
+        }
+    }
+
+    private void collectEraseCandidate(int id) {
+        if (eraseCandidateCount == eraseCandidates.length) {
+            eraseCandidates = Arrays.copyOf(eraseCandidates, eraseCandidateCount * 2);
+        }
+        eraseCandidates[eraseCandidateCount++] = id;
+    }
+
+    /** 橡皮擦模式下单指拖动擦除经过的笔画，双指仍可平移缩放。 */
+    public void setEraserMode(boolean enabled) {
+        eraserMode = enabled;
+    }
+
+    public boolean isEraserMode() {
+        return eraserMode;
+    }
+
+    /**
+     * 点选：返回视图坐标 (x, y) 处最上层（最后绘制）的笔画编号，没有时返回 -1。
+     * tolerance 为屏幕像素。
+     */
+    public int findStrokeAt(float x, float y, float tolerance) {
+        float wx = viewport.toWorldX(x);
+        float wy = viewport.toWorldY(y);
+        float radius = tolerance / viewport.getScale() + STROKE_WIDTH / 2;
+        eraseCandidateCount = 0;
+        strokeIndex.queryNear(wx, wy, radius, eraseCollector);
+        int hit = -1;
+        for (int i = 0; i < eraseCandidateCount; i++) {
+            int id = eraseCandidates[i];
+            float[] points = strokePointsOf(id);
+            if (id > hit && StrokeGeometry.polylineDistanceSq(points, points.length / 2, wx, wy) <= radius * radius) {
+                hit = id;
+            }
+        }
+        return hit;
+    }
+
+    /** 恢复未缩放、未平移的视口。 */
+    public void resetViewport() {
+        viewport.reset();
+        onViewportChanged();
+    }
+
+    public float getViewportScale() {
+        return viewport.getScale();
+    }
+
+    /** 最近一次重建缓存时绘制的笔画数，即与视口相交的笔画数。 */
+    public int getLastDrawnStrokeCount() {
+        return lastDrawnStrokes;
+    }
+
+    public int getStrokeCount() {
+        return strokeIndex.size();
     }
 
     public void clearDrawing() {
+        clearStrokes();
+        if (strokeStore != null) {
+            strokeStore.clear();
+        }
+    }
+
+    private void clearStrokes() {
         paths.clear();
-        colors.clear();
+        strokePoints.clear();
+        strokeIndex.clear();
+        restoredStrokes = null;
+        restoredCount = 0;
+        nextStoreId = 0;
         currentPath = null;
+        hasPrediction = false;
         touchPoints.clear();
+        if (strokeCache != null) {
+            strokeCache.eraseColor(Color.TRANSPARENT);
+        }
+        invalidateFull();
+    }
+
+    /** 设置后续笔画的颜色，已完成的笔画保持原色。 */
+    public void setStrokeColor(int color) {
+        currentColor = color;
+        invalidateFull();
+    }
+
+    public int getStrokeColor() {
+        return currentColor;
+    }
+
+    // 尺寸变化后重新分配并重绘缓存
+    private void rebuildStrokeCache() {
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) {
+            releaseStrokeCache();
+            return;
+        }
+
+        if (strokeCache == null || strokeCache.getWidth() != w || strokeCache.getHeight() != h) {
+            releaseStrokeCache();
+            strokeCache = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            cacheCanvas = new Canvas(strokeCache);
+        }
+        cacheValid = false;
+        invalidateFull();
+    }
+
+    // 按当前视口重绘缓存，只绘制可见的笔画
+    private void renderStrokeCache() {
+        strokeCache.eraseColor(Color.TRANSPARENT);
+        cacheCanvas.save();
+        cacheCanvas.concat(viewMatrix);
+        drawVisibleStrokes(cacheCanvas);
+        cacheCanvas.restore();
+        cacheValid = true;
+    }
+
+    private void scheduleRedraw() {
+        if (!redrawScheduled && dirtyRegion.isDirty()) {
+            redrawScheduled = true;
+            postOnAnimation(frameRedraw);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void redrawDirtyRegion() {
+        redrawScheduled = false;
+        if (strokeEncoder != null) {
+            strokeEncoder.flush();
+        }
+        if (dirtyRegion.takeFrame(dirtyRect, getWidth(), getHeight())) {
+            invalidate(dirtyRect[0], dirtyRect[1], dirtyRect[2], dirtyRect[3]);
+        }
+    }
+
+    private void invalidateFull() {
+        dirtyRegion.recordFullFrame(getWidth(), getHeight());
         invalidate();
     }
 
-    public List<Float> getTouchPoints() {
-        return new ArrayList<>(touchPoints);
+    /** 最近一帧失效的像素数。 */
+    public long getLastFrameInvalidatedPixels() {
+        return dirtyRegion.getLastFramePixels();
+    }
+
+    public long getAverageInvalidatedPixels() {
+        return dirtyRegion.getAveragePixelsPerFrame();
+    }
+
+    private void releaseStrokeCache() {
+        if (strokeCache != null) {
+            strokeCache.recycle();
+            strokeCache = null;
+            cacheCanvas = null;
+            cacheValid = false;
+        }
+    }
+
+    /** 所有保留触摸点的只读视图，不复制数据，后续触摸事件可能使其失效。 */
+    public FloatBuffer getTouchPoints() {
+        return touchPoints.asReadOnlyBuffer();
+    }
+
+    /** 上次调用之后新增的触摸点，用于增量发送。 */
+    public FloatBuffer drainNewTouchPoints() {
+        return touchPoints.drainNew();
+    }
+
+    public void setMaxTouchPoints(int maxPoints) {
+        touchPoints.setMaxPoints(maxPoints);
     }
 }
\ No newline at end of file
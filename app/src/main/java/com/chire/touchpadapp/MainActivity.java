@@ -3,32 +3,62 @@ package com.chire.touchpadapp;
 import android.annotation.SuppressLint;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
-import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import com.chire.touchpadapp.core.LatencyTelemetry;
+import com.chire.touchpadapp.core.TouchProtocol;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import java.util.List;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Locale;
 
-public class MainActivity extends AppCompatActivity implements WebSocketManager.MessageListener {
+public class MainActivity extends AppCompatActivity implements TouchTransport.MessageListener {
+
+    // 消息日志保留条数，以及每类高频消息每秒最多显示的条数
+    private static final int MESSAGE_LOG_CAPACITY = 500;
+    private static final int MESSAGE_RATE_PER_SECOND = 20;
+    private static final long LATENCY_OVERLAY_INTERVAL_MS = 1000;
+    // 地址输入停顿后再预热，避免每个字符都触发DNS解析
+    private static final long PREWARM_DELAY_MS = 500;
+    // 手势日志每个回调都要拼接字符串，只在调试版且打开日志级别时输出：adb shell setprop log.tag.GESTURE DEBUG
+    private static final boolean LOG_GESTURES = BuildConfig.DEBUG && Log.isLoggable("GESTURE", Log.DEBUG);
 
     private WebSocketManager webSocketManager;
-    private TextView connectionStatus, messagesView;
+    // 接收端支持时滑动走UDP，其余仍走 webSocketManager
+    private TouchTransport transport;
+    private MotionCoalescer motionCoalescer;
+    private MultiTouchStreamer multiTouchStreamer;
+    private TextView connectionStatus;
+    private ListView messagesView;
+    private MessageLog messageLog;
+    private TextView latencyOverlay;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final Runnable latencyOverlayUpdater = this::updateLatencyOverlay;
+    private final Runnable prewarmRunnable = this::prewarmServer;
+    // 调试版录制的触摸轨迹，断开时写入 files/traces，供回放压测使用
+    private ByteArrayOutputStream traceBuffer;
     private EditText serverUrlInput;
     private Button connectButton;
 
     private GestureDetector gestureDetector;
-    private ScaleGestureDetector scaleDetector;
 
     @SuppressLint("ClickableViewAccessibility")
     @Override
@@ -38,35 +68,75 @@ public class MainActivity extends AppCompatActivity implements WebSocketManager.
 
         // 初始化WebSocket管理器
         webSocketManager = new WebSocketManager();
-        webSocketManager.setMessageListener(this);
+        webSocketManager.setPreconnectEnabled(true);
+        transport = new DatagramTransport(webSocketManager);
+        transport.setMessageListener(this);
+        webSocketManager.getInboundDispatcher().onText("drawing_data", this::onDrawingData);
+        motionCoalescer = new MotionCoalescer(transport);
+        motionCoalescer.setRateController(webSocketManager.getRateController());
+        multiTouchStreamer = new MultiTouchStreamer(transport);
 
         gestureDetector = new GestureDetector(this, new GestureListener());
-        scaleDetector = new ScaleGestureDetector(this, new ScaleListener());
 
         // 初始化UI组件
         View touchArea = findViewById(R.id.touch_area);
         touchArea.setOnTouchListener((v, event) -> {
+            // 两指及以上改发多指帧（含滚动、缩放、旋转），先发出积攒的单指滑动
+            boolean wasStreaming = multiTouchStreamer.isStreaming();
+            multiTouchStreamer.onTouchEvent(event);
+            if (!wasStreaming && multiTouchStreamer.isStreaming()) {
+                motionCoalescer.flush();
+                motionCoalescer.endTracking();
+            }
+
             // 传递给手势检测器
             gestureDetector.onTouchEvent(event);
-            scaleDetector.onTouchEvent(event);
+
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                motionCoalescer.endTracking();
+            }
 
             return true;
         });
 
         connectionStatus = findViewById(R.id.connection_status);
         messagesView = findViewById(R.id.messages_view);
+        messageLog = new MessageLog(messagesView, MESSAGE_LOG_CAPACITY, MESSAGE_RATE_PER_SECOND);
+        messagesView.setAdapter(messageLog);
         serverUrlInput = findViewById(R.id.server_url);
         connectButton = findViewById(R.id.connect_button);
+        latencyOverlay = findViewById(R.id.latency_overlay);
+        if (BuildConfig.DEBUG) {
+            latencyOverlay.setVisibility(View.VISIBLE);
+        }
 
         // 设置初始状态
         updateConnectionStatus(false);
 
+        // 输入服务器地址时提前解析并建立连接，点击连接时只剩WebSocket升级
+        serverUrlInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                uiHandler.removeCallbacks(prewarmRunnable);
+                uiHandler.postDelayed(prewarmRunnable, PREWARM_DELAY_MS);
+            }
+        });
+        prewarmServer();
+
         // 连接按钮点击事件
         connectButton.setOnClickListener(v -> {
-            if (webSocketManager.isConnected()) {
-                webSocketManager.closeConnection();
+            if (transport.isConnected()) {
+                transport.closeConnection();
                 updateConnectionStatus(false);
                 addMessage("已断开服务器连接");
+                saveTrace();
             } else {
                 String serverUrl = serverUrlInput.getText().toString().trim();
                 if (serverUrl.isEmpty()) {
@@ -80,8 +150,12 @@ public class MainActivity extends AppCompatActivity implements WebSocketManager.
                     return;
                 }
 
-                webSocketManager.setServerUrl(serverUrl);
-                webSocketManager.connect();
+                transport.setServerUrl(serverUrl);
+                if (BuildConfig.DEBUG && traceBuffer == null) {
+                    traceBuffer = new ByteArrayOutputStream();
+                    webSocketManager.startTrace(traceBuffer);
+                }
+                transport.connect();
                 addMessage("正在连接服务器: " + serverUrl);
             }
         });
@@ -91,62 +165,105 @@ public class MainActivity extends AppCompatActivity implements WebSocketManager.
     private class GestureListener extends GestureDetector.SimpleOnGestureListener {
         @Override
         public boolean onDown(MotionEvent e) {
+            motionCoalescer.beginTracking(e.getEventTime(), e.getX(), e.getY());
             return true; // 必须返回true才能接收后续事件
         }
 
         @Override
         public boolean onSingleTapConfirmed(MotionEvent e) {
-            Log.d("GESTURE", "单击: (" + e.getX() + ", " + e.getY() + ")");
-            webSocketManager.sendMessage("单指单击 "+e.getX()+" "+e.getY());
+            recordDispatch(e);
+            if (LOG_GESTURES) {
+                Log.d("GESTURE", "单击: (" + e.getX() + ", " + e.getY() + ")");
+            }
+            motionCoalescer.sendImmediate(TouchProtocol.OP_TAP, e.getEventTime(), e.getX(), e.getY());
             return true;
         }
 
         @Override
         public boolean onDoubleTap(MotionEvent e) {
-            Log.d("GESTURE", "双击: (" + e.getX() + ", " + e.getY() + ")");
-            webSocketManager.sendMessage("单指双击 "+e.getX()+" "+e.getY());
+            recordDispatch(e);
+            if (LOG_GESTURES) {
+                Log.d("GESTURE", "双击: (" + e.getX() + ", " + e.getY() + ")");
+            }
+            motionCoalescer.sendImmediate(TouchProtocol.OP_DOUBLE_TAP, e.getEventTime(), e.getX(), e.getY());
             return true;
         }
 
         @Override
         public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            Log.d("GESTURE", "滑动: X=" + distanceX + ", Y=" + distanceY);
-            webSocketManager.sendMessage("单指滑动 "+distanceX+" "+distanceX);
+            if (multiTouchStreamer.isStreaming()) {
+                return true; // 多指帧已包含全部触点
+            }
+            recordDispatch(e2);
+            if (LOG_GESTURES) {
+                Log.d("GESTURE", "滑动: X=" + distanceX + ", Y=" + distanceY);
+            }
+            // 逐个输入历史采样，不丢弃系统批量打包的中间点；同一帧内的增量合并后再发送
+            for (int h = 0; h < e2.getHistorySize(); h++) {
+                motionCoalescer.addScrollSample(e2.getHistoricalEventTime(h),
+                        e2.getHistoricalX(h), e2.getHistoricalY(h));
+            }
+            motionCoalescer.addScrollSample(e2.getEventTime(), e2.getX(), e2.getY());
             return true;
         }
     }
 
-    private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
-        @Override
-        public boolean onScale(ScaleGestureDetector detector) {
-            float scaleFactor = detector.getScaleFactor();
-            Log.d("SCALE", "缩放比例: " + scaleFactor);
-            return true;
+    private void prewarmServer() {
+        String serverUrl = serverUrlInput.getText().toString().trim();
+        if (serverUrl.startsWith("ws://") || serverUrl.startsWith("wss://")) {
+            webSocketManager.prewarm(serverUrl);
+        }
+    }
+
+    private void recordDispatch(MotionEvent e) {
+        webSocketManager.getTelemetry().recordSinceEvent(
+                LatencyTelemetry.STAGE_DISPATCH, e.getEventTime(), System.nanoTime());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (BuildConfig.DEBUG) {
+            uiHandler.post(latencyOverlayUpdater);
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        uiHandler.removeCallbacks(latencyOverlayUpdater);
+    }
+
+    private void updateLatencyOverlay() {
+        latencyOverlay.setText(webSocketManager.getTelemetry().summary()
+                + "\n" + webSocketManager.getRateController().summary());
+        uiHandler.postDelayed(latencyOverlayUpdater, LATENCY_OVERLAY_INTERVAL_MS);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        webSocketManager.closeConnection();
+        motionCoalescer.cancel();
+        uiHandler.removeCallbacks(prewarmRunnable);
+        saveTrace();
+        transport.shutdown();
     }
 
     @Override
     public void onMessageReceived(String message) {
-        runOnUiThread(() -> {
-            addMessage("收到: " + message);
-
-            // 如果是绘图数据回显，尝试解析
-            try {
-                JSONObject json = new JSONObject(message);
-                if (json.has("type") && "drawing_data".equals(json.getString("type"))) {
-                    JSONArray points = json.getJSONArray("points");
-                    addMessage("收到绘图数据: " + points.length()/2 + "个点");
-                }
-            } catch (JSONException e) {
-                // 不是JSON或解析失败，不做处理
-            }
-        });
+        // 在分发线程上调用；日志可在任意线程追加，按帧合并刷新，回显等高频消息按类别限流
+        messageLog.append("received", "收到: ", message);
+    }
+
+    // 分发器已按 "type" 字段路由，只有绘图数据才解析JSON
+    private void onDrawingData(String message) {
+        messageLog.append("received", "收到: ", message);
+        try {
+            JSONArray points = new JSONObject(message).getJSONArray("points");
+            addMessage("收到绘图数据: " + points.length()/2 + "个点");
+        } catch (JSONException e) {
+            // 格式不完整，只记录原文
+        }
     }
 
     @Override
@@ -158,6 +275,12 @@ public class MainActivity extends AppCompatActivity implements WebSocketManager.
                 addMessage("服务器连接成功");
             } else {
                 addMessage("服务器连接断开");
+                addMessage("滑动合并统计: " + motionCoalescer.getStatsSummary()
+                        + ", 多指帧" + multiTouchStreamer.getFrameCount());
+                addMessage("发送队列统计: 峰值" + webSocketManager.getQueueHighWaterMark()
+                        + ", 丢弃移动事件" + webSocketManager.getDroppedMotionCount()
+                        + ", 发送批次" + webSocketManager.getSentBatchCount()
+                        + ", 未确认" + webSocketManager.getUnackedCount());
             }
         });
     }
@@ -176,26 +299,35 @@ public class MainActivity extends AppCompatActivity implements WebSocketManager.
         }
     }
 
-    private void addMessage(String message) {
-        String time = String.format(Locale.getDefault(), "[%tT] ", System.currentTimeMillis());
-        String currentText = messagesView.getText().toString();
-
-        if (!currentText.isEmpty()) {
-            currentText += "\n";
+    private void saveTrace() {
+        if (traceBuffer == null) {
+            return;
         }
-
-        messagesView.setText(currentText + time + message);
-
-        // 自动滚动到底部
-        messagesView.post(() -> {
-            int scrollAmount = messagesView.getLayout().getLineTop(messagesView.getLineCount())
-                    - messagesView.getHeight();
-            if (scrollAmount > 0) {
-                messagesView.scrollTo(0, scrollAmount);
-            } else {
-                messagesView.scrollTo(0, 0);
+        long records = webSocketManager.stopTrace();
+        byte[] data = traceBuffer.toByteArray();
+        traceBuffer = null;
+        if (records == 0) {
+            return;
+        }
+        File dir = new File(getExternalFilesDir(null), "traces");
+        File file = new File(dir, String.format(Locale.US, "trace-%tY%<tm%<td-%<tH%<tM%<tS.tptr",
+                System.currentTimeMillis()));
+        new Thread(() -> {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                addMessage("保存触摸轨迹失败: 无法创建目录");
+                return;
             }
-        });
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(data);
+                addMessage("已保存触摸轨迹: " + records + "个事件, " + file.getAbsolutePath());
+            } catch (IOException e) {
+                addMessage("保存触摸轨迹失败: " + e.getMessage());
+            }
+        }, "trace-writer").start();
+    }
+
+    private void addMessage(String message) {
+        messageLog.append(message);
     }
 
 
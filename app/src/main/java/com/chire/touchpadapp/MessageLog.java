@@ -0,0 +1,137 @@
+package com.chire.touchpadapp;
+
+import android.os.SystemClock;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+import com.chire.touchpadapp.core.KeyedRateLimiter;
+import com.chire.touchpadapp.core.RingBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 消息日志：只保留最近 capacity 条，由 ListView 复用行视图显示。
+ * append 可在任意线程调用，同一帧内的追加合并为一次界面刷新；
+ * 指定类别的消息按类别限流，被省略的条数附在下一条放行的消息后面。
+ */
+public class MessageLog extends BaseAdapter {
+
+    private static final class Entry {
+        final long time;
+        final String text;
+
+        Entry(long time, String text) {
+            this.time = time;
+            this.text = text;
+        }
+    }
+
+    private final ListView listView;
+    private final RingBuffer<Entry> entries;
+    private final Runnable flushRunnable = this::flushPending;
+
+    // 以下字段由 this 保护
+    private final KeyedRateLimiter rateLimiter;
+    private List<Entry> pending = new ArrayList<>();
+    private List<Entry> spare = new ArrayList<>();
+    private boolean flushScheduled;
+
+    public MessageLog(ListView listView, int capacity, int maxPerSecondPerCategory) {
+        this.listView = listView;
+        this.entries = new RingBuffer<>(capacity);
+        this.rateLimiter = new KeyedRateLimiter(maxPerSecondPerCategory, 1000);
+    }
+
+    public void append(String message) {
+        append(null, message);
+    }
+
+    /** category 不为 null 时参与限流，适合高频消息（例如回显）。 */
+    public void append(String category, String message) {
+        append(category, null, message);
+    }
+
+    /** 同上，prefix 在放行后才与 message 拼接，被限流的消息不产生新字符串。 */
+    public void append(String category, String prefix, String message) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            int suppressed = 0;
+            if (category != null) {
+                suppressed = rateLimiter.acquire(category, SystemClock.uptimeMillis());
+                if (suppressed < 0) {
+                    return;
+                }
+            }
+            String text = prefix != null ? prefix + message : message;
+            if (suppressed > 0) {
+                text = text + " (省略" + suppressed + "条)";
+            }
+            pending.add(new Entry(now, text));
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        listView.postOnAnimation(flushRunnable);
+    }
+
+    /** 调整保留条数，只能在主线程调用。 */
+    public void setCapacity(int capacity) {
+        entries.setCapacity(capacity);
+        notifyDataSetChanged();
+    }
+
+    public void clear() {
+        synchronized (this) {
+            pending.clear();
+        }
+        entries.clear();
+        notifyDataSetChanged();
+    }
+
+    private void flushPending() {
+        List<Entry> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            flushScheduled = false;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(batch.get(i));
+        }
+        batch.clear();
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return entries.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return entries.get(position).text;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) convertView;
+        if (view == null) {
+            view = (TextView) LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_message, parent, false);
+        }
+        Entry entry = entries.get(position);
+        view.setText(String.format(Locale.getDefault(), "[%tT] %s", entry.time, entry.text));
+        return view;
+    }
+}
@@ -0,0 +1,266 @@
+package com.chire.touchpadapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import com.chire.touchpadapp.core.LinearMotionPredictor;
+import com.chire.touchpadapp.core.LinkRateController;
+import com.chire.touchpadapp.core.TouchProtocol;
+
+/**
+ * 手势监听器与 {@link TouchTransport} 之间的合并层。
+ * 滑动增量在一帧（或指定间隔）内累加后只发送一次，单击/双击不等待，
+ * 发送前会先把积攒的滑动刷出去以保证顺序。只能在主线程调用。
+ */
+public class MotionCoalescer implements Choreographer.FrameCallback {
+
+    /** 刷新时机的来源，单元测试里换成手动驱动的实现。 */
+    interface FlushScheduler {
+        void postFrame(Choreographer.FrameCallback callback);
+        void removeFrame(Choreographer.FrameCallback callback);
+        void postDelayed(Runnable runnable, long delayMs);
+        void removeDelayed(Runnable runnable);
+    }
+
+    // 显示帧来自 Choreographer，固定间隔用主线程 Handler
+    private static final class MainThreadScheduler implements FlushScheduler {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void postFrame(Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().postFrameCallback(callback);
+        }
+
+        @Override
+        public void removeFrame(Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().removeFrameCallback(callback);
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            handler.postDelayed(runnable, delayMs);
+        }
+
+        @Override
+        public void removeDelayed(Runnable runnable) {
+            handler.removeCallbacks(runnable);
+        }
+    }
+
+    private final TouchTransport transport;
+    private final FlushScheduler scheduler;
+    private final Runnable flushRunnable = this::onFlushTimer;
+
+    // 0 表示跟随显示帧刷新，否则按固定毫秒间隔刷新
+    private long flushIntervalMs = 0;
+    // 链路拥塞时放宽合并窗口、降低坐标精度，null 表示不调整
+    private LinkRateController rateController;
+
+    private float pendingX;
+    private float pendingY;
+    private long pendingTime;
+    private int pendingCount;
+    private boolean flushScheduled;
+
+    // 按绝对坐标输入时记录上一个采样，并据此做运动预测
+    private final LinearMotionPredictor predictor = new LinearMotionPredictor();
+    private final float[] predicted = new float[2];
+    private long predictionHorizonMs = 0; // 0 表示关闭预测
+    private float lastSampleX;
+    private float lastSampleY;
+    private boolean tracking;
+
+    // 统计
+    private long flushCount;
+    private long mergedCount;
+    private long lastFlushUptime;
+    private long lastFlushIntervalMs;
+
+    public MotionCoalescer(TouchTransport transport) {
+        this(transport, new MainThreadScheduler());
+    }
+
+    MotionCoalescer(TouchTransport transport, FlushScheduler scheduler) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+    }
+
+    public void setFlushIntervalMs(long intervalMs) {
+        cancelScheduledFlush();
+        this.flushIntervalMs = Math.max(0, intervalMs);
+        if (pendingCount > 0) {
+            scheduleFlush();
+        }
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setRateController(LinkRateController rateController) {
+        this.rateController = rateController;
+    }
+
+    // 取固定间隔和拥塞控制窗口中较大的一个
+    private long effectiveFlushIntervalMs() {
+        if (rateController == null) {
+            return flushIntervalMs;
+        }
+        return Math.max(flushIntervalMs, rateController.getCoalesceWindowMs());
+    }
+
+    /** 预测提前量（毫秒），0 关闭。预测位移以 {@link TouchProtocol#FLAG_PROVISIONAL} 标记发送。 */
+    public void setPredictionHorizonMs(long horizonMs) {
+        this.predictionHorizonMs = Math.max(0, horizonMs);
+    }
+
+    public long getPredictionHorizonMs() {
+        return predictionHorizonMs;
+    }
+
+    /** 手指按下时调用，作为后续绝对坐标采样的起点。 */
+    public void beginTracking(long eventTime, float x, float y) {
+        lastSampleX = x;
+        lastSampleY = y;
+        tracking = true;
+        predictor.reset();
+        predictor.addSample(eventTime, x, y);
+    }
+
+    /**
+     * 以绝对坐标输入一个采样（包括 MotionEvent 的历史采样），
+     * 与上一个采样的差值按 GestureDetector 的约定（上一位置 - 当前位置）累加为滑动距离。
+     */
+    public void addScrollSample(long eventTime, float x, float y) {
+        if (!tracking) {
+            beginTracking(eventTime, x, y);
+            return;
+        }
+        addScroll(eventTime, lastSampleX - x, lastSampleY - y);
+        lastSampleX = x;
+        lastSampleY = y;
+        predictor.addSample(eventTime, x, y);
+    }
+
+    public void endTracking() {
+        tracking = false;
+    }
+
+    public void addScroll(long eventTime, float distanceX, float distanceY) {
+        pendingX += distanceX;
+        pendingY += distanceY;
+        pendingTime = eventTime;
+        pendingCount++;
+        if (!flushScheduled) {
+            scheduleFlush();
+        }
+    }
+
+    /** 单击、双击等离散事件直接发送。 */
+    public void sendImmediate(int opcode, long eventTime, float x, float y) {
+        flush();
+        transport.sendEvent(opcode, eventTime, x, y);
+    }
+
+    public void flush() {
+        cancelScheduledFlush();
+        if (pendingCount == 0) {
+            return;
+        }
+
+        float sendX = pendingX;
+        float sendY = pendingY;
+        if (rateController != null) {
+            // 按当前步长量化，余数留到下一次发送，累计位移不漂移
+            float quantum = rateController.getQuantum();
+            sendX = Math.round(pendingX / quantum) * quantum;
+            sendY = Math.round(pendingY / quantum) * quantum;
+        }
+        if (sendX != 0 || sendY != 0) {
+            transport.sendEvent(TouchProtocol.OP_SCROLL, pendingTime, sendX, sendY);
+            sendPrediction();
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (lastFlushUptime != 0) {
+            lastFlushIntervalMs = now - lastFlushUptime;
+        }
+        lastFlushUptime = now;
+        flushCount++;
+        mergedCount += pendingCount - 1;
+
+        pendingX -= sendX;
+        pendingY -= sendY;
+        pendingCount = 0;
+    }
+
+    private void sendPrediction() {
+        if (predictionHorizonMs <= 0 || !tracking || !predictor.predict(predictionHorizonMs, predicted)) {
+            return;
+        }
+        transport.sendEvent(TouchProtocol.OP_SCROLL, TouchProtocol.FLAG_PROVISIONAL,
+                pendingTime + predictionHorizonMs,
+                lastSampleX - predicted[0], lastSampleY - predicted[1]);
+    }
+
+    /** 丢弃未发送的增量，例如界面销毁时。 */
+    public void cancel() {
+        cancelScheduledFlush();
+        tracking = false;
+        pendingX = 0;
+        pendingY = 0;
+        pendingCount = 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        flushScheduled = false;
+        flush();
+    }
+
+    private void onFlushTimer() {
+        flushScheduled = false;
+        flush();
+    }
+
+    private void scheduleFlush() {
+        flushScheduled = true;
+        long intervalMs = effectiveFlushIntervalMs();
+        if (intervalMs > 0) {
+            scheduler.postDelayed(flushRunnable, intervalMs);
+        } else {
+            scheduler.postFrame(this);
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (!flushScheduled) {
+            return;
+        }
+        flushScheduled = false;
+        scheduler.removeDelayed(flushRunnable);
+        scheduler.removeFrame(this);
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /** 被合并掉、没有单独成帧的滑动采样数。 */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    public long getLastFlushIntervalMs() {
+        return lastFlushIntervalMs;
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public String getStatsSummary() {
+        return "刷新" + flushCount + "次, 合并" + mergedCount + "个采样, 最近间隔" + lastFlushIntervalMs + "ms";
+    }
+}
@@ -0,0 +1,79 @@
+package com.chire.touchpadapp;
+
+import android.view.MotionEvent;
+import com.chire.touchpadapp.core.PointerTracker;
+
+/**
+ * 多指触摸：把 MotionEvent 中的全部触点交给 {@link PointerTracker}，
+ * 两指及以上时每个输入帧发送一个多指帧（含两指滚动、缩放、旋转），直到所有手指抬起。
+ * 期间单指滑动由调用方停发；连接不支持多指帧时本次触摸回退到单指事件。只能在主线程调用。
+ */
+public class MultiTouchStreamer {
+
+    private final TouchTransport transport;
+    private final PointerTracker tracker = new PointerTracker();
+    private final byte[] frame = new byte[PointerTracker.MAX_FRAME_SIZE];
+
+    private boolean streaming;
+    private boolean unsupported; // 本次触摸中发送失败过，不再尝试
+    private long frameCount;
+
+    public MultiTouchStreamer(TouchTransport transport) {
+        this.transport = transport;
+    }
+
+    /** 每个 MotionEvent 调用一次（系统已按帧批量打包，只取当前位置）。 */
+    public void onTouchEvent(MotionEvent event) {
+        int action = event.getActionMasked();
+        int index = event.getActionIndex();
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                streaming = false;
+                unsupported = false;
+                // fall through
+            case MotionEvent.ACTION_POINTER_DOWN:
+                tracker.pointerDown(event.getPointerId(index), event.getX(index), event.getY(index));
+                break;
+            case MotionEvent.ACTION_MOVE:
+                for (int i = 0; i < event.getPointerCount(); i++) {
+                    tracker.pointerMove(event.getPointerId(i), event.getX(i), event.getY(i));
+                }
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                tracker.pointerUp(event.getPointerId(index), event.getX(index), event.getY(index));
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                tracker.cancelAll();
+                break;
+            default:
+                return;
+        }
+
+        if (!streaming && !unsupported && tracker.getActiveCount() >= 2) {
+            streaming = true;
+        }
+        // 不发送时也要编码，让手势以最新位置为起点
+        int length = tracker.encodeFrame(event.getEventTime(), frame, 0);
+        if (streaming && length > 0) {
+            if (transport.sendPointerFrame(frame, 0, length)) {
+                frameCount++;
+            } else {
+                streaming = false;
+                unsupported = true;
+            }
+        }
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            streaming = false;
+        }
+    }
+
+    /** 当前触摸是否以多指帧发送，为真时不应再发送单指滑动。 */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+}
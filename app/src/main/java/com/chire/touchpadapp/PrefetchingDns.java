@@ -0,0 +1,83 @@
+package com.chire.touchpadapp;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.chire.touchpadapp.core.LatencyTelemetry;
+import okhttp3.Dns;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 带短期缓存的DNS：输入服务器地址时提前解析，点击连接和自动重连时直接命中缓存。
+ * 每次真实解析的耗时记入 {@link LatencyTelemetry#STAGE_DNS}，命中缓存记为0。
+ */
+public class PrefetchingDns implements Dns {
+    private static final String TAG = "PrefetchingDns";
+    private static final long DEFAULT_TTL_MS = 60_000;
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+
+        Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Dns delegate;
+    private final LatencyTelemetry telemetry;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private volatile long ttlMs = DEFAULT_TTL_MS;
+
+    public PrefetchingDns(Dns delegate, LatencyTelemetry telemetry) {
+        this.delegate = delegate;
+        this.telemetry = telemetry;
+    }
+
+    public void setTtlMs(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        Entry entry = cache.get(hostname);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            telemetry.recordNanos(LatencyTelemetry.STAGE_DNS, 0);
+            return entry.addresses;
+        }
+        return resolve(hostname);
+    }
+
+    /** 在 executor 上提前解析，失败只记日志，连接时会再次解析。 */
+    public void prefetch(String hostname, Executor executor) {
+        Entry entry = cache.get(hostname);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                resolve(hostname);
+            } catch (UnknownHostException e) {
+                Log.d(TAG, "Prefetch failed for " + hostname + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** 连接失败时调用，避免地址变化后一直使用过期结果。 */
+    public void invalidate(String hostname) {
+        cache.remove(hostname);
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        long start = System.nanoTime();
+        List<InetAddress> addresses = delegate.lookup(hostname);
+        telemetry.recordNanos(LatencyTelemetry.STAGE_DNS, System.nanoTime() - start);
+        cache.put(hostname, new Entry(addresses, System.currentTimeMillis() + ttlMs));
+        return addresses;
+    }
+}
@@ -0,0 +1,139 @@
+package com.chire.touchpadapp;
+
+import android.util.Log;
+import com.chire.touchpadapp.core.StrokeStoreReader;
+import com.chire.touchpadapp.core.StrokeStoreWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 绘图会话的存储文件。写入都在单独的线程上按提交顺序执行，调用方（UI线程）不做磁盘IO；
+ * 打开时映射已有内容，恢复由 {@link StrokeStoreReader} 按需读取。
+ *
+ * 先调用 {@link #open}，再追加写入。写入失败后不再继续写，已写入的完整记录仍可恢复。
+ * 所有实例共用一个写入线程：界面重建时旧实例 {@link #close} 之前提交的写入，
+ * 一定在新实例打开同一文件之前完成，不会被当作末尾不完整的记录截掉。
+ */
+public class StrokeStoreFile {
+    private static final String TAG = "StrokeStoreFile";
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "touchpad-stroke-store");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+
+    // 以下字段只在写入线程上访问
+    private OutputStream out;
+    private StrokeStoreWriter writer;
+    private boolean failed;
+
+    public StrokeStoreFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 映射已有内容用于恢复，只读取记录头，可以在UI线程调用。
+     * 映射在写入线程上进行，先等此前提交的写入（包括旧实例的关闭）完成；
+     * 随后截掉末尾不完整的记录并开始追加。
+     */
+    public StrokeStoreReader open() throws IOException {
+        Future<StrokeStoreReader> mapped = executor.submit(() -> {
+            StrokeStoreReader reader = StrokeStoreReader.map(file);
+            openWriter(reader.getValidLength());
+            return reader;
+        });
+        try {
+            return mapped.get();
+        } catch (ExecutionException e) {
+            // 没有打开写入，之后提交的写入都会失败并停止
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while opening stroke store", e);
+        }
+    }
+
+    private void openWriter(long validLength) throws IOException {
+        // 只截掉映射中从未读取过的部分，已映射的有效内容不受影响
+        if (file.exists() && file.length() > validLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        out = new BufferedOutputStream(new FileOutputStream(file, true));
+        writer = new StrokeStoreWriter(out, validLength > 0);
+    }
+
+    /** points 在提交后不能再修改。 */
+    public void appendStroke(int id, int color, float width, boolean curve, float tolerance,
+                             float[] points, int count, float boundsPadding) {
+        submit(() -> {
+            writer.appendStroke(id, color, width, curve, tolerance, points, count, boundsPadding);
+            writer.flush();
+        });
+    }
+
+    public void appendErase(int id) {
+        submit(() -> {
+            writer.appendErase(id);
+            writer.flush();
+        });
+    }
+
+    /**
+     * 清空文件。调用前必须放弃 {@link #open} 返回的 reader，截断后映射的内容不能再访问。
+     */
+    public void clear() {
+        submit(() -> {
+            out.close();
+            out = new BufferedOutputStream(new FileOutputStream(file, false));
+            writer = new StrokeStoreWriter(out, false);
+        });
+    }
+
+    /** 写完已提交的内容后关闭文件，返回的 Future 在关闭完成后结束。 */
+    public Future<?> close() {
+        return submit(() -> {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            writer = null;
+        });
+    }
+
+    private Future<?> submit(Action action) {
+        return executor.submit(() -> {
+            if (failed) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                Log.e(TAG, "Stroke store write failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
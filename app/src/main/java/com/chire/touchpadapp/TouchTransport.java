@@ -0,0 +1,42 @@
+package com.chire.touchpadapp;
+
+/**
+ * 触摸事件的传输通道。{@link WebSocketManager} 全部走WebSocket；
+ * {@link DatagramTransport} 在局域网内把滑动改为UDP发送，其余事件仍交给WebSocket。
+ */
+public interface TouchTransport {
+
+    interface MessageListener {
+        void onMessageReceived(String message);
+        void onConnectionStatusChanged(boolean isConnected);
+        void onConnectionError(String errorMessage); // 新增错误回调
+    }
+
+    void setMessageListener(MessageListener listener);
+
+    void setServerUrl(String url);
+
+    void connect();
+
+    void closeConnection();
+
+    boolean isConnected();
+
+    void sendMessage(String message);
+
+    /** 发送一条触摸事件，可在UI线程调用。 */
+    void sendEvent(int opcode, int flags, long eventTime, float x, float y);
+
+    default void sendEvent(int opcode, long eventTime, float x, float y) {
+        sendEvent(opcode, 0, eventTime, x, y);
+    }
+
+    /**
+     * 发送一个 {@link com.chire.touchpadapp.core.PointerTracker} 多指帧。
+     * 未连接或未协商到二进制子协议时返回 false，调用方应回退到单指事件。
+     */
+    boolean sendPointerFrame(byte[] frame, int offset, int length);
+
+    /** 关闭连接并释放线程，界面销毁时调用。 */
+    void shutdown();
+}
@@ -2,51 +2,228 @@ package com.chire.touchpadapp;
 
 import android.util.Log;
 import androidx.annotation.NonNull;
+import com.chire.touchpadapp.core.InboundDispatcher;
+import com.chire.touchpadapp.core.LatencyTelemetry;
+import com.chire.touchpadapp.core.LinkRateController;
+import com.chire.touchpadapp.core.OfflineSpool;
+import com.chire.touchpadapp.core.OutboundEventQueue;
+import com.chire.touchpadapp.core.ReconnectBackoff;
+import com.chire.touchpadapp.core.RetransmitBuffer;
+import com.chire.touchpadapp.core.StrokeDecoder;
+import com.chire.touchpadapp.core.TouchEvent;
+import com.chire.touchpadapp.core.TouchProtocol;
+import com.chire.touchpadapp.core.TouchTraceWriter;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
 import okio.ByteString;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 
-public class WebSocketManager {
+public class WebSocketManager implements TouchTransport {
     private static final String TAG = "WebSocketManager";
-    private WebSocket webSocket;
-    private WebSocketListener listener;
+    // 逐条消息的日志会在每次发送时拼接字符串，默认关闭：adb shell setprop log.tag.WebSocketManager VERBOSE
+    private static final boolean LOG_TRAFFIC = Log.isLoggable(TAG, Log.VERBOSE);
+    private volatile WebSocket webSocket;
     private String serverUrl = "wss://echo.websocket.org";
+    // 整个管理器共用一个客户端：共享线程池、连接池和TLS会话缓存，重连时不再重建
     private OkHttpClient client;
-    private boolean isReconnecting = false;
-    private int reconnectAttempts = 0;
-    private static final int MAX_RECONNECT_ATTEMPTS = 5;
-    private static final long RECONNECT_DELAY_MS = 3000;
 
-    private Thread pingThread;
-    private volatile boolean keepPinging = false;
+    // 连接状态（webSocket 的替换、重连、心跳任务）的修改都持有 this，
+    // 心跳和重连在同一个调度线程上执行，旧连接的回调按 webSocket 是否为当前连接过滤
+    private ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> pingTask;
+    private ScheduledFuture<?> rateTask;
+    private ScheduledFuture<?> reconnectTask;
+    private final ReconnectBackoff backoff = new ReconnectBackoff(500, 15_000, 10);
+    private long connectTimeoutMs = 10_000;
+    private long writeTimeoutMs = 10_000;
+    // OkHttp 按此间隔发送协议层 ping，下一次 ping 前仍未收到 pong 即判定对端失联
+    private long deadPeerTimeoutMs = 2000;
 
-    public interface MessageListener {
-        void onMessageReceived(String message);
-        void onConnectionStatusChanged(boolean isConnected);
-        void onConnectionError(String errorMessage); // 新增错误回调
-    }
+    // 服务端是否选择了二进制子协议，否则回退到旧文本格式
+    private volatile boolean binaryProtocol = false;
+    private final StrokeDecoder strokeDecoder = new StrokeDecoder();
+    private final StrokeDecoder.Listener strokeCounter = new StrokeDecoder.Listener() {
+        @Override
+        public void onStrokeBegin(int strokeId, int color, float width) {}
+
+        @Override
+        public void onPoint(int strokeId, float x, float y) {}
+
+        @Override
+        public void onStrokeEnd(int strokeId) {}
+    };
+
+    // 入站消息：心跳和确认在读线程直接处理，其余交给分发线程按类型路由，读线程不解析也不等界面
+    private static final int INBOUND_CAPACITY = 1024;
+    private final InboundDispatcher inbound = new InboundDispatcher(INBOUND_CAPACITY, "touchpad-inbound");
+
+    // 出站队列：UI线程入队，发送线程批量写出
+    private static final int MAX_BATCH_EVENTS = 32;
+    private final OutboundEventQueue outboundQueue = new OutboundEventQueue(256, 64);
+    private final byte[] batchFrame =
+            new byte[TouchProtocol.SEQ_HEADER_SIZE + MAX_BATCH_EVENTS * TouchProtocol.RECORD_SIZE];
+    private int batchLength;
+    private int batchCount;
+    // 本批事件的输入时间与入队时间，写出后统计各阶段延迟
+    private final long[] batchEventTimes = new long[MAX_BATCH_EVENTS];
+    private final long[] batchEnqueuedNanos = new long[MAX_BATCH_EVENTS];
+    private final OutboundEventQueue.Consumer batchWriter = this::appendToBatch;
+    private final OutboundEventQueue.Consumer sequencedWriter = this::appendSequenced;
+    private final OutboundEventQueue.Consumer textWriter = this::sendAsText;
+    private final OutboundEventQueue.Consumer discarder = event -> {};
+    private volatile Thread senderThread;
+    private volatile boolean sending = false;
+    private volatile long sentBatchCount = 0;
+
+    private long pingIntervalMs = 2000;
+
+    // 链路反馈：往返时间、OkHttp 写队列积压和发送失败，由合并层据此调整发送方式
+    private static final long RATE_TICK_MS = 250;
+    // 写队列超过此字节数时发送线程暂停取事件，积压留在出站队列里（移动事件满了丢最旧的）
+    private static final long SEND_QUEUE_LIMIT_BYTES = 16 * 1024;
+    private static final long BACKPRESSURE_WAIT_NANOS = 5_000_000L;
+    private final LinkRateController rateController = new LinkRateController();
+    // 本会话已发出的滑动累计量（定点数），拥塞时改发 OP_POSITION 使用。
+    // 调用 sendEvent 的线程在入队时累加，暂存的滑动在真正取出发送时才累加（可能由发送线程）
+    private final AtomicInteger motionTotalX = new AtomicInteger();
+    private final AtomicInteger motionTotalY = new AtomicInteger();
+
+    // 心跳携带序号，记录发送时间用于计算往返时间
+    private static final int PING_SLOTS = 16;
+    private final int[] pingIds = new int[PING_SLOTS];
+    private final long[] pingSentNanos = new long[PING_SLOTS];
+    private int nextPingId = 1;
+    private final byte[] pingFrame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+
+    private final LatencyTelemetry telemetry = new LatencyTelemetry();
+    private final PrefetchingDns dns = new PrefetchingDns(Dns.SYSTEM, telemetry);
+    private final ConnectPhaseTimer connectTimer = new ConnectPhaseTimer(telemetry);
+    private volatile boolean preconnectEnabled = false;
+
+    // 会话续传：协商到 SUBPROTOCOL_SESSION 时事件带序号，确认前保存在重发缓冲区，
+    // 自动重连后只重发接收端缺少的部分。用户主动断开或重新连接时开始新会话。
+    private static final int RETRANSMIT_CAPACITY = 1024;
+    private final RetransmitBuffer retransmit = new RetransmitBuffer(RETRANSMIT_CAPACITY);
+    private final RetransmitBuffer.Sink replayWriter = this::appendReplayed;
+    private final SecureRandom sessionRandom = new SecureRandom();
+    private volatile int sessionId;
+    private volatile boolean sessionProtocol = false;
+    private volatile boolean resumed = false;         // 续传握手完成，新事件可以直接发出
+    private volatile boolean resumeRequested = false; // 收到握手确认，等待发送线程重放缺口
+    private WebSocket replaySocket;
+    private int replayNextSeq;
 
-    private MessageListener messageListener;
+    // 连接状态。建立连接和自动重连期间（LINK_CONNECTING）非续传模式的事件暂存在 offlineSpool，
+    // 连接打开后由发送线程先于出站队列一次发出；LINK_IDLE 时拒绝发送。
+    // 错误每次状态变化后只报告一次，重连期间不会每个事件都弹出提示
+    private static final int LINK_IDLE = 0;
+    private static final int LINK_CONNECTING = 1;
+    private static final int LINK_OPEN = 2;
+    private static final int SPOOL_CAPACITY = 256;
+    private static final long SPOOL_MAX_AGE_MS = 5000;
+    private final OfflineSpool offlineSpool = new OfflineSpool(SPOOL_CAPACITY, SPOOL_MAX_AGE_MS);
+    private final OutboundEventQueue.Consumer spoolRequeuer = this::requeueSpooled;
+    private final OutboundEventQueue.Consumer spoolSender = this::sendSpooled;
+    private OutboundEventQueue.Consumer spoolTarget; // 只在发送线程访问
+    private volatile int linkState = LINK_IDLE;
+    private volatile int linkStateChanges;
+    private volatile int reportedStateChange = -1;
 
+    // 录制进入发送路径的事件，用于离线回放压测；只在调用 sendEvent 的线程访问
+    private TouchTraceWriter traceWriter;
+
+    // 是否声明 SUBPROTOCOL_DATAGRAM（滑动改走UDP），由 DatagramTransport 开启
+    private volatile boolean datagramOffered = false;
+    private volatile boolean datagramProtocol = false;
+
+    private volatile MessageListener messageListener;
+
+    public WebSocketManager() {
+        registerInboundRoutes();
+    }
+
+    @Override
     public void setMessageListener(MessageListener listener) {
         this.messageListener = listener;
     }
 
+    @Override
     public void setServerUrl(String url) {
         this.serverUrl = url;
     }
 
-    // 创建信任所有证书的客户端（仅用于调试）
-    private OkHttpClient createUnsafeOkHttpClient() {
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    private synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = createClient();
+        }
+        return client;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "touchpad-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // 取消的任务立即移出队列，频繁重排心跳也不会堆积
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    /**
+     * 调整超时：连接（含握手）超时、写超时，以及失联检测间隔（OkHttp pingInterval）。
+     * 已创建的客户端通过 newBuilder 派生，仍共享连接池和线程池。
+     */
+    public synchronized void setTimeouts(long connectTimeoutMs, long writeTimeoutMs, long deadPeerTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.writeTimeoutMs = writeTimeoutMs;
+        this.deadPeerTimeoutMs = deadPeerTimeoutMs;
+        if (client != null) {
+            client = applyTimeouts(client.newBuilder()).build();
+        }
+    }
+
+    /** 重连退避：首次延迟、最大延迟，以及最多重连次数（小于等于0不限）。 */
+    public synchronized void setReconnectBackoff(long initialDelayMs, long maxDelayMs, int maxAttempts) {
+        backoff.configure(initialDelayMs, maxDelayMs, maxAttempts);
+    }
+
+    private OkHttpClient.Builder applyTimeouts(OkHttpClient.Builder builder) {
+        return builder
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .pingInterval(deadPeerTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // wss:// 使用信任所有证书的TLS配置（仅用于调试），ws:// 不受影响
+    private OkHttpClient createClient() {
         try {
             // 创建信任所有证书的TrustManager
             final TrustManager[] trustAllCerts = new TrustManager[] {
@@ -62,16 +239,18 @@ public class WebSocketManager {
                     }
             };
 
-            // 安装信任所有证书的SSLContext
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
+            // 安装信任所有证书的SSLContext；SSLContext 只创建一次，其会话缓存使重连可以简短握手
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(null, trustAllCerts, new SecureRandom());
 
-            return new OkHttpClient.Builder()
-                    .sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustAllCerts[0])
+            return applyTimeouts(new OkHttpClient.Builder())
+                    .sslSocketFactory(connectTimer.sslSocketFactory(sslContext.getSocketFactory()),
+                            (X509TrustManager) trustAllCerts[0])
                     .hostnameVerifier((hostname, session) -> true) // 信任所有主机名
-                    .connectTimeout(10, TimeUnit.SECONDS)
-                    .readTimeout(10, TimeUnit.SECONDS)
-                    .writeTimeout(10, TimeUnit.SECONDS)
+                    .socketFactory(connectTimer.socketFactory())
+                    .dns(dns)
+                    // WebSocket 只走 HTTP/1.1，预连接也用同样的协议，连接池里的连接才能被升级请求复用
+                    .protocols(Collections.singletonList(Protocol.HTTP_1_1))
                     .retryOnConnectionFailure(true)
                     .build();
         } catch (Exception e) {
@@ -79,53 +258,94 @@ public class WebSocketManager {
         }
     }
 
-    public void connect() {
-        if (webSocket != null) {
-            closeConnection();
-        }
+    @Override
+    public synchronized void connect() {
+        closeConnection();
+        startSession();
+        backoff.reset();
+        openSocket();
+    }
 
+    // 调用方持有 this
+    private void openSocket() {
+        cancelReconnect();
+        closeSocket();
         try {
-            // 创建安全的HTTP客户端
-            if (serverUrl.startsWith("wss://")) {
-                // 生产环境应使用正确的证书验证
-                // 这里为调试目的使用信任所有证书的客户端
-                client = createUnsafeOkHttpClient();
-            } else {
-                client = new OkHttpClient.Builder()
-                        .connectTimeout(10, TimeUnit.SECONDS)
-                        .readTimeout(10, TimeUnit.SECONDS)
-                        .writeTimeout(10, TimeUnit.SECONDS)
-                        .retryOnConnectionFailure(true)
-                        .build();
-            }
+            OkHttpClient client = getClient();
+            connectTimer.begin();
 
+            // 按优先级声明子协议，旧接收端只认识chat时回退到文本格式
+            String protocols = TouchProtocol.SUBPROTOCOL_SESSION + ", "
+                    + TouchProtocol.SUBPROTOCOL_BINARY + ", " + TouchProtocol.SUBPROTOCOL_TEXT;
+            if (datagramOffered) {
+                protocols = TouchProtocol.SUBPROTOCOL_DATAGRAM + ", " + protocols;
+            }
             Request request = new Request.Builder()
                     .url(serverUrl)
-                    .addHeader("Sec-WebSocket-Protocol", "chat") // 添加协议头
+                    .addHeader("Sec-WebSocket-Protocol", protocols)
                     .build();
 
-            listener = new WebSocketListener() {
+            WebSocketListener listener = new WebSocketListener() {
                 @Override
                 public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
                     super.onOpen(webSocket, response);
-                    Log.d(TAG, "WebSocket connected");
-                    reconnectAttempts = 0;
-                    isReconnecting = false;
+                    synchronized (WebSocketManager.this) {
+                        if (webSocket != WebSocketManager.this.webSocket) {
+                            return; // 已被新的连接取代
+                        }
+                        backoff.reset();
+                        schedulePings();
+                    }
+                    rateController.reset();
+                    connectTimer.onOpen();
+                    String protocol = response.header("Sec-WebSocket-Protocol");
+                    // 数据报模式包含会话续传
+                    datagramProtocol = TouchProtocol.SUBPROTOCOL_DATAGRAM.equals(protocol);
+                    sessionProtocol = datagramProtocol || TouchProtocol.SUBPROTOCOL_SESSION.equals(protocol);
+                    binaryProtocol = sessionProtocol || TouchProtocol.SUBPROTOCOL_BINARY.equals(protocol);
+                    // 数据报模式下滑动走UDP，不经过这里的发送队列
+                    rateController.setAbsoluteAllowed(sessionProtocol && !datagramProtocol);
+                    resumed = false;
+                    resumeRequested = false;
+                    Log.d(TAG, "WebSocket connected, binary protocol: " + binaryProtocol
+                            + ", resumable session: " + sessionProtocol + ", datagram: " + datagramProtocol);
+                    if (sessionProtocol) {
+                        sendResume(webSocket);
+                    } else {
+                        retransmit.clear();
+                    }
+                    synchronized (WebSocketManager.this) {
+                        if (webSocket == WebSocketManager.this.webSocket) {
+                            setLinkState(LINK_OPEN);
+                        }
+                    }
+                    // 发送线程先写出连接期间暂存的事件
+                    LockSupport.unpark(senderThread);
 
                     if (messageListener != null) {
                         messageListener.onConnectionStatusChanged(true);
                     }
-
-                    // 启动心跳线程
-                    startPingThread();
                 }
 
                 @Override
                 public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
                     super.onMessage(webSocket, text);
-                    Log.d(TAG, "Received message: " + text);
-                    if (messageListener != null) {
-                        messageListener.onMessageReceived(text);
+                    if (handleTextHeartbeat(text)) {
+                        return;
+                    }
+                    if (!inbound.post(text)) {
+                        Log.w(TAG, "Inbound queue full, dropped message");
+                    }
+                }
+
+                @Override
+                public void onMessage(@NonNull WebSocket webSocket, @NonNull ByteString bytes) {
+                    super.onMessage(webSocket, bytes);
+                    if (handleControlFrame(bytes)) {
+                        return;
+                    }
+                    if (!inbound.post(bytes.toByteArray())) {
+                        Log.w(TAG, "Inbound queue full, dropped frame");
                     }
                 }
 
@@ -133,14 +353,10 @@ public class WebSocketManager {
                 public void onClosing(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
                     super.onClosing(webSocket, code, reason);
                     Log.d(TAG, "Closing: " + code + " / " + reason);
-                    if (messageListener != null) {
+                    // 1000是正常关闭，其余尝试重新连接
+                    if (onConnectionLost(webSocket, code != 1000) && messageListener != null) {
                         messageListener.onConnectionStatusChanged(false);
                     }
-
-                    // 尝试重新连接
-                    if (code != 1000 && !isReconnecting) { // 1000是正常关闭
-                        scheduleReconnect();
-                    }
                 }
 
                 @Override
@@ -148,83 +364,286 @@ public class WebSocketManager {
                     super.onFailure(webSocket, t, response);
                     String errorMsg = "WebSocket error: " + t.getMessage();
                     Log.e(TAG, errorMsg);
+                    // 地址可能已变化（例如切换网络），下次连接重新解析
+                    dns.invalidate(webSocket.request().url().host());
 
-                    if (messageListener != null) {
-                        messageListener.onConnectionStatusChanged(false);
-                        messageListener.onConnectionError(errorMsg);
-                    }
-
-                    // 尝试重新连接
-                    if (!isReconnecting) {
-                        scheduleReconnect();
+                    if (onConnectionLost(webSocket, true)) {
+                        if (messageListener != null) {
+                            messageListener.onConnectionStatusChanged(false);
+                        }
+                        reportError(errorMsg);
                     }
                 }
             };
 
             webSocket = client.newWebSocket(request, listener);
+            setLinkState(LINK_CONNECTING);
+            startSenderThread();
         } catch (Exception e) {
             String errorMsg = "Connection failed: " + e.getMessage();
             Log.e(TAG, errorMsg);
-            if (messageListener != null) {
-                messageListener.onConnectionError(errorMsg);
-            }
+            setLinkState(LINK_IDLE);
+            offlineSpool.clear();
+            reportError(errorMsg);
         }
     }
 
-    private void startPingThread() {
-        keepPinging = true;
-        pingThread = new Thread(() -> {
-            while (keepPinging && webSocket != null) {
-                try {
-                    Thread.sleep(15000); // 每15秒发送一次心跳
-                    if (webSocket != null) {
-                        webSocket.send("ping"); // 发送心跳消息
-                        Log.d(TAG, "Sent ping");
-                    }
-                } catch (InterruptedException e) {
-                    Log.e(TAG, "Ping thread interrupted");
-                } catch (Exception e) {
-                    Log.e(TAG, "Ping failed: " + e.getMessage());
-                }
+    /**
+     * 输入服务器地址后调用：提前解析DNS；开启预连接时再发一个 HEAD 请求，
+     * 把建立好的 TCP/TLS 连接留在连接池里并缓存TLS会话，随后的 WebSocket 升级可以直接复用。
+     */
+    public void prewarm(String url) {
+        HttpUrl httpUrl = toHttpUrl(url);
+        if (httpUrl == null) {
+            return;
+        }
+        OkHttpClient client = getClient();
+        dns.prefetch(httpUrl.host(), client.dispatcher().executorService());
+        if (!preconnectEnabled || webSocket != null) {
+            return;
+        }
+        Request request = new Request.Builder().url(httpUrl).head().build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.d(TAG, "Preconnect failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                // 状态码无关紧要，连接和TLS会话已经建立
+                response.close();
             }
         });
-        pingThread.start();
     }
 
-    private void stopPingThread() {
-        keepPinging = false;
-        if (pingThread != null) {
-            pingThread.interrupt();
-            pingThread = null;
+    /** 开启后 {@link #prewarm} 会提前建立连接，默认关闭。 */
+    public void setPreconnectEnabled(boolean enabled) {
+        preconnectEnabled = enabled;
+    }
+
+    public ConnectPhaseTimer getConnectPhaseTimer() {
+        return connectTimer;
+    }
+
+    // ws/wss 换成对应的 http/https，HttpUrl 不接受 WebSocket 协议名
+    static HttpUrl toHttpUrl(String url) {
+        if (url.regionMatches(true, 0, "ws:", 0, 3)) {
+            url = "http:" + url.substring(3);
+        } else if (url.regionMatches(true, 0, "wss:", 0, 4)) {
+            url = "https:" + url.substring(4);
+        }
+        return HttpUrl.parse(url);
+    }
+
+    /** 当前连接断开时返回 true；旧连接的迟到回调返回 false 并被忽略。 */
+    private synchronized boolean onConnectionLost(WebSocket socket, boolean reconnect) {
+        if (socket != webSocket) {
+            return false;
+        }
+        resumed = false;
+        datagramProtocol = false;
+        stopPings();
+        setLinkState(reconnect ? LINK_CONNECTING : LINK_IDLE);
+        if (reconnect) {
+            scheduleReconnect();
+        }
+        return true;
+    }
+
+    // 调用方持有 this；链路反馈的采样与心跳同时开始和停止
+    private void schedulePings() {
+        stopPings();
+        pingTask = getScheduler().scheduleWithFixedDelay(this::sendPingIfConnected,
+                pingIntervalMs, pingIntervalMs, TimeUnit.MILLISECONDS);
+        rateTask = getScheduler().scheduleAtFixedRate(this::sampleLink,
+                RATE_TICK_MS, RATE_TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopPings() {
+        if (pingTask != null) {
+            pingTask.cancel(false);
+            pingTask = null;
+        }
+        if (rateTask != null) {
+            rateTask.cancel(false);
+            rateTask = null;
+        }
+    }
+
+    private void sampleLink() {
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            rateController.tick(System.nanoTime() / 1_000_000L, socket.queueSize());
+        }
+    }
+
+    private void sendPingIfConnected() {
+        WebSocket socket = webSocket;
+        if (socket == null) {
+            return;
+        }
+        try {
+            sendPing(socket); // 发送带序号的心跳消息
+        } catch (Exception e) {
+            // 调度任务抛出异常后不会再执行，这里必须吞掉
+            Log.e(TAG, "Ping failed: " + e.getMessage());
+        }
+    }
+
+    private void sendPing(WebSocket socket) {
+        int id = nextPingId++;
+        int slot = id & (PING_SLOTS - 1);
+        synchronized (pingIds) {
+            pingIds[slot] = id;
+            pingSentNanos[slot] = System.nanoTime();
+        }
+        if (binaryProtocol) {
+            int length = TouchProtocol.encode(pingFrame, 0, TouchProtocol.OP_PING, 0, id, 0f, 0f);
+            socket.send(ByteString.of(pingFrame, 0, length));
+        } else {
+            socket.send("ping " + id);
+        }
+    }
+
+    // 文本心跳回复形如 "pong 12"，回显服务器则原样返回 "ping 12"
+    private boolean handleTextHeartbeat(String text) {
+        if (!text.startsWith("ping ") && !text.startsWith("pong ")) {
+            return false;
+        }
+        try {
+            onPong(Integer.parseInt(text.substring(5).trim()));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // 单条记录的心跳/确认帧在读线程直接处理，往返时间不受分发队列影响
+    private boolean handleControlFrame(ByteString bytes) {
+        if (bytes.size() != TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE
+                || bytes.getByte(0) != (byte) (TouchProtocol.KIND_EVENTS << 4 | TouchProtocol.VERSION)) {
+            return false;
+        }
+        int opcode = bytes.getByte(TouchProtocol.HEADER_SIZE) & 0xFF;
+        if (opcode != TouchProtocol.OP_PING && opcode != TouchProtocol.OP_PONG && opcode != TouchProtocol.OP_ACK) {
+            return false;
+        }
+        int p = TouchProtocol.HEADER_SIZE + 2;
+        int value = (bytes.getByte(p) & 0xFF) << 24 | (bytes.getByte(p + 1) & 0xFF) << 16
+                | (bytes.getByte(p + 2) & 0xFF) << 8 | (bytes.getByte(p + 3) & 0xFF);
+        dispatchControl(opcode, value);
+        return true;
+    }
+
+    private void dispatchControl(int opcode, int value) {
+        if (opcode == TouchProtocol.OP_ACK) {
+            onAck(value);
+        } else {
+            onPong(value);
+        }
+    }
+
+    private void registerInboundRoutes() {
+        inbound.onFrameKind(TouchProtocol.KIND_STROKE, frame -> {
+            int points = strokeDecoder.decode(frame, 0, frame.length, strokeCounter);
+            notifyMessage("笔画数据: " + points + "个点, " + frame.length + "字节");
+        });
+        // 多条记录的帧里也可能夹带心跳和确认
+        InboundDispatcher.EventHandler control = event -> dispatchControl(event.opcode, (int) event.timestamp);
+        inbound.onOpcode(TouchProtocol.OP_PING, control);
+        inbound.onOpcode(TouchProtocol.OP_PONG, control);
+        inbound.onOpcode(TouchProtocol.OP_ACK, control);
+        inbound.setDefaultEventHandler(event -> notifyMessage(event.toString()));
+        inbound.setDefaultTextHandler(this::notifyMessage);
+    }
+
+    private void notifyMessage(String message) {
+        MessageListener listener = messageListener;
+        if (listener != null) {
+            listener.onMessageReceived(message);
+        }
+    }
+
+    /**
+     * 入站分发器，可按消息类型注册处理器（例如 JSON 的 "type" 字段），
+     * 未注册的类型仍交给 {@link MessageListener#onMessageReceived}。处理器在分发线程上调用。
+     */
+    public InboundDispatcher getInboundDispatcher() {
+        return inbound;
+    }
+
+    private void onPong(int id) {
+        int slot = id & (PING_SLOTS - 1);
+        synchronized (pingIds) {
+            if (pingIds[slot] == id) {
+                long rtt = System.nanoTime() - pingSentNanos[slot];
+                telemetry.recordNanos(LatencyTelemetry.STAGE_RTT, rtt);
+                rateController.onRtt(rtt);
+                pingIds[slot] = 0;
+            }
+        }
+    }
+
+    /** 链路反馈控制器，合并层按它的档位调整合并窗口、坐标精度和滑动表示。 */
+    public LinkRateController getRateController() {
+        return rateController;
+    }
+
+    /** 心跳间隔（毫秒），同时决定往返时间的采样频率。 */
+    public synchronized void setPingIntervalMs(long intervalMs) {
+        pingIntervalMs = Math.max(100, intervalMs);
+        if (pingTask != null) {
+            schedulePings();
         }
     }
 
+    public LatencyTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    // 调用方持有 this；已有待执行的重连时不重复安排
     private void scheduleReconnect() {
-        if (reconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
+        if (reconnectTask != null) {
+            return;
+        }
+        long delay = backoff.nextDelayMs();
+        if (delay < 0) {
             Log.w(TAG, "Max reconnect attempts reached");
+            // 不再重连，缓存的事件也无法送达
+            sessionProtocol = false;
+            retransmit.clear();
+            setLinkState(LINK_IDLE);
+            offlineSpool.clear();
             return;
         }
+        Log.d(TAG, "Reconnecting in " + delay + "ms (attempt " + backoff.getAttempts() + ")");
+        reconnectTask = getScheduler().schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
 
-        isReconnecting = true;
-        reconnectAttempts++;
+    private synchronized void reconnect() {
+        reconnectTask = null;
+        if (webSocket == null) {
+            return; // 期间用户已主动断开
+        }
+        openSocket(); // 保留会话，连接后续传
+    }
 
-        // 延迟后重新连接
-        new Thread(() -> {
-            try {
-                Log.d(TAG, "Reconnecting in " + RECONNECT_DELAY_MS + "ms (attempt " + reconnectAttempts + ")");
-                Thread.sleep(RECONNECT_DELAY_MS);
-                connect();
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Reconnect interrupted");
-            }
-        }).start();
+    private void cancelReconnect() {
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
     }
 
+    @Override
     public void sendMessage(String message) {
         if (webSocket != null) {
             try {
                 webSocket.send(message);
-                Log.d(TAG, "Sent message: " + message);
+                if (LOG_TRAFFIC) {
+                    Log.v(TAG, "Sent message: " + message);
+                }
             } catch (Exception e) {
                 Log.e(TAG, "Send message failed: " + e.getMessage());
                 if (messageListener != null) {
@@ -232,14 +651,463 @@ public class WebSocketManager {
                 }
             }
         } else {
-            Log.e(TAG, "WebSocket is not connected");
-            if (messageListener != null) {
-                messageListener.onConnectionError("Not connected to server");
+            reportNotConnected();
+        }
+    }
+
+    /**
+     * 发送一条触摸事件，可在UI线程调用：只入队，不做网络操作。
+     * 协商到二进制子协议时按 {@link TouchProtocol} 批量编码，否则使用旧文本格式。
+     */
+    @Override
+    public void sendEvent(int opcode, long eventTime, float x, float y) {
+        sendEvent(opcode, 0, eventTime, x, y);
+    }
+
+    @Override
+    public void sendEvent(int opcode, int flags, long eventTime, float x, float y) {
+        // 可续传的会话在重连期间照常入队，事件留在重发缓冲区里等待续传
+        if (linkState != LINK_OPEN && !sessionProtocol) {
+            spoolEvent(opcode, flags, eventTime, x, y);
+            return;
+        }
+        traceEvent(opcode, flags, eventTime, x, y);
+        if (opcode == TouchProtocol.OP_SCROLL && (flags & TouchProtocol.FLAG_PROVISIONAL) == 0) {
+            int totalX = motionTotalX.addAndGet(TouchProtocol.quantize(x));
+            int totalY = motionTotalY.addAndGet(TouchProtocol.quantize(y));
+            if (rateController.isAbsoluteMotion()) {
+                // 队列里较旧的位置记录被丢弃时，下一条会补上
+                opcode = TouchProtocol.OP_POSITION;
+                x = TouchProtocol.dequantize((short) totalX);
+                y = TouchProtocol.dequantize((short) totalY);
             }
         }
+        outboundQueue.offer(opcode, flags, eventTime, x, y);
+        LockSupport.unpark(senderThread);
+        if ((flags & TouchProtocol.FLAG_PROVISIONAL) == 0) {
+            telemetry.recordSinceEvent(LatencyTelemetry.STAGE_ENQUEUE, eventTime, System.nanoTime());
+        }
     }
 
-    public void closeConnection() {
+    private void spoolEvent(int opcode, int flags, long eventTime, float x, float y) {
+        if (linkState != LINK_CONNECTING) {
+            reportNotConnected();
+            return;
+        }
+        traceEvent(opcode, flags, eventTime, x, y);
+        offlineSpool.offer(opcode, flags, eventTime, x, y, nowMs());
+        if (linkState == LINK_OPEN) {
+            // 暂存时连接恰好打开，发送线程可能已经写完暂存的事件：
+            // 本线程是出站队列的生产者，把剩下的移入出站队列，排在之后的事件前面
+            offlineSpool.drain(spoolRequeuer, Integer.MAX_VALUE, nowMs());
+            LockSupport.unpark(senderThread);
+        }
+    }
+
+    private void requeueSpooled(TouchEvent event) {
+        addSpooledMotion(event);
+        outboundQueue.offer(event.opcode, event.flags, event.timestamp, event.x, event.y);
+    }
+
+    private void sendSpooled(TouchEvent event) {
+        addSpooledMotion(event);
+        spoolTarget.accept(event);
+    }
+
+    // 连接后可能协商到续传会话，累计量要包含发出的暂存滑动；过期或被淘汰的不计入，
+    // 否则改发 OP_POSITION 时接收端会把它们当作一次跳变补上
+    private void addSpooledMotion(TouchEvent event) {
+        if (event.opcode == TouchProtocol.OP_SCROLL && (event.flags & TouchProtocol.FLAG_PROVISIONAL) == 0) {
+            motionTotalX.addAndGet(TouchProtocol.quantize(event.x));
+            motionTotalY.addAndGet(TouchProtocol.quantize(event.y));
+        }
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    // 调用方持有 this
+    private void setLinkState(int state) {
+        if (linkState != state) {
+            linkState = state;
+            linkStateChanges++;
+        }
+    }
+
+    private void reportNotConnected() {
+        reportError("Not connected to server");
+    }
+
+    // 每次连接状态变化后最多报告一次，其余只记日志
+    private void reportError(String errorMsg) {
+        int change = linkStateChanges;
+        if (reportedStateChange == change) {
+            return;
+        }
+        reportedStateChange = change;
+        Log.e(TAG, errorMsg);
+        MessageListener listener = messageListener;
+        if (listener != null) {
+            listener.onConnectionError(errorMsg);
+        }
+    }
+
+    /**
+     * 开始把之后的 sendEvent 录制到 out，格式见 {@link TouchTraceWriter}。
+     * 写入发生在调用 sendEvent 的线程上，out 应为内存缓冲区，停止后再写文件。
+     */
+    public void startTrace(OutputStream out) {
+        traceWriter = new TouchTraceWriter(out);
+    }
+
+    /** 停止录制，返回录制的事件数。 */
+    public long stopTrace() {
+        TouchTraceWriter writer = traceWriter;
+        traceWriter = null;
+        return writer != null ? writer.getRecordCount() : 0;
+    }
+
+    /** 录制一条事件，供绕过 sendEvent 发送的通道（例如 {@link DatagramTransport}）使用。 */
+    void traceEvent(int opcode, int flags, long eventTime, float x, float y) {
+        if (traceWriter != null) {
+            recordTrace(opcode, flags, eventTime, x, y);
+        }
+    }
+
+    private void recordTrace(int opcode, int flags, long eventTime, float x, float y) {
+        try {
+            traceWriter.record(opcode, flags, eventTime, x, y);
+        } catch (IOException e) {
+            Log.e(TAG, "Trace recording stopped: " + e.getMessage());
+            traceWriter = null;
+        }
+    }
+
+    private void startSenderThread() {
+        if (senderThread != null) {
+            return;
+        }
+        sending = true;
+        senderThread = new Thread(this::runSender, "touchpad-sender");
+        senderThread.start();
+    }
+
+    private void stopSenderThread() {
+        sending = false;
+        Thread thread = senderThread;
+        senderThread = null;
+        LockSupport.unpark(thread);
+    }
+
+    private void runSender() {
+        while (sending) {
+            if (resumeRequested) {
+                resumeRequested = false;
+                if (!resumed) {
+                    replayGap();
+                }
+                continue;
+            }
+            if (linkState == LINK_OPEN && !offlineSpool.isEmpty()) {
+                flushSpool(webSocket);
+                continue;
+            }
+            if (outboundQueue.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            WebSocket socket = webSocket;
+            if (socket != null && socket.queueSize() > SEND_QUEUE_LIMIT_BYTES) {
+                LockSupport.parkNanos(this, BACKPRESSURE_WAIT_NANOS);
+                continue;
+            }
+            if (sessionProtocol) {
+                sendSequencedBatch(socket);
+                continue;
+            }
+            if (socket == null) {
+                // 连接已断开，丢弃积压事件
+                outboundQueue.drain(discarder, Integer.MAX_VALUE);
+                continue;
+            }
+
+            try {
+                batchCount = 0;
+                if (binaryProtocol) {
+                    batchLength = TouchProtocol.writeHeader(batchFrame, 0);
+                    outboundQueue.drain(batchWriter, MAX_BATCH_EVENTS);
+                    sendFrame(socket, batchFrame, batchLength);
+                } else {
+                    outboundQueue.drain(textWriter, MAX_BATCH_EVENTS);
+                }
+                sentBatchCount++;
+                recordWriteLatency();
+            } catch (Exception e) {
+                Log.e(TAG, "Send event failed: " + e.getMessage());
+                if (messageListener != null) {
+                    messageListener.onConnectionError("Send failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** 带序号发送：先存入重发缓冲区；连接中断或握手未完成时只缓存，续传时重发。 */
+    private void sendSequencedBatch(WebSocket socket) {
+        batchCount = 0;
+        batchLength = TouchProtocol.writeSequencedHeader(batchFrame, 0, retransmit.getNextSeq());
+        outboundQueue.drain(sequencedWriter, MAX_BATCH_EVENTS);
+        if (!resumed || socket == null) {
+            return;
+        }
+        try {
+            sendSequencedFrame(socket);
+            sentBatchCount++;
+            recordWriteLatency();
+        } catch (Exception e) {
+            Log.e(TAG, "Send event failed: " + e.getMessage());
+        }
+    }
+
+    // 本批的序号连续到重发缓冲区的末尾
+    private void sendSequencedFrame(WebSocket socket) {
+        // 交给连接后即可能被应用，不能再与之后的记录合并
+        retransmit.markSent(retransmit.getNextSeq() - 1);
+        sendFrame(socket, batchFrame, batchLength);
+    }
+
+    /**
+     * 连接打开后把暂存的事件按整批写出，先于出站队列，保持与之后事件的顺序。
+     * 续传会话与 {@link #sendSequencedBatch} 一样先存入重发缓冲区，握手完成前只缓存。
+     */
+    private void flushSpool(WebSocket socket) {
+        long now = nowMs();
+        int events = 0;
+        int frames = 0;
+        try {
+            while (true) {
+                batchCount = 0;
+                int count;
+                if (sessionProtocol) {
+                    batchLength = TouchProtocol.writeSequencedHeader(batchFrame, 0, retransmit.getNextSeq());
+                    spoolTarget = sequencedWriter;
+                    count = offlineSpool.drain(spoolSender, MAX_BATCH_EVENTS, now);
+                    if (count > 0 && resumed && socket != null) {
+                        sendSequencedFrame(socket);
+                        frames++;
+                    }
+                } else if (binaryProtocol) {
+                    batchLength = TouchProtocol.writeHeader(batchFrame, 0);
+                    spoolTarget = batchWriter;
+                    count = offlineSpool.drain(spoolSender, MAX_BATCH_EVENTS, now);
+                    if (count > 0 && socket != null) {
+                        sendFrame(socket, batchFrame, batchLength);
+                        frames++;
+                    }
+                } else {
+                    spoolTarget = textWriter;
+                    count = offlineSpool.drain(spoolSender, MAX_BATCH_EVENTS, now);
+                    frames += count;
+                }
+                if (count == 0) {
+                    break;
+                }
+                // 暂存期间的等待不计入延迟统计
+                events += count;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Send spooled events failed: " + e.getMessage());
+        }
+        if (events > 0) {
+            sentBatchCount++;
+            Log.d(TAG, "Flushed " + events + " spooled events in " + frames + " frames");
+        }
+    }
+
+    private void sendFrame(WebSocket socket, byte[] frame, int length) {
+        // 写队列已满或连接正在关闭
+        if (!socket.send(ByteString.of(frame, 0, length))) {
+            rateController.onSendFailure();
+        }
+    }
+
+    private void appendSequenced(TouchEvent event) {
+        // 只有发送线程追加，序号连续，与帧头的起始序号对应
+        retransmit.append(event.opcode, event.flags, event.timestamp, event.x, event.y);
+        appendToBatch(event);
+    }
+
+    private void sendResume(WebSocket socket) {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        int length = TouchProtocol.encode(frame, 0, TouchProtocol.OP_RESUME, 0, sessionId, 0f, 0f);
+        socket.send(ByteString.of(frame, 0, length));
+    }
+
+    // 读线程：第一个确认即握手回复，由发送线程重放缺口
+    private void onAck(int seq) {
+        retransmit.ack(seq);
+        if (sessionProtocol && !resumed) {
+            resumeRequested = true;
+            LockSupport.unpark(senderThread);
+        }
+    }
+
+    private void replayGap() {
+        replaySocket = webSocket;
+        batchLength = 0;
+        int records = retransmit.replay(replayWriter);
+        flushReplayFrame();
+        replaySocket = null;
+        resumed = true;
+        Log.d(TAG, "Session resumed, replayed " + records + " events after seq " + retransmit.getLastAcked());
+    }
+
+    private void appendReplayed(int seq, int opcode, int flags, long timestamp, float x, float y) {
+        // 合并后序号可能跳跃，同一帧内的序号必须连续
+        if (batchLength > 0 && (seq != replayNextSeq
+                || batchLength + TouchProtocol.RECORD_SIZE > batchFrame.length)) {
+            flushReplayFrame();
+        }
+        if (batchLength == 0) {
+            batchLength = TouchProtocol.writeSequencedHeader(batchFrame, 0, seq);
+        }
+        batchLength = TouchProtocol.writeRecord(batchFrame, batchLength, opcode, flags, timestamp, x, y);
+        replayNextSeq = seq + 1;
+    }
+
+    private void flushReplayFrame() {
+        if (batchLength > 0 && replaySocket != null) {
+            retransmit.markSent(replayNextSeq - 1);
+            replaySocket.send(ByteString.of(batchFrame, 0, batchLength));
+        }
+        batchLength = 0;
+    }
+
+    private void appendToBatch(TouchEvent event) {
+        batchLength = TouchProtocol.writeRecord(batchFrame, batchLength,
+                event.opcode, event.flags, event.timestamp, event.x, event.y);
+        trackForLatency(event);
+    }
+
+    private void trackForLatency(TouchEvent event) {
+        // 预测记录的时间戳在未来，不计入统计
+        if ((event.flags & TouchProtocol.FLAG_PROVISIONAL) != 0) {
+            return;
+        }
+        batchEventTimes[batchCount] = event.timestamp;
+        batchEnqueuedNanos[batchCount] = event.enqueuedNanos;
+        batchCount++;
+    }
+
+    private void recordWriteLatency() {
+        long now = System.nanoTime();
+        for (int i = 0; i < batchCount; i++) {
+            telemetry.recordNanos(LatencyTelemetry.STAGE_QUEUE_WAIT, now - batchEnqueuedNanos[i]);
+            telemetry.recordSinceEvent(LatencyTelemetry.STAGE_TOTAL, batchEventTimes[i], now);
+        }
+    }
+
+    private void sendAsText(TouchEvent event) {
+        // 旧文本格式无法表达预测位移，直接跳过
+        if ((event.flags & TouchProtocol.FLAG_PROVISIONAL) != 0) {
+            return;
+        }
+        sendMessage(TouchProtocol.toText(event.opcode, event.x, event.y));
+        trackForLatency(event);
+    }
+
+    public int getQueueDepth() {
+        return outboundQueue.size();
+    }
+
+    public int getQueueHighWaterMark() {
+        return outboundQueue.getHighWaterMark();
+    }
+
+    public long getDroppedMotionCount() {
+        return outboundQueue.getDroppedMotionCount();
+    }
+
+    public long getSentBatchCount() {
+        return sentBatchCount;
+    }
+
+    /** 重发缓冲区中尚未被确认的事件数。 */
+    public int getUnackedCount() {
+        return retransmit.size();
+    }
+
+    public boolean isSessionResumable() {
+        return sessionProtocol;
+    }
+
+    /** 连接建立或重连期间暂存、尚未发出的事件。 */
+    public OfflineSpool getOfflineSpool() {
+        return offlineSpool;
+    }
+
+    /**
+     * 发送一个 {@link com.chire.touchpadapp.core.StrokeEncoder} 笔画分块。
+     * 只有协商到二进制子协议时才能发送，否则返回 false。
+     */
+    public boolean sendStrokeChunk(byte[] data, int offset, int length) {
+        WebSocket socket = webSocket;
+        if (socket == null || !binaryProtocol) {
+            return false;
+        }
+        return socket.send(ByteString.of(data, offset, length));
+    }
+
+    @Override
+    public boolean sendPointerFrame(byte[] frame, int offset, int length) {
+        // 与笔画分块一样整帧直接交给 OkHttp 的写队列，不经过事件队列
+        return sendStrokeChunk(frame, offset, length);
+    }
+
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    public void setDatagramOffered(boolean offered) {
+        this.datagramOffered = offered;
+    }
+
+    /** 当前连接是否协商到数据报模式，见 {@link TouchProtocol#SUBPROTOCOL_DATAGRAM}。 */
+    public boolean isDatagramProtocol() {
+        return datagramProtocol;
+    }
+
+    /** 当前会话号，数据报以此关联到WebSocket会话。 */
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public synchronized void closeConnection() {
+        cancelReconnect();
+        closeSocket();
+        setLinkState(LINK_IDLE);
+        offlineSpool.clear();
+        // 主动断开即结束会话，不再续传
+        sessionProtocol = false;
+        resumed = false;
+        retransmit.clear();
+    }
+
+    private void startSession() {
+        int id;
+        do {
+            id = sessionRandom.nextInt();
+        } while (id == 0);
+        sessionId = id;
+        retransmit.clear();
+        motionTotalX.set(0);
+        motionTotalY.set(0);
+    }
+
+    // 关闭当前连接但保留会话状态，自动重连时使用
+    private void closeSocket() {
         if (webSocket != null) {
             try {
                 webSocket.close(1000, "Normal closure");
@@ -248,9 +1116,31 @@ public class WebSocketManager {
             }
             webSocket = null;
         }
-        stopPingThread();
+        binaryProtocol = false;
+        datagramProtocol = false;
+        stopPings();
+    }
+
+    /** 关闭连接并结束发送线程，界面销毁时调用。 */
+    @Override
+    public void shutdown() {
+        closeConnection();
+        stopSenderThread();
+        inbound.stop();
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+            if (client != null) {
+                client.dispatcher().executorService().shutdown();
+                client.connectionPool().evictAll();
+                client = null;
+            }
+        }
     }
 
+    @Override
     public boolean isConnected() {
         return webSocket != null;
     }
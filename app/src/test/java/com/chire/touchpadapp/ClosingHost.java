@@ -0,0 +1,23 @@
+package com.chire.touchpadapp;
+
+import androidx.annotation.NonNull;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 测试用接收端替身的基类：收到关闭帧时回应，否则 MockWebServer 关闭时一直等待连接结束。
+ * 需要处理消息的替身继承它，只需要完成升级的直接使用。
+ */
+class ClosingHost extends WebSocketListener {
+
+    /** 已启动的 server 的 WebSocket 地址。 */
+    static String urlOf(MockWebServer server) {
+        return "ws://" + server.getHostName() + ":" + server.getPort() + "/";
+    }
+
+    @Override
+    public void onClosing(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+        webSocket.close(code, null);
+    }
+}
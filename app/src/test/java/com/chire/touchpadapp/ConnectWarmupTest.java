@@ -0,0 +1,92 @@
+package com.chire.touchpadapp;
+
+import com.chire.touchpadapp.core.LatencyTelemetry;
+import okhttp3.Dns;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConnectWarmupTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private WebSocketManager manager;
+
+    @After
+    public void tearDown() throws Exception {
+        if (manager != null) {
+            manager.shutdown();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void prefetchingDns_servesCachedResultUntilExpiredOrInvalidated() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        Dns delegate = hostname -> {
+            lookups.incrementAndGet();
+            return List.of(InetAddress.getLoopbackAddress());
+        };
+        LatencyTelemetry telemetry = new LatencyTelemetry();
+        PrefetchingDns dns = new PrefetchingDns(delegate, telemetry);
+
+        dns.prefetch("touchpad.local", Runnable::run);
+        assertEquals(1, lookups.get());
+        assertEquals(List.of(InetAddress.getLoopbackAddress()), dns.lookup("touchpad.local"));
+        dns.prefetch("touchpad.local", Runnable::run);
+        assertEquals(1, lookups.get());
+
+        dns.invalidate("touchpad.local");
+        dns.lookup("touchpad.local");
+        assertEquals(2, lookups.get());
+
+        dns.setTtlMs(0);
+        dns.invalidate("touchpad.local");
+        dns.lookup("touchpad.local");
+        dns.lookup("touchpad.local");
+        assertEquals(4, lookups.get());
+        assertEquals(5, telemetry.getHistogram(LatencyTelemetry.STAGE_DNS).getCount());
+    }
+
+    @Test
+    public void preconnect_leavesConnectionThatTheUpgradeReuses() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ClosingHost()));
+        server.start();
+        String url = ClosingHost.urlOf(server);
+
+        manager = new WebSocketManager();
+        ConnectionEvents events = new ConnectionEvents();
+        manager.setMessageListener(events);
+        manager.setPreconnectEnabled(true);
+        manager.prewarm(url);
+        RecordedRequest warmup = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(warmup);
+        assertEquals("HEAD", warmup.getMethod());
+        // 等待预连接的响应处理完，连接回到连接池
+        Thread.sleep(200);
+
+        manager.setServerUrl(url);
+        manager.connect();
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+
+        RecordedRequest upgrade = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("websocket", upgrade.getHeader("Upgrade"));
+        // 同一个连接上的第二个请求：升级没有重新建立TCP连接
+        assertEquals(1, upgrade.getSequenceNumber());
+
+        LatencyTelemetry telemetry = manager.getTelemetry();
+        assertEquals(1, telemetry.getHistogram(LatencyTelemetry.STAGE_TCP).getCount());
+        assertEquals(1, telemetry.getHistogram(LatencyTelemetry.STAGE_UPGRADE).getCount());
+        assertEquals(1, telemetry.getHistogram(LatencyTelemetry.STAGE_CONNECT).getCount());
+        assertTrue(telemetry.getHistogram(LatencyTelemetry.STAGE_DNS).getCount() >= 1);
+    }
+}
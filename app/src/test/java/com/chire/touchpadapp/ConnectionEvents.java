@@ -0,0 +1,48 @@
+package com.chire.touchpadapp;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用连接监听器：记录连接、断开和错误回调，测试线程按次数等待。
+ */
+class ConnectionEvents implements TouchTransport.MessageListener {
+
+    private final Semaphore connected = new Semaphore(0);
+    private final Semaphore disconnected = new Semaphore(0);
+    private final Semaphore errorSignals = new Semaphore(0);
+    private final AtomicInteger errors = new AtomicInteger();
+
+    @Override
+    public void onMessageReceived(String message) {}
+
+    @Override
+    public void onConnectionStatusChanged(boolean isConnected) {
+        (isConnected ? connected : disconnected).release();
+    }
+
+    @Override
+    public void onConnectionError(String errorMessage) {
+        errors.incrementAndGet();
+        errorSignals.release();
+    }
+
+    /** 等待下一次连接成功的回调。 */
+    boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+        return connected.tryAcquire(timeout, unit);
+    }
+
+    boolean awaitDisconnected(long timeout, TimeUnit unit) throws InterruptedException {
+        return disconnected.tryAcquire(timeout, unit);
+    }
+
+    /** 等待累计 count 次尚未等待过的错误回调。 */
+    boolean awaitErrors(int count, long timeout, TimeUnit unit) throws InterruptedException {
+        return errorSignals.tryAcquire(count, timeout, unit);
+    }
+
+    int errorCount() {
+        return errors.get();
+    }
+}
@@ -0,0 +1,95 @@
+package com.chire.touchpadapp;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConnectionSchedulerTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private WebSocketManager manager;
+
+    @After
+    public void tearDown() throws Exception {
+        if (manager != null) {
+            manager.shutdown();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void failedConnects_retryWithBackoffUntilAttemptsExhausted() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        server.start();
+
+        manager = new WebSocketManager();
+        ConnectionEvents events = new ConnectionEvents();
+        manager.setMessageListener(events);
+        manager.setReconnectBackoff(10, 40, 3);
+        manager.setServerUrl(ClosingHost.urlOf(server));
+        manager.connect();
+
+        // 首次连接加3次重连；错误每次状态变化只报告一次：开始重连时和放弃重连时
+        assertTrue(events.awaitErrors(2, 5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(4, server.getRequestCount());
+        assertEquals(2, events.errorCount());
+    }
+
+    @Test
+    public void concurrentConnects_leaveOneSchedulerAndSender() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            server.enqueue(new MockResponse().withWebSocketUpgrade(new ClosingHost()));
+        }
+        server.start();
+
+        manager = new WebSocketManager();
+        manager.setServerUrl(ClosingHost.urlOf(server));
+        ConnectionEvents events = new ConnectionEvents();
+        manager.setMessageListener(events);
+        manager.setPingIntervalMs(100);
+
+        Thread[] threads = new Thread[8];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                manager.connect();
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        // 让心跳跑几轮
+        Thread.sleep(300);
+        assertTrue(manager.isConnected());
+        assertEquals(1, countThreads("touchpad-scheduler"));
+        assertEquals(1, countThreads("touchpad-sender"));
+    }
+
+    private static int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && name.equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,194 @@
+package com.chire.touchpadapp;
+
+import androidx.annotation.NonNull;
+import com.chire.touchpadapp.core.MotionDatagram;
+import com.chire.touchpadapp.core.MotionDatagramReceiver;
+import com.chire.touchpadapp.core.TouchEvent;
+import com.chire.touchpadapp.core.TouchFrameDecoder;
+import com.chire.touchpadapp.core.TouchProtocol;
+import okhttp3.WebSocket;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 本机回环上的接收端替身：WebSocket 收可靠事件，UDP 端口收滑动数据报，
+ * 数据报经过一段会丢包和乱序的 "链路" 后再交给 {@link MotionDatagramReceiver}。
+ */
+public class DatagramTransportTest {
+
+    /** WebSocket 一侧：记录收到的事件，回应续传握手。 */
+    private static final class ReliableHost extends ClosingHost {
+        private final TouchFrameDecoder decoder = new TouchFrameDecoder();
+        private final byte[] reply = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        final List<Integer> opcodes = new ArrayList<>();
+        final CountDownLatch tapReceived = new CountDownLatch(1);
+
+        @Override
+        public synchronized void onMessage(@NonNull WebSocket webSocket, @NonNull ByteString bytes) {
+            decoder.decode(bytes.toByteArray(), event -> onEvent(webSocket, event));
+        }
+
+        private void onEvent(WebSocket webSocket, TouchEvent event) {
+            if (event.opcode == TouchProtocol.OP_RESUME) {
+                int length = TouchProtocol.encode(reply, 0, TouchProtocol.OP_ACK, 0, 0, 0f, 0f);
+                webSocket.send(ByteString.of(reply, 0, length));
+                return;
+            }
+            opcodes.add(event.opcode);
+            if (event.opcode == TouchProtocol.OP_TAP) {
+                tapReceived.countDown();
+            }
+        }
+
+        synchronized boolean sawMotion() {
+            return opcodes.contains(TouchProtocol.OP_SCROLL);
+        }
+    }
+
+    /** UDP 一侧：约三成数据报丢弃，每隔几个扣下一个、等下一个到达后再交付。 */
+    private static final class LossyDatagramHost implements Runnable {
+        final DatagramChannel channel;
+        final MotionDatagramReceiver receiver = new MotionDatagramReceiver();
+        private final Random random = new Random(7);
+        private MotionDatagram held;
+        private int received;
+        float x;
+        float y;
+
+        LossyDatagramHost(InetAddress address) throws Exception {
+            channel = DatagramChannel.open();
+            channel.bind(new InetSocketAddress(address, 0));
+        }
+
+        int port() throws Exception {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            try {
+                while (true) {
+                    buffer.clear();
+                    channel.receive(buffer);
+                    MotionDatagram datagram = new MotionDatagram();
+                    if (!datagram.decode(buffer.array(), 0, buffer.position())) {
+                        continue;
+                    }
+                    received++;
+                    if (random.nextInt(10) < 3) {
+                        continue;
+                    }
+                    if (held == null && received % 5 == 0) {
+                        held = datagram;
+                        continue;
+                    }
+                    apply(datagram);
+                    if (held != null) {
+                        apply(held);
+                        held = null;
+                    }
+                }
+            } catch (Exception e) {
+                // 通道关闭，测试结束
+            }
+        }
+
+        private synchronized void apply(MotionDatagram datagram) {
+            if (receiver.accept(datagram)) {
+                x += receiver.getDeltaX();
+                y += receiver.getDeltaY();
+            }
+        }
+
+        synchronized boolean reached(float targetX, float targetY) {
+            return x == targetX && y == targetY;
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final ReliableHost reliableHost = new ReliableHost();
+    private LossyDatagramHost datagramHost;
+    private DatagramTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        datagramHost = new LossyDatagramHost(InetAddress.getByName(server.getHostName()));
+        new Thread(datagramHost, "udp-host").start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (transport != null) {
+            transport.shutdown();
+        }
+        datagramHost.channel.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void motionOverLossyDatagrams_convergesWhileTapsStayReliable() throws Exception {
+        connect(TouchProtocol.SUBPROTOCOL_DATAGRAM);
+        assertTrue(transport.isDatagramActive());
+
+        for (int i = 0; i < 200; i++) {
+            transport.sendEvent(TouchProtocol.OP_SCROLL, i, 1.5f, -0.5f);
+            Thread.sleep(1);
+        }
+        transport.sendEvent(TouchProtocol.OP_TAP, 200, 10f, 20f);
+
+        assertTrue(reliableHost.tapReceived.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!datagramHost.reached(300f, -100f) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("cursor at " + datagramHost.x + "," + datagramHost.y, datagramHost.reached(300f, -100f));
+        assertFalse(reliableHost.sawMotion());
+        assertTrue(datagramHost.receiver.getStaleCount() > 0);
+        assertTrue(transport.getSentDatagramCount() > 0);
+    }
+
+    @Test
+    public void hostWithoutDatagramSupport_keepsMotionOnWebSocket() throws Exception {
+        connect(TouchProtocol.SUBPROTOCOL_SESSION);
+        assertFalse(transport.isDatagramActive());
+
+        transport.sendEvent(TouchProtocol.OP_SCROLL, 1, 1f, 1f);
+        transport.sendEvent(TouchProtocol.OP_TAP, 2, 0f, 0f);
+
+        assertTrue(reliableHost.tapReceived.await(5, TimeUnit.SECONDS));
+        assertTrue(reliableHost.sawMotion());
+        assertEquals(0, transport.getSentDatagramCount());
+    }
+
+    private void connect(String protocol) throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Sec-WebSocket-Protocol", protocol)
+                .withWebSocketUpgrade(reliableHost));
+
+        transport = new DatagramTransport(new WebSocketManager());
+        transport.setDatagramPort(datagramHost.port());
+        ConnectionEvents events = new ConnectionEvents();
+        transport.setMessageListener(events);
+        transport.setServerUrl(ClosingHost.urlOf(server));
+        transport.connect();
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,181 @@
+package com.chire.touchpadapp;
+
+import android.view.Choreographer;
+import com.chire.touchpadapp.core.LinkRateController;
+import com.chire.touchpadapp.core.TouchProtocol;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MotionCoalescerTest {
+
+    /** 只记录发出的事件。 */
+    private static final class RecordingTransport implements TouchTransport {
+        final List<float[]> events = new ArrayList<>();
+
+        @Override
+        public void sendEvent(int opcode, int flags, long eventTime, float x, float y) {
+            events.add(new float[] {opcode, flags, eventTime, x, y});
+        }
+
+        @Override
+        public void setMessageListener(MessageListener listener) {}
+
+        @Override
+        public void setServerUrl(String url) {}
+
+        @Override
+        public void connect() {}
+
+        @Override
+        public void closeConnection() {}
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void sendMessage(String message) {}
+
+        @Override
+        public boolean sendPointerFrame(byte[] frame, int offset, int length) {
+            return false;
+        }
+
+        @Override
+        public void shutdown() {}
+    }
+
+    /** 测试线程手动触发显示帧和定时刷新。 */
+    private static final class ManualScheduler implements MotionCoalescer.FlushScheduler {
+        Choreographer.FrameCallback frame;
+        Runnable delayed;
+        long delayMs;
+        int framePosts;
+
+        @Override
+        public void postFrame(Choreographer.FrameCallback callback) {
+            frame = callback;
+            framePosts++;
+        }
+
+        @Override
+        public void removeFrame(Choreographer.FrameCallback callback) {
+            if (frame == callback) {
+                frame = null;
+            }
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            delayed = runnable;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void removeDelayed(Runnable runnable) {
+            if (delayed == runnable) {
+                delayed = null;
+            }
+        }
+
+        void runFrame() {
+            Choreographer.FrameCallback callback = frame;
+            frame = null;
+            callback.doFrame(0);
+        }
+
+        void runDelayed() {
+            Runnable runnable = delayed;
+            delayed = null;
+            runnable.run();
+        }
+    }
+
+    private final RecordingTransport transport = new RecordingTransport();
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final MotionCoalescer coalescer = new MotionCoalescer(transport, scheduler);
+
+    @Test
+    public void scrollsWithinOneFrame_areSentOnceOnTheFrame() {
+        coalescer.addScroll(10, 1f, 2f);
+        coalescer.addScroll(20, 3f, -1f);
+        coalescer.addScroll(30, 0.5f, 0.5f);
+        assertTrue(transport.events.isEmpty());
+        assertEquals(1, scheduler.framePosts);
+
+        scheduler.runFrame();
+        assertEquals(1, transport.events.size());
+        assertEvent(transport.events.get(0), TouchProtocol.OP_SCROLL, 30, 4.5f, 1.5f);
+        assertEquals(1, coalescer.getFlushCount());
+        assertEquals(2, coalescer.getMergedCount());
+        assertEquals(0, coalescer.getPendingCount());
+
+        // 下一帧重新排队
+        coalescer.addScroll(40, 1f, 1f);
+        assertEquals(2, scheduler.framePosts);
+        scheduler.runFrame();
+        assertEquals(2, transport.events.size());
+        assertEvent(transport.events.get(1), TouchProtocol.OP_SCROLL, 40, 1f, 1f);
+    }
+
+    @Test
+    public void quantizedScroll_carriesRemainderToNextFlush() {
+        LinkRateController controller = new LinkRateController();
+        controller.setTimings(0, 10_000);
+        for (int i = 0; i < LinkRateController.MAX_LEVEL; i++) {
+            controller.tick(i, 100_000);
+        }
+        assertEquals(1f, controller.getQuantum(), 0f);
+        coalescer.setRateController(controller);
+
+        coalescer.addScroll(10, 0.6f, -0.4f);
+        assertNull(scheduler.frame);
+        assertEquals(controller.getCoalesceWindowMs(), scheduler.delayMs);
+        scheduler.runDelayed();
+        assertEvent(transport.events.get(0), TouchProtocol.OP_SCROLL, 10, 1f, 0f);
+
+        // 余数 (-0.4, -0.4) 留到下一次
+        coalescer.addScroll(20, 0.6f, -0.4f);
+        scheduler.runDelayed();
+        assertEvent(transport.events.get(1), TouchProtocol.OP_SCROLL, 20, 0f, -1f);
+
+        // 余数 (0.2, 0.2) 加上新增量仍不足一步，不发送
+        coalescer.addScroll(30, 0.1f, 0.1f);
+        scheduler.runDelayed();
+        assertEquals(2, transport.events.size());
+
+        // 补足后发出，累计发送量等于累计输入量取整
+        coalescer.addScroll(40, 0.3f, 0.3f);
+        scheduler.runDelayed();
+        assertEvent(transport.events.get(2), TouchProtocol.OP_SCROLL, 40, 1f, 1f);
+    }
+
+    @Test
+    public void sendImmediate_flushesPendingScrollBeforeTap() {
+        coalescer.addScroll(10, 2f, 3f);
+        coalescer.sendImmediate(TouchProtocol.OP_TAP, 20, 100f, 200f);
+
+        assertEquals(2, transport.events.size());
+        assertEvent(transport.events.get(0), TouchProtocol.OP_SCROLL, 10, 2f, 3f);
+        assertEvent(transport.events.get(1), TouchProtocol.OP_TAP, 20, 100f, 200f);
+        // 已排队的帧回调被撤销，滑动不会再发一次
+        assertNull(scheduler.frame);
+
+        coalescer.sendImmediate(TouchProtocol.OP_DOUBLE_TAP, 30, 100f, 200f);
+        assertEquals(3, transport.events.size());
+        assertEvent(transport.events.get(2), TouchProtocol.OP_DOUBLE_TAP, 30, 100f, 200f);
+    }
+
+    private static void assertEvent(float[] event, int opcode, long time, float x, float y) {
+        assertEquals(opcode, (int) event[0]);
+        assertEquals(0, (int) event[1]);
+        assertEquals(time, (long) event[2]);
+        assertEquals(x, event[3], 1e-4f);
+        assertEquals(y, event[4], 1e-4f);
+    }
+}
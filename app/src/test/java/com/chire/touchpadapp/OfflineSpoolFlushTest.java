@@ -0,0 +1,213 @@
+package com.chire.touchpadapp;
+
+import androidx.annotation.NonNull;
+import com.chire.touchpadapp.core.LinkRateController;
+import com.chire.touchpadapp.core.TouchFrameDecoder;
+import com.chire.touchpadapp.core.TouchProtocol;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * 连接建立和重连期间事件暂存：滑动合并为净位移，连接打开后整批发出；
+ * 未连接时错误每次状态变化只报告一次。
+ */
+public class OfflineSpoolFlushTest {
+
+    /**
+     * 接收端替身，记录收到的帧数和事件。支持续传握手（新会话总是确认0），
+     * 按协议维护滑动累计量：{@link TouchProtocol#OP_POSITION} 按16位回绕取与累计量的差值应用到光标。
+     */
+    private static final class Host extends ClosingHost {
+        private final TouchFrameDecoder decoder = new TouchFrameDecoder();
+        private final byte[] reply = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        final List<String> events = new ArrayList<>();
+        volatile WebSocket socket;
+        volatile int frames;
+        private int motionTotalX;
+        volatile float cursorX;
+
+        @Override
+        public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+            socket = webSocket;
+        }
+
+        @Override
+        public synchronized void onMessage(@NonNull WebSocket webSocket, @NonNull ByteString bytes) {
+            frames++;
+            decoder.decode(bytes.toByteArray(), event -> {
+                switch (event.opcode) {
+                    case TouchProtocol.OP_PING:
+                        return;
+                    case TouchProtocol.OP_RESUME:
+                        int length = TouchProtocol.encode(reply, 0, TouchProtocol.OP_ACK, 0, 0, 0f, 0f);
+                        webSocket.send(ByteString.of(reply, 0, length));
+                        return;
+                    case TouchProtocol.OP_SCROLL:
+                        motionTotalX += TouchProtocol.quantize(event.x);
+                        cursorX += event.x;
+                        break;
+                    case TouchProtocol.OP_POSITION:
+                        int delta = (short) (TouchProtocol.quantize(event.x) - motionTotalX);
+                        motionTotalX += delta;
+                        cursorX += TouchProtocol.dequantize(delta);
+                        break;
+                    default:
+                        break;
+                }
+                events.add(TouchProtocol.toText(event.opcode, event.x, event.y));
+            });
+        }
+
+        synchronized List<String> snapshot() {
+            return new ArrayList<>(events);
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final Host host = new Host();
+    private final ConnectionEvents events = new ConnectionEvents();
+    private WebSocketManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        manager = new WebSocketManager();
+        manager.setMessageListener(events);
+        manager.setPingIntervalMs(60_000);
+        manager.setServerUrl(ClosingHost.urlOf(server));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.shutdown();
+        server.shutdown();
+    }
+
+    private void enqueueUpgrade(long delayMs) {
+        enqueueUpgrade(TouchProtocol.SUBPROTOCOL_BINARY, delayMs);
+    }
+
+    private void enqueueUpgrade(String protocol, long delayMs) {
+        server.enqueue(new MockResponse()
+                .setHeader("Sec-WebSocket-Protocol", protocol)
+                .setHeadersDelay(delayMs, TimeUnit.MILLISECONDS)
+                .withWebSocketUpgrade(host));
+    }
+
+    private static void await(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void swipe(long time, int samples) {
+        for (int i = 0; i < samples; i++) {
+            manager.sendEvent(TouchProtocol.OP_SCROLL, time + i, 0.5f, -0.25f);
+            manager.sendEvent(TouchProtocol.OP_SCROLL, TouchProtocol.FLAG_PROVISIONAL, time + i + 16, 3f, 3f);
+        }
+    }
+
+    @Test
+    public void connecting_spoolsAndFlushesCollapsedInOneFrame() throws Exception {
+        enqueueUpgrade(300);
+        manager.connect();
+        swipe(0, 100);
+        manager.sendEvent(TouchProtocol.OP_TAP, 200, 10f, 20f);
+        swipe(300, 40);
+        assertEquals(3, manager.getOfflineSpool().size());
+
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        await(() -> host.snapshot().size() == 3, 5000);
+        assertEquals(List.of("单指滑动 50.0 -25.0", "单指单击 10.0 20.0", "单指滑动 20.0 -10.0"),
+                host.snapshot());
+        assertEquals(1, host.frames);
+        assertEquals(0, events.errorCount());
+
+        // 连接打开后照常直接发送
+        manager.sendEvent(TouchProtocol.OP_DOUBLE_TAP, 400, 1f, 1f);
+        await(() -> host.snapshot().size() == 4, 5000);
+    }
+
+    @Test
+    public void expiredSpooledMotion_isNotReplayedByAbsoluteMotion() throws Exception {
+        enqueueUpgrade(TouchProtocol.SUBPROTOCOL_SESSION, 300);
+        manager.getOfflineSpool().setMaxAgeMs(100);
+        manager.connect();
+        manager.sendEvent(TouchProtocol.OP_SCROLL, 0, 10f, 0f);
+        assertEquals(1, manager.getOfflineSpool().size());
+
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        assertTrue(manager.isSessionResumable());
+        assertEquals(1, manager.getOfflineSpool().getExpiredCount());
+
+        // 拥塞到改发累计位置的档位
+        LinkRateController rate = manager.getRateController();
+        rate.setTimings(0, 60_000);
+        for (int i = 0; i < 2; i++) {
+            rate.onSendFailure();
+            rate.tick(System.currentTimeMillis() + i, 0);
+        }
+        assertTrue(rate.isAbsoluteMotion());
+
+        manager.sendEvent(TouchProtocol.OP_SCROLL, 1000, 1f, 0f);
+        await(() -> host.snapshot().size() == 1, 5000);
+        assertEquals("单指位置 1.0 0.0", host.snapshot().get(0));
+        assertEquals(1f, host.cursorX, 0f);
+    }
+
+    @Test
+    public void reconnect_spoolsWithoutErrorFlood() throws Exception {
+        enqueueUpgrade(0);
+        enqueueUpgrade(300);
+        manager.setReconnectBackoff(50, 50, 5);
+        manager.connect();
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        manager.sendEvent(TouchProtocol.OP_TAP, 1, 1f, 2f);
+        await(() -> host.snapshot().size() == 1, 5000);
+
+        host.socket.close(1001, "roaming");
+        assertTrue(events.awaitDisconnected(5, TimeUnit.SECONDS));
+        swipe(1000, 50);
+        assertEquals(1, manager.getOfflineSpool().size());
+        manager.sendEvent(TouchProtocol.OP_TAP, 2000, 7f, 7f);
+
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        await(() -> host.snapshot().size() == 3, 5000);
+        assertEquals(List.of("单指单击 1.0 2.0", "单指滑动 25.0 -12.5", "单指单击 7.0 7.0"), host.snapshot());
+        assertEquals(0, events.errorCount());
+    }
+
+    @Test
+    public void idle_reportsNotConnectedOncePerStateChange() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            manager.sendEvent(TouchProtocol.OP_SCROLL, i, 1f, 1f);
+            manager.sendMessage("ping");
+        }
+        assertEquals(1, events.errorCount());
+        assertTrue(manager.getOfflineSpool().isEmpty());
+
+        enqueueUpgrade(0);
+        manager.connect();
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        manager.closeConnection();
+        for (int i = 0; i < 100; i++) {
+            manager.sendEvent(TouchProtocol.OP_TAP, i, 1f, 1f);
+        }
+        assertEquals(2, events.errorCount());
+    }
+}
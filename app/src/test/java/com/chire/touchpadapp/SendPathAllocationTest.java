@@ -0,0 +1,82 @@
+package com.chire.touchpadapp;
+
+import com.chire.touchpadapp.core.TouchProtocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 手势回调所在线程（UI线程）上的 sendEvent 在稳态下不分配对象：只写入原始类型的队列，
+ * 编码和网络写在发送线程上完成。按调用线程的累计分配字节数衡量。
+ */
+public class SendPathAllocationTest {
+
+    private static final int EVENTS = 20_000;
+    private static final long SLACK_BYTES = 1024;
+
+    private final MockWebServer server = new MockWebServer();
+    private final ConnectionEvents events = new ConnectionEvents();
+    private WebSocketManager manager;
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        server.enqueue(new MockResponse()
+                .setHeader("Sec-WebSocket-Protocol", TouchProtocol.SUBPROTOCOL_BINARY)
+                .withWebSocketUpgrade(new ClosingHost()));
+        server.start();
+        manager = new WebSocketManager();
+        manager.setMessageListener(events);
+        manager.setServerUrl(ClosingHost.urlOf(server));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.shutdown();
+        server.shutdown();
+    }
+
+    private void sendSwipe(long startTime) {
+        for (int i = 0; i < EVENTS; i++) {
+            long time = startTime + i;
+            if (i % 500 == 0) {
+                manager.sendEvent(TouchProtocol.OP_TAP, time, 100f, 200f);
+            } else {
+                manager.sendEvent(TouchProtocol.OP_SCROLL, time, 1.5f, -0.5f);
+            }
+            if ((i & 31) == 31) {
+                // 留给发送线程跟上，稳态下队列不会溢出
+                Thread.yield();
+            }
+        }
+    }
+
+    @Test
+    public void sendEvent_allocatesNothingOnCallingThread() throws Exception {
+        manager.connect();
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        assertTrue(manager.isBinaryProtocol());
+
+        sendSwipe(0);
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        sendSwipe(EVENTS);
+        long bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertTrue("sendEvent allocated " + bytes + " bytes for " + EVENTS + " events", bytes <= SLACK_BYTES);
+        assertTrue(manager.getSentBatchCount() > 0);
+    }
+}
@@ -0,0 +1,164 @@
+package com.chire.touchpadapp;
+
+import androidx.annotation.NonNull;
+import com.chire.touchpadapp.core.TouchEvent;
+import com.chire.touchpadapp.core.TouchFrameDecoder;
+import com.chire.touchpadapp.core.TouchProtocol;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * 断线续传：在途事件丢失、连接中断期间继续产生事件，重连后接收端应恰好收到缺口部分，
+ * 连续滑动合并为净位移。
+ */
+public class SessionResumeTest {
+
+    /**
+     * 支持续传的接收端替身。blackhole 为真时模拟在途帧丢失：当前连接上之后的帧既不处理也不确认，
+     * 新连接建立时恢复（同一TCP连接上不会出现先丢后到的情况）。
+     */
+    private static final class SessionHost extends ClosingHost {
+        private final TouchFrameDecoder decoder = new TouchFrameDecoder();
+        private final byte[] reply = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        private final Map<Integer, Integer> lastSeqBySession = new HashMap<>();
+        final List<String> applied = new ArrayList<>();
+        volatile boolean blackhole;
+        volatile WebSocket socket;
+        private int session;
+        private boolean sawEvents;
+
+        @Override
+        public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+            socket = webSocket;
+            blackhole = false;
+        }
+
+        @Override
+        public synchronized void onMessage(@NonNull WebSocket webSocket, @NonNull ByteString bytes) {
+            sawEvents = false;
+            decoder.decode(bytes.toByteArray(), event -> onEvent(webSocket, event));
+            if (sawEvents) {
+                send(webSocket, TouchProtocol.OP_ACK, lastSeqBySession.get(session));
+            }
+        }
+
+        private void onEvent(WebSocket webSocket, TouchEvent event) {
+            switch (event.opcode) {
+                case TouchProtocol.OP_PING:
+                    send(webSocket, TouchProtocol.OP_PONG, (int) event.timestamp);
+                    return;
+                case TouchProtocol.OP_RESUME:
+                    session = (int) event.timestamp;
+                    lastSeqBySession.putIfAbsent(session, 0);
+                    send(webSocket, TouchProtocol.OP_ACK, lastSeqBySession.get(session));
+                    return;
+                default:
+                    break;
+            }
+            if (blackhole) {
+                return;
+            }
+            int lastSeq = lastSeqBySession.get(session);
+            if (event.seq - lastSeq > 0) {
+                applied.add(TouchProtocol.toText(event.opcode, event.x, event.y));
+                lastSeqBySession.put(session, event.seq);
+                sawEvents = true;
+            }
+        }
+
+        private void send(WebSocket webSocket, int opcode, int value) {
+            int length = TouchProtocol.encode(reply, 0, opcode, 0, value & 0xFFFFFFFFL, 0f, 0f);
+            webSocket.send(ByteString.of(reply, 0, length));
+        }
+
+        synchronized List<String> snapshot() {
+            return new ArrayList<>(applied);
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final SessionHost host = new SessionHost();
+    private final ConnectionEvents events = new ConnectionEvents();
+    private WebSocketManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(new MockResponse()
+                    .setHeader("Sec-WebSocket-Protocol", TouchProtocol.SUBPROTOCOL_SESSION)
+                    .withWebSocketUpgrade(host));
+        }
+        server.start();
+
+        manager = new WebSocketManager();
+        manager.setMessageListener(events);
+        manager.setServerUrl(ClosingHost.urlOf(server));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.shutdown();
+        server.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void reconnect_replaysOnlyTheGapWithMotionCollapsed() throws Exception {
+        manager.connect();
+        assertTrue(events.awaitConnected(5, TimeUnit.SECONDS));
+        assertTrue(manager.isSessionResumable());
+
+        manager.sendEvent(TouchProtocol.OP_TAP, 1, 10f, 20f);
+        await(() -> host.snapshot().size() == 1 && manager.getUnackedCount() == 0, 5000);
+
+        // 在途丢失：接收端收不到这些事件
+        host.blackhole = true;
+        for (int i = 0; i < 5; i++) {
+            manager.sendEvent(TouchProtocol.OP_SCROLL, 10 + i, 1f, 1f);
+        }
+        manager.sendEvent(TouchProtocol.OP_DOUBLE_TAP, 20, 5f, 5f);
+        for (int i = 0; i < 3; i++) {
+            manager.sendEvent(TouchProtocol.OP_SCROLL, 30 + i, 2f, 0f);
+        }
+        await(() -> manager.getUnackedCount() == 9, 5000);
+
+        // 连接中断，期间继续产生事件
+        host.socket.close(1001, "roaming");
+        manager.sendEvent(TouchProtocol.OP_TAP, 40, 7f, 7f);
+        manager.sendEvent(TouchProtocol.OP_SCROLL, 50, 0.5f, 0.5f);
+        manager.sendEvent(TouchProtocol.OP_SCROLL, 51, 0.5f, 0.5f);
+
+        assertTrue(events.awaitConnected(10, TimeUnit.SECONDS));
+        await(() -> host.snapshot().size() >= 6 && manager.getUnackedCount() == 0, 5000);
+
+        assertEquals(List.of(
+                "单指单击 10.0 20.0",
+                "单指滑动 5.0 5.0",
+                "单指双击 5.0 5.0",
+                "单指滑动 6.0 0.0",
+                "单指单击 7.0 7.0",
+                "单指滑动 1.0 1.0"), host.snapshot());
+    }
+}
@@ -0,0 +1,49 @@
+package com.chire.touchpadapp;
+
+import com.chire.touchpadapp.core.StrokeStoreReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 界面重建时旧实例关闭后立即用同一文件打开新实例：旧实例尚未写完的记录不能被截掉，
+ * 之后写入的笔画也都能恢复。
+ */
+public class StrokeStoreFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final float[] POINTS = new float[2 * 2000];
+
+    private static void appendStrokes(StrokeStoreFile store, int firstId, int count) {
+        for (int i = 0; i < count; i++) {
+            store.appendStroke(firstId + i, 0xFF0000FF, 8f, true, 0.75f, POINTS, POINTS.length / 2, 4f);
+        }
+    }
+
+    @Test
+    public void reopenWithoutAwaitingClose_keepsEveryStroke() throws Exception {
+        File file = new File(folder.getRoot(), "session.tpss");
+        int next = 0;
+        for (int rotation = 0; rotation < 5; rotation++) {
+            StrokeStoreFile store = new StrokeStoreFile(file);
+            assertEquals(next, store.open().getStrokeCount());
+            appendStrokes(store, next, 50);
+            next += 50;
+            store.close(); // 不等待，模拟界面重建
+        }
+
+        StrokeStoreFile last = new StrokeStoreFile(file);
+        StrokeStoreReader reader = last.open();
+        last.close().get(5, TimeUnit.SECONDS);
+        assertEquals(next, reader.getStrokeCount());
+        assertEquals(next, reader.getNextId());
+        assertEquals(file.length(), reader.getValidLength());
+    }
+}
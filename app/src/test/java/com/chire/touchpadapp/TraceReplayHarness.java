@@ -0,0 +1,257 @@
+package com.chire.touchpadapp;
+
+import androidx.annotation.NonNull;
+import com.chire.touchpadapp.core.LatencyHistogram;
+import com.chire.touchpadapp.core.TouchEvent;
+import com.chire.touchpadapp.core.TouchFrameDecoder;
+import com.chire.touchpadapp.core.TouchProtocol;
+import com.chire.touchpadapp.core.TouchTraceReader;
+import okhttp3.WebSocket;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 触摸轨迹回放压测：按录制时的节奏（或加速）把事件送入 {@link WebSocketManager#sendEvent}，
+ * 本地 MockWebServer 充当接收端，统计吞吐、帧大小、发送队列深度和接收端的到达抖动。
+ *
+ * 到达抖动按 RFC 3550 的定义计算：相邻两条事件的到达间隔减去它们事件时间的间隔。
+ * 同一帧里批量到达的事件对接收端来说也是抖动，会如实计入。
+ */
+final class TraceReplayHarness implements AutoCloseable {
+
+    /** 不等待，尽可能快地回放。 */
+    static final double MAX_SPEED = 0;
+
+    private static final long CONNECT_TIMEOUT_MS = 5000;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private final MockWebServer server = new MockWebServer();
+
+    TraceReplayHarness() throws IOException {
+        server.start();
+    }
+
+    static List<TouchEvent> load(InputStream in) throws IOException {
+        TouchTraceReader reader = new TouchTraceReader(new BufferedInputStream(in));
+        List<TouchEvent> events = new ArrayList<>();
+        TouchEvent event = new TouchEvent();
+        while (reader.next(event)) {
+            events.add(new TouchEvent().set(event.opcode, event.flags, event.timestamp, event.x, event.y));
+        }
+        return events;
+    }
+
+    /** 一次回放的结果。 */
+    static final class Result {
+        double speed;
+        int sentEvents;
+        int expectedEvents;
+        long sendDurationNanos;
+        int maxQueueDepth;
+        double meanQueueDepth;
+        long droppedMotion;
+        Host host;
+
+        double sentPerSecond() {
+            return sentEvents * 1e9 / Math.max(1, sendDurationNanos);
+        }
+
+        @Override
+        public String toString() {
+            synchronized (host) {
+                return format();
+            }
+        }
+
+        private String format() {
+            return String.format(Locale.US,
+                    "speed=%s sent=%d (%.0f/s) received=%d/%d (%.0f/s) frames=%d bytes/frame avg=%.1f max=%d"
+                            + " queue max=%d avg=%.2f dropped=%d outOfOrder=%d jitter %s rfc3550=%.2fms",
+                    speed == MAX_SPEED ? "max" : speed + "x",
+                    sentEvents, sentPerSecond(),
+                    host.events, expectedEvents, host.eventsPerSecond(),
+                    host.frames, host.frames == 0 ? 0.0 : (double) host.bytes / host.frames, host.maxFrameBytes,
+                    maxQueueDepth, meanQueueDepth, droppedMotion, host.outOfOrder,
+                    host.jitter.summary(), host.smoothedJitterNanos / 1e6);
+        }
+    }
+
+    /**
+     * 接收端替身：解码事件帧、统计到达时间，并回复心跳。
+     * 回调都在 MockWebServer 的读线程上，读结果前先 {@link #awaitEvents}。
+     */
+    static final class Host extends ClosingHost {
+        private final TouchFrameDecoder decoder = new TouchFrameDecoder();
+        private final byte[] pong = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        final LatencyHistogram jitter = new LatencyHistogram();
+
+        // 以下字段由 this 保护
+        int events;
+        long frames;
+        long bytes;
+        int maxFrameBytes;
+        int outOfOrder;
+        long firstArrivalNanos;
+        long lastArrivalNanos;
+        double smoothedJitterNanos;
+        private long previousTimestamp = -1;
+
+        private WebSocket socket;
+        private long arrivalNanos;
+
+        @Override
+        public void onMessage(@NonNull WebSocket webSocket, @NonNull ByteString message) {
+            byte[] frame = message.toByteArray();
+            synchronized (this) {
+                socket = webSocket;
+                arrivalNanos = System.nanoTime();
+                frames++;
+                bytes += frame.length;
+                maxFrameBytes = Math.max(maxFrameBytes, frame.length);
+                decoder.decode(frame, this::onEvent);
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+            synchronized (this) {
+                frames++;
+                bytes += text.length();
+                if (!text.startsWith("ping ")) {
+                    // 文本格式没有时间戳，只统计数量
+                    long now = System.nanoTime();
+                    if (events == 0) {
+                        firstArrivalNanos = now;
+                    }
+                    lastArrivalNanos = now;
+                    events++;
+                }
+                notifyAll();
+            }
+            if (text.startsWith("ping ")) {
+                webSocket.send("pong " + text.substring(5));
+            }
+        }
+
+        private void onEvent(TouchEvent event) {
+            if (event.opcode == TouchProtocol.OP_PING) {
+                int length = TouchProtocol.encode(pong, 0, TouchProtocol.OP_PONG, 0, event.timestamp, 0f, 0f);
+                socket.send(ByteString.of(pong, 0, length));
+                return;
+            }
+            if ((event.flags & TouchProtocol.FLAG_PROVISIONAL) != 0) {
+                return;
+            }
+            if (events == 0) {
+                firstArrivalNanos = arrivalNanos;
+            } else {
+                // 线上时间戳只有32位，按有符号差值处理回绕
+                int deltaMs = (int) (event.timestamp - previousTimestamp);
+                if (deltaMs < 0) {
+                    outOfOrder++;
+                }
+                long transitChange = (arrivalNanos - lastArrivalNanos) - deltaMs * 1_000_000L;
+                long abs = Math.abs(transitChange);
+                jitter.recordNanos(abs);
+                smoothedJitterNanos += (abs - smoothedJitterNanos) / 16;
+            }
+            previousTimestamp = event.timestamp;
+            lastArrivalNanos = arrivalNanos;
+            events++;
+        }
+
+        synchronized boolean awaitEvents(int expected, long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (events < expected) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+
+        synchronized double eventsPerSecond() {
+            long span = lastArrivalNanos - firstArrivalNanos;
+            return span <= 0 ? 0 : (events - 1) * 1e9 / span;
+        }
+    }
+
+    /**
+     * 通过新的 WebSocketManager 连接回放一遍轨迹。speed 为倍速，{@link #MAX_SPEED} 表示不等待。
+     * 事件时间替换为实际送入的时间，接收端据此计算抖动。
+     */
+    Result replay(List<TouchEvent> events, double speed) throws InterruptedException {
+        Host host = new Host();
+        server.enqueue(new MockResponse()
+                .setHeader("Sec-WebSocket-Protocol", TouchProtocol.SUBPROTOCOL_BINARY)
+                .withWebSocketUpgrade(host));
+
+        WebSocketManager manager = new WebSocketManager();
+        ConnectionEvents connection = new ConnectionEvents();
+        manager.setMessageListener(connection);
+        manager.setServerUrl(ClosingHost.urlOf(server));
+        manager.connect();
+        try {
+            if (!connection.awaitConnected(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Stand-in host did not accept the connection");
+            }
+
+            Result result = new Result();
+            result.speed = speed;
+            result.host = host;
+            long queueDepthSum = 0;
+            long traceStart = events.isEmpty() ? 0 : events.get(0).timestamp;
+            long lastRealTimestamp = traceStart;
+            long start = System.nanoTime();
+            for (TouchEvent event : events) {
+                boolean provisional = (event.flags & TouchProtocol.FLAG_PROVISIONAL) != 0;
+                // 预测记录的时间戳在未来，按最近一条真实事件的时间发出
+                long scheduled = provisional ? lastRealTimestamp : event.timestamp;
+                if (speed != MAX_SPEED) {
+                    long target = start + (long) ((scheduled - traceStart) * 1_000_000L / speed);
+                    for (long wait = target - System.nanoTime(); wait > 0; wait = target - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                if (!provisional) {
+                    lastRealTimestamp = event.timestamp;
+                    result.expectedEvents++;
+                }
+                long now = System.nanoTime() / 1_000_000L;
+                manager.sendEvent(event.opcode, event.flags, now + (event.timestamp - scheduled), event.x, event.y);
+                result.sentEvents++;
+
+                int depth = manager.getQueueDepth();
+                queueDepthSum += depth;
+                result.maxQueueDepth = Math.max(result.maxQueueDepth, depth);
+            }
+            result.sendDurationNanos = System.nanoTime() - start;
+            result.meanQueueDepth = events.isEmpty() ? 0 : (double) queueDepthSum / events.size();
+
+            // 队列满时最旧的移动事件会被丢弃，接收端只能等到剩下的那些
+            result.droppedMotion = manager.getDroppedMotionCount();
+            host.awaitEvents(result.expectedEvents - (int) result.droppedMotion, DRAIN_TIMEOUT_MS);
+            return result;
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
@@ -0,0 +1,72 @@
+package com.chire.touchpadapp;
+
+import com.chire.touchpadapp.core.TouchEvent;
+import com.chire.touchpadapp.core.TouchProtocol;
+import com.chire.touchpadapp.core.TouchTraceWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回放压测：默认使用合成轨迹；指定 -PtouchpadTrace=轨迹文件 时回放设备上录制的真实轨迹
+ * （调试版断开连接时保存在 Android/data/com.chire.touchpadapp/files/traces）。
+ */
+public class TraceReplayTest {
+
+    // 2秒、120Hz 的滑动，中间穿插单击和双击，每帧附一条预测记录
+    private static byte[] syntheticTrace() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TouchTraceWriter writer = new TouchTraceWriter(out);
+        long time = 1_000_000;
+        for (int i = 0; i < 240; i++) {
+            time += 8;
+            if (i % 60 == 0) {
+                writer.record(i % 120 == 0 ? TouchProtocol.OP_TAP : TouchProtocol.OP_DOUBLE_TAP,
+                        0, time, 300f + i, 500f - i);
+                continue;
+            }
+            float dx = 6f * (float) Math.sin(i * 0.1);
+            float dy = 4f * (float) Math.cos(i * 0.07);
+            writer.record(TouchProtocol.OP_SCROLL, 0, time, dx, dy);
+            writer.record(TouchProtocol.OP_SCROLL, TouchProtocol.FLAG_PROVISIONAL, time + 16, dx, dy);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<TouchEvent> loadTrace() throws IOException {
+        String path = System.getProperty("touchpad.trace");
+        try (InputStream in = path != null && !path.isEmpty()
+                ? new FileInputStream(path)
+                : new ByteArrayInputStream(syntheticTrace())) {
+            return TraceReplayHarness.load(in);
+        }
+    }
+
+    @Test
+    public void replay_atRealtimeTenTimesAndMaxSpeed() throws Exception {
+        List<TouchEvent> events = loadTrace();
+        assertFalse(events.isEmpty());
+
+        try (TraceReplayHarness harness = new TraceReplayHarness()) {
+            for (double speed : new double[]{1, 10, TraceReplayHarness.MAX_SPEED}) {
+                TraceReplayHarness.Result result = harness.replay(events, speed);
+                System.out.println("trace replay: " + result);
+
+                assertEquals(events.size(), result.sentEvents);
+                assertEquals(0, result.host.outOfOrder);
+                // 可靠事件不会丢，只有移动事件可能在队列满时被丢弃
+                assertTrue(result.host.events >= result.expectedEvents - result.droppedMotion);
+                assertTrue(result.host.events <= result.expectedEvents);
+                assertTrue(result.host.maxFrameBytes
+                        <= TouchProtocol.HEADER_SIZE + 32 * TouchProtocol.RECORD_SIZE);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+// 纯JVM基准测试：./gradlew :benchmarks:jmh
+// 结果写入 build/results/jmh/results.txt，gc 分析器给出每次操作的分配字节数（gc.alloc.rate.norm）
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // 只跑部分基准：./gradlew :benchmarks:jmh -PjmhIncludes=GestureFormat
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
+dependencies {
+    jmh(project(":core"))
+    jmh(libs.okhttp)
+    jmh(libs.okhttp.mockwebserver)
+    jmh(libs.json)
+}
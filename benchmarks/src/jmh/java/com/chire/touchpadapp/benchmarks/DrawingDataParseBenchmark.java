@@ -0,0 +1,122 @@
+package com.chire.touchpadapp.benchmarks;
+
+import com.chire.touchpadapp.core.StrokeDecoder;
+import com.chire.touchpadapp.core.StrokeEncoder;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * onMessageReceived 处理回显的开销：drawing_data JSON 解析、
+ * 对非JSON回显也尝试解析（原实现对每条消息都这样做），以及二进制笔画分块解码。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DrawingDataParseBenchmark {
+
+    @Param({"100", "1000"})
+    public int points;
+
+    private String drawingJson;
+    private final String textEcho = "单指滑动 12.5 -3.25";
+    private byte[][] chunks;
+    private final StrokeDecoder decoder = new StrokeDecoder();
+    private final PointSum listener = new PointSum();
+
+    /** 累加坐标，防止解码结果被优化掉。 */
+    private static final class PointSum implements StrokeDecoder.Listener {
+        float sum;
+
+        @Override
+        public void onStrokeBegin(int strokeId, int color, float width) {
+        }
+
+        @Override
+        public void onPoint(int strokeId, float x, float y) {
+            sum += x + y;
+        }
+
+        @Override
+        public void onStrokeEnd(int strokeId) {
+        }
+    }
+
+    @Setup
+    public void setup() {
+        float[] samples = new float[points * 2];
+        for (int i = 0; i < points; i++) {
+            samples[2 * i] = 200f + 150f * (float) Math.sin(i * 0.05) + i * 0.7f;
+            samples[2 * i + 1] = 300f + 120f * (float) Math.cos(i * 0.031);
+        }
+
+        JSONArray array = new JSONArray();
+        for (float v : samples) {
+            array.put((double) v);
+        }
+        drawingJson = new JSONObject().put("type", "drawing_data").put("points", array).toString();
+
+        List<byte[]> out = new ArrayList<>();
+        StrokeEncoder encoder = new StrokeEncoder((data, offset, length) ->
+                out.add(Arrays.copyOfRange(data, offset, offset + length)));
+        encoder.beginStroke(1, 0xFF2196F3, 8f);
+        for (int i = 0; i < samples.length; i += 2) {
+            encoder.addPoint(samples[i], samples[i + 1]);
+        }
+        encoder.endStroke();
+        chunks = out.toArray(new byte[0][]);
+    }
+
+    /** 原实现：解析整条消息，只取点数。 */
+    @Benchmark
+    public int jsonPointCount() {
+        JSONObject json = new JSONObject(drawingJson);
+        if (json.has("type") && "drawing_data".equals(json.getString("type"))) {
+            return json.getJSONArray("points").length() / 2;
+        }
+        return -1;
+    }
+
+    /** 解析并读出全部坐标，相当于在接收端重建笔画。 */
+    @Benchmark
+    public float jsonAllPoints() {
+        JSONArray array = new JSONObject(drawingJson).getJSONArray("points");
+        float sum = 0;
+        for (int i = 0; i < array.length(); i++) {
+            sum += (float) array.getDouble(i);
+        }
+        return sum;
+    }
+
+    /** 普通文本回显也被当作JSON解析，靠异常返回。 */
+    @Benchmark
+    public int jsonTextEchoRejected() {
+        try {
+            return new JSONObject(textEcho).length();
+        } catch (JSONException e) {
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public float binaryChunks() {
+        listener.sum = 0;
+        for (byte[] chunk : chunks) {
+            decoder.decode(chunk, listener);
+        }
+        return listener.sum;
+    }
+}
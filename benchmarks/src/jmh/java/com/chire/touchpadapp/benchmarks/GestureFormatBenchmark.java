@@ -0,0 +1,69 @@
+package com.chire.touchpadapp.benchmarks;
+
+import com.chire.touchpadapp.core.TouchProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 手势回调里每个事件的编码开销：旧版文本拼接、调试日志字符串与二进制记录。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class GestureFormatBenchmark {
+
+    private final byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+    private float x;
+    private float y;
+    private long eventTime;
+
+    @Setup
+    public void setup() {
+        x = 123.456f;
+        y = 789.012f;
+        eventTime = 1_000_000L;
+    }
+
+    // 坐标每次都变化，避免常量折叠，也更接近真实输入
+    private void advance() {
+        x += 0.37f;
+        y -= 0.21f;
+        eventTime += 8;
+    }
+
+    /** GestureListener 原来的写法："单指单击 " + x + " " + y。 */
+    @Benchmark
+    public String legacyTextCommand() {
+        advance();
+        return "单指单击 " + x + " " + y;
+    }
+
+    /** 每个回调里 Log.d 的参数拼接，即使日志被过滤也会发生。 */
+    @Benchmark
+    public String debugLogString() {
+        advance();
+        return "单击: (" + x + ", " + y + ")";
+    }
+
+    /** 未协商二进制协议时的文本回退。 */
+    @Benchmark
+    public String protocolText() {
+        advance();
+        return TouchProtocol.toText(TouchProtocol.OP_TAP, x, y);
+    }
+
+    /** 二进制协议：写入复用的帧缓冲区。 */
+    @Benchmark
+    public int binaryRecord() {
+        advance();
+        int end = TouchProtocol.encode(frame, 0, TouchProtocol.OP_TAP, 0, eventTime, x, y);
+        return end + frame[end - 1];
+    }
+}
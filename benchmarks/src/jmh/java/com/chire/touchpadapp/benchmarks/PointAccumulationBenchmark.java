@@ -0,0 +1,65 @@
+package com.chire.touchpadapp.benchmarks;
+
+import com.chire.touchpadapp.core.FloatPointBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DrawingView 记录触摸点的开销，每次操作为完整的一笔。
+ * 对比原来的 List&lt;Float&gt;（每个坐标装箱，读取时整体复制）与 FloatPointBuffer。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PointAccumulationBenchmark {
+
+    @Param({"100", "1000"})
+    public int points;
+
+    private float[] samples;
+    private FloatPointBuffer buffer;
+
+    @Setup
+    public void setup() {
+        samples = new float[points * 2];
+        for (int i = 0; i < points; i++) {
+            samples[2 * i] = 200f + 150f * (float) Math.sin(i * 0.05) + i * 0.7f;
+            samples[2 * i + 1] = 300f + 120f * (float) Math.cos(i * 0.031);
+        }
+        buffer = new FloatPointBuffer(256, 100_000);
+    }
+
+    /** 原实现：touchPoints.add(x); touchPoints.add(y); 发送前 new ArrayList&lt;&gt;(touchPoints)。 */
+    @Benchmark
+    public List<Float> legacyBoxedList() {
+        List<Float> touchPoints = new ArrayList<>();
+        for (int i = 0; i < samples.length; i += 2) {
+            touchPoints.add(samples[i]);
+            touchPoints.add(samples[i + 1]);
+        }
+        return new ArrayList<>(touchPoints);
+    }
+
+    /** 现实现：复用的 float 数组，读取时只包一层只读视图。 */
+    @Benchmark
+    public void floatPointBuffer(Blackhole bh) {
+        buffer.clear();
+        for (int i = 0; i < samples.length; i += 2) {
+            buffer.add(samples[i], samples[i + 1]);
+        }
+        FloatBuffer view = buffer.drainNew();
+        bh.consume(view.get(view.limit() - 1));
+    }
+}
@@ -0,0 +1,129 @@
+package com.chire.touchpadapp.benchmarks;
+
+import com.chire.touchpadapp.core.OutboundEventQueue;
+import com.chire.touchpadapp.core.TouchProtocol;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过本地 MockWebServer 的真实 WebSocket 连接测量每个事件的发送开销。
+ *
+ * OkHttp 的 send() 只是入队，由写线程异步写出；队列超过 16MB 会直接关闭连接，
+ * 所以积压超过 {@link #MAX_QUEUED_BYTES} 时原地等待，测得的是持续吞吐而不是入队速度。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SendMessageBenchmark {
+
+    private static final long MAX_QUEUED_BYTES = 256 * 1024;
+    private static final int BATCH = 32;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private WebSocket webSocket;
+
+    private final OutboundEventQueue queue = new OutboundEventQueue(256, 64);
+    private final byte[] frame = new byte[TouchProtocol.HEADER_SIZE + BATCH * TouchProtocol.RECORD_SIZE];
+    private int frameLength;
+    private final OutboundEventQueue.Consumer writer = event -> frameLength = TouchProtocol.writeRecord(
+            frame, frameLength, event.opcode, event.flags, event.timestamp, event.x, event.y);
+
+    private float x;
+    private long eventTime;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new MockWebServer();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            // 回应关闭帧，否则 server.shutdown() 一直等待连接结束
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(code, null);
+            }
+        }));
+        server.start();
+
+        CountDownLatch opened = new CountDownLatch(1);
+        client = new OkHttpClient();
+        Request request = new Request.Builder().url(server.url("/")).build();
+        webSocket = client.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                opened.countDown();
+            }
+        });
+        if (!opened.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("WebSocket did not open");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        webSocket.close(1000, null);
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        server.shutdown();
+    }
+
+    private void awaitBacklog() {
+        while (webSocket.queueSize() > MAX_QUEUED_BYTES) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /** 原实现：每个事件一条文本帧。 */
+    @Benchmark
+    public boolean legacyTextPerEvent() {
+        awaitBacklog();
+        x += 0.5f;
+        return webSocket.send("单指滑动 " + x + " " + x);
+    }
+
+    /** 每个事件一条单记录二进制帧。 */
+    @Benchmark
+    public boolean binaryPerEvent() {
+        awaitBacklog();
+        x += 0.5f;
+        eventTime += 8;
+        int length = TouchProtocol.encode(frame, 0, TouchProtocol.OP_SCROLL, 0, eventTime, x, x);
+        return webSocket.send(ByteString.of(frame, 0, length));
+    }
+
+    /**
+     * 发送线程的实际路径：事件入队后按批合并成一帧，结果按事件数归一。
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean binaryBatched() {
+        awaitBacklog();
+        for (int i = 0; i < BATCH; i++) {
+            x += 0.5f;
+            eventTime += 8;
+            queue.offer(TouchProtocol.OP_TAP, 0, eventTime, x, x);
+        }
+        frameLength = TouchProtocol.writeHeader(frame, 0);
+        queue.drain(writer, BATCH);
+        return webSocket.send(ByteString.of(frame, 0, frameLength));
+    }
+}
@@ -0,0 +1,13 @@
+plugins {
+    `java-library`
+}
+
+// 纯Java模块：线协议与编解码，桌面端接收程序可以直接复用
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,113 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 累计一帧内新增线段的包围盒（按笔宽外扩），供局部重绘使用。
+ * 同时统计每帧失效的像素数，用于衡量局部重绘节省了多少。
+ */
+public final class DirtyRegionTracker {
+
+    private float padding;
+
+    private boolean dirty;
+    private float left;
+    private float top;
+    private float right;
+    private float bottom;
+
+    // 统计
+    private long frameCount;
+    private long totalPixels;
+    private long lastFramePixels;
+
+    public DirtyRegionTracker(float padding) {
+        this.padding = padding;
+    }
+
+    /** 外扩距离，一般取笔宽的一半再加上抗锯齿余量。 */
+    public void setPadding(float padding) {
+        this.padding = padding;
+    }
+
+    public void addPoint(float x, float y) {
+        addSegment(x, y, x, y);
+    }
+
+    public void addSegment(float x0, float y0, float x1, float y1) {
+        float l = Math.min(x0, x1) - padding;
+        float t = Math.min(y0, y1) - padding;
+        float r = Math.max(x0, x1) + padding;
+        float b = Math.max(y0, y1) + padding;
+        if (!dirty) {
+            left = l;
+            top = t;
+            right = r;
+            bottom = b;
+            dirty = true;
+        } else {
+            left = Math.min(left, l);
+            top = Math.min(top, t);
+            right = Math.max(right, r);
+            bottom = Math.max(bottom, b);
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 取出本帧的脏区域（向外取整并裁剪到视图范围），写入 out[left, top, right, bottom]，
+     * 然后清空累计。没有脏区域或裁剪后为空时返回 false。
+     */
+    public boolean takeFrame(int[] out, int viewWidth, int viewHeight) {
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+
+        int l = Math.max(0, (int) Math.floor(left));
+        int t = Math.max(0, (int) Math.floor(top));
+        int r = Math.min(viewWidth, (int) Math.ceil(right));
+        int b = Math.min(viewHeight, (int) Math.ceil(bottom));
+        if (l >= r || t >= b) {
+            return false;
+        }
+
+        out[0] = l;
+        out[1] = t;
+        out[2] = r;
+        out[3] = b;
+        recordFrame((long) (r - l) * (b - t));
+        return true;
+    }
+
+    /** 整个视图失效时调用，计入统计。 */
+    public void recordFullFrame(int viewWidth, int viewHeight) {
+        dirty = false;
+        recordFrame((long) viewWidth * viewHeight);
+    }
+
+    private void recordFrame(long pixels) {
+        lastFramePixels = pixels;
+        totalPixels += pixels;
+        frameCount++;
+    }
+
+    public long getLastFramePixels() {
+        return lastFramePixels;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getAveragePixelsPerFrame() {
+        return frameCount == 0 ? 0 : totalPixels / frameCount;
+    }
+
+    public void resetStats() {
+        frameCount = 0;
+        totalPixels = 0;
+        lastFramePixels = 0;
+    }
+}
@@ -0,0 +1,106 @@
+package com.chire.touchpadapp.core;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 以 float[] 存储 (x, y) 坐标对的可增长缓冲区，不装箱。
+ *
+ * 超过上限时先压缩掉已导出的部分，仍然不够再丢弃最旧的点。
+ * 导出的 {@link FloatBuffer} 是底层数组的只读视图，不复制数据，
+ * 在下一次 {@link #add} 或 {@link #clear} 之前有效。
+ */
+public final class FloatPointBuffer {
+
+    private float[] data;
+    private int length;        // float 个数，即点数 * 2
+    private int exported;      // 已导出的 float 个数
+    private int maxPoints;
+    private long droppedPoints;
+
+    public FloatPointBuffer(int initialPoints, int maxPoints) {
+        if (maxPoints <= 0) {
+            throw new IllegalArgumentException("maxPoints must be positive: " + maxPoints);
+        }
+        this.maxPoints = maxPoints;
+        this.data = new float[Math.max(2, Math.min(initialPoints, maxPoints) * 2)];
+    }
+
+    public void add(float x, float y) {
+        if (length + 2 > data.length) {
+            makeRoom();
+        }
+        data[length++] = x;
+        data[length++] = y;
+    }
+
+    public int size() {
+        return length / 2;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    public void setMaxPoints(int maxPoints) {
+        if (maxPoints <= 0) {
+            throw new IllegalArgumentException("maxPoints must be positive: " + maxPoints);
+        }
+        this.maxPoints = maxPoints;
+        if (length > maxPoints * 2) {
+            discard(length - maxPoints * 2);
+        }
+    }
+
+    /** 因超过上限而被丢弃的点数。 */
+    public long getDroppedPoints() {
+        return droppedPoints;
+    }
+
+    /** 所有保留点的只读视图。 */
+    public FloatBuffer asReadOnlyBuffer() {
+        return FloatBuffer.wrap(data, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /** 返回上次导出之后新增的点，并把它们标记为已导出。 */
+    public FloatBuffer drainNew() {
+        FloatBuffer view = FloatBuffer.wrap(data, exported, length - exported).slice().asReadOnlyBuffer();
+        exported = length;
+        return view;
+    }
+
+    public int pendingPoints() {
+        return (length - exported) / 2;
+    }
+
+    public void clear() {
+        length = 0;
+        exported = 0;
+    }
+
+    private void makeRoom() {
+        int limit = maxPoints * 2;
+        if (data.length < limit) {
+            float[] grown = new float[Math.min(limit, data.length * 2)];
+            System.arraycopy(data, 0, grown, 0, length);
+            data = grown;
+            return;
+        }
+
+        // 已到上限：优先压缩掉已导出的数据，否则丢弃最旧的四分之一
+        int drop = exported > 0 ? exported : Math.max(2, (limit / 4) & ~1);
+        discard(drop);
+    }
+
+    private void discard(int floats) {
+        floats = Math.min(floats, length);
+        System.arraycopy(data, floats, data, 0, length - floats);
+        length -= floats;
+        droppedPoints += Math.max(0, floats - exported) / 2;
+        exported = Math.max(0, exported - floats);
+        if (data.length > maxPoints * 2) {
+            float[] shrunk = new float[Math.max(2, maxPoints * 2)];
+            System.arraycopy(data, 0, shrunk, 0, length);
+            data = shrunk;
+        }
+    }
+}
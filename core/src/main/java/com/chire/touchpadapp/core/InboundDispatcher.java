@@ -0,0 +1,249 @@
+package com.chire.touchpadapp.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入站消息分发：读线程只入队，分发线程先按廉价的类型键路由，再交给按类型注册的处理器解析。
+ *
+ * 文本消息的类型键：以 '{' 开头时取第一个 "type" 字段的字符串值（只扫描，不解析JSON），
+ * 否则取第一个空格之前的部分，例如 "ping 12" 的键为 "ping"。
+ * 二进制帧按帧类型路由，事件帧再按每条记录的操作码路由。没有对应处理器的交给默认处理器。
+ *
+ * 处理器都在分发线程上调用，需要更新界面的结果应自行合并后每帧投递一次。
+ * 队列满时丢弃新消息并计数。
+ */
+public final class InboundDispatcher {
+
+    public interface TextHandler {
+        void onText(String message);
+    }
+
+    public interface FrameHandler {
+        void onFrame(byte[] frame);
+    }
+
+    public interface EventHandler {
+        void onEvent(TouchEvent event);
+    }
+
+    private static final int MAX_TEXT_TYPES = 16;
+
+    private final ArrayBlockingQueue<Object> queue;
+    private final TouchFrameDecoder decoder = new TouchFrameDecoder();
+    private final TouchFrameDecoder.Handler eventRouter = this::routeEvent;
+
+    // 注册在启动前完成，之后只读
+    private final String[] textTypes = new String[MAX_TEXT_TYPES];
+    private final TextHandler[] textHandlers = new TextHandler[MAX_TEXT_TYPES];
+    private int textTypeCount;
+    private final FrameHandler[] frameHandlers = new FrameHandler[16];
+    private final EventHandler[] eventHandlers = new EventHandler[256];
+    private volatile TextHandler defaultTextHandler;
+    private volatile EventHandler defaultEventHandler;
+
+    private final String threadName;
+    private volatile Thread thread;
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public InboundDispatcher(int capacity, String threadName) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.threadName = threadName;
+    }
+
+    public synchronized void onText(String type, TextHandler handler) {
+        for (int i = 0; i < textTypeCount; i++) {
+            if (textTypes[i].equals(type)) {
+                textHandlers[i] = handler;
+                return;
+            }
+        }
+        if (textTypeCount == MAX_TEXT_TYPES) {
+            throw new IllegalStateException("Too many text types");
+        }
+        textTypes[textTypeCount] = type;
+        textHandlers[textTypeCount] = handler;
+        textTypeCount++;
+    }
+
+    /** 整帧处理，例如 {@link TouchProtocol#KIND_STROKE}。事件帧未注册时按操作码逐条路由。 */
+    public void onFrameKind(int kind, FrameHandler handler) {
+        frameHandlers[kind & 0x0F] = handler;
+    }
+
+    public void onOpcode(int opcode, EventHandler handler) {
+        eventHandlers[opcode & 0xFF] = handler;
+    }
+
+    public void setDefaultTextHandler(TextHandler handler) {
+        defaultTextHandler = handler;
+    }
+
+    public void setDefaultEventHandler(EventHandler handler) {
+        defaultEventHandler = handler;
+    }
+
+    /** 读线程调用：入队并确保分发线程已启动。队列满时返回 false。 */
+    public boolean post(String message) {
+        return enqueue(message);
+    }
+
+    public boolean post(byte[] frame) {
+        return enqueue(frame);
+    }
+
+    private boolean enqueue(Object message) {
+        if (thread == null) {
+            start();
+        }
+        if (!queue.offer(message)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread t = new Thread(this::run, threadName);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /** 停止分发线程并丢弃未处理的消息。 */
+    public synchronized void stop() {
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            t.interrupt();
+        }
+        queue.clear();
+    }
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        while (thread == self) {
+            Object message;
+            try {
+                message = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            dispatch(message);
+        }
+    }
+
+    /** 在当前线程同步路由一条消息，分发线程和测试使用。 */
+    public void dispatch(Object message) {
+        try {
+            if (message instanceof String) {
+                dispatchText((String) message);
+            } else {
+                dispatchFrame((byte[]) message);
+            }
+            dispatchedCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            // 单条消息处理失败不影响后续消息
+            failedCount.incrementAndGet();
+        }
+    }
+
+    private void dispatchText(String message) {
+        int start = 0;
+        int length = message.length();
+        while (start < length && message.charAt(start) == ' ') {
+            start++;
+        }
+        int end;
+        if (start < length && message.charAt(start) == '{') {
+            start = jsonTypeStart(message, start);
+            end = start < 0 ? -1 : message.indexOf('"', start);
+        } else {
+            end = message.indexOf(' ', start);
+            if (end < 0) {
+                end = length;
+            }
+        }
+        if (start >= 0 && end >= 0) {
+            int keyLength = end - start;
+            for (int i = 0; i < textTypeCount; i++) {
+                String type = textTypes[i];
+                if (type.length() == keyLength && message.regionMatches(start, type, 0, keyLength)) {
+                    textHandlers[i].onText(message);
+                    return;
+                }
+            }
+        }
+        TextHandler fallback = defaultTextHandler;
+        if (fallback != null) {
+            fallback.onText(message);
+        }
+    }
+
+    // 返回第一个 "type" 字段字符串值的起始下标，没有时返回 -1
+    private static int jsonTypeStart(String message, int from) {
+        int key = message.indexOf("\"type\"", from);
+        if (key < 0) {
+            return -1;
+        }
+        int i = key + 6;
+        int length = message.length();
+        while (i < length && message.charAt(i) == ' ') {
+            i++;
+        }
+        if (i >= length || message.charAt(i) != ':') {
+            return -1;
+        }
+        i++;
+        while (i < length && message.charAt(i) == ' ') {
+            i++;
+        }
+        if (i >= length || message.charAt(i) != '"') {
+            return -1;
+        }
+        return i + 1;
+    }
+
+    private void dispatchFrame(byte[] frame) {
+        if (frame.length == 0) {
+            return;
+        }
+        FrameHandler handler = frameHandlers[TouchProtocol.frameKind(frame[0])];
+        if (handler != null) {
+            handler.onFrame(frame);
+        } else {
+            decoder.decode(frame, eventRouter);
+        }
+    }
+
+    private void routeEvent(TouchEvent event) {
+        EventHandler handler = eventHandlers[event.opcode];
+        if (handler == null) {
+            handler = defaultEventHandler;
+        }
+        if (handler != null) {
+            handler.onEvent(event);
+        }
+    }
+
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+}
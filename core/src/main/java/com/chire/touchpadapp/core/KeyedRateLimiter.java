@@ -0,0 +1,58 @@
+package com.chire.touchpadapp.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按类别限流：每个时间窗口内每个类别最多放行 maxPerWindow 条，
+ * 其余的只计数，下一条被放行时一并报告被省略的条数。非线程安全。
+ */
+public final class KeyedRateLimiter {
+
+    private static final class Window {
+        long start;
+        int allowed;
+        int suppressed;
+    }
+
+    private final int maxPerWindow;
+    private final long windowMs;
+    private final Map<String, Window> windows = new HashMap<>();
+
+    public KeyedRateLimiter(int maxPerWindow, long windowMs) {
+        if (maxPerWindow <= 0 || windowMs <= 0) {
+            throw new IllegalArgumentException("maxPerWindow and windowMs must be positive");
+        }
+        this.maxPerWindow = maxPerWindow;
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * 尝试放行一条消息。被限流时返回 -1，
+     * 否则返回上一条放行之后被省略的条数（通常为 0）。
+     */
+    public int acquire(String key, long nowMs) {
+        Window window = windows.get(key);
+        if (window == null) {
+            window = new Window();
+            window.start = nowMs;
+            windows.put(key, window);
+        } else if (nowMs - window.start >= windowMs) {
+            window.start = nowMs;
+            window.allowed = 0;
+        }
+
+        if (window.allowed >= maxPerWindow) {
+            window.suppressed++;
+            return -1;
+        }
+        window.allowed++;
+        int suppressed = window.suppressed;
+        window.suppressed = 0;
+        return suppressed;
+    }
+
+    public void reset() {
+        windows.clear();
+    }
+}
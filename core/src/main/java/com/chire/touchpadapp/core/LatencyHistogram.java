@@ -0,0 +1,109 @@
+package com.chire.touchpadapp.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定桶的延迟直方图（单位微秒），记录时无锁、不分配对象，可多线程同时写入。
+ *
+ * 0~15 每个值一个桶，之后每个2的幂区间再分8个子桶，相对误差不超过 12.5%。
+ * 分位数返回所在桶的上界。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+    // 覆盖到 2^40 微秒，足够表示任何实际延迟
+    private static final int MAX_MSB = 40;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_MSB - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+
+        long currentMax = max.get();
+        while (micros > currentMax && !max.compareAndSet(currentMax, micros)) {
+            currentMax = max.get();
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /** p 取 0~1，例如 0.99。没有数据时返回 0。 */
+    public long percentile(double p) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    /** 例如 "p50=1.2ms p99=8.4ms max=15.0ms n=1024"。 */
+    public String summary() {
+        return "p50=" + formatMillis(percentile(0.5))
+                + " p99=" + formatMillis(percentile(0.99))
+                + " max=" + formatMillis(getMax())
+                + " n=" + getCount();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        if (msb > MAX_MSB) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (msb - SUB_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int k = index - LINEAR_BUCKETS;
+        int msb = k / SUB_BUCKETS + SUB_BITS + 1;
+        int sub = k % SUB_BUCKETS;
+        long width = 1L << (msb - SUB_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (msb - SUB_BITS)) + width - 1;
+    }
+
+    private static String formatMillis(long micros) {
+        return (micros / 1000) + "." + (micros % 1000) / 100 + "ms";
+    }
+}
@@ -0,0 +1,69 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 输入到网络各阶段的延迟统计、心跳往返时间，以及建立连接的各阶段耗时。
+ *
+ * 输入事件时间来自 MotionEvent.getEventTime()（uptimeMillis），
+ * 在Android上与 System.nanoTime() 同为 CLOCK_MONOTONIC，可以直接相减。
+ */
+public final class LatencyTelemetry {
+
+    // 各阶段均从输入事件时间起算，QUEUE_WAIT 为入队到写出
+    public static final int STAGE_DISPATCH = 0;   // 输入 -> 手势回调
+    public static final int STAGE_ENQUEUE = 1;    // 输入 -> 进入发送队列（含合并等待）
+    public static final int STAGE_QUEUE_WAIT = 2; // 入队 -> 写入socket
+    public static final int STAGE_TOTAL = 3;      // 输入 -> 写入socket
+    public static final int STAGE_RTT = 4;        // 心跳往返
+    // 建立连接：DNS解析、TCP连接、TLS握手、WebSocket升级（传输层就绪 -> onOpen）、总计
+    public static final int STAGE_DNS = 5;
+    public static final int STAGE_TCP = 6;
+    public static final int STAGE_TLS = 7;
+    public static final int STAGE_UPGRADE = 8;
+    public static final int STAGE_CONNECT = 9;
+    public static final int STAGE_COUNT = 10;
+
+    private static final String[] STAGE_NAMES = {"dispatch", "enqueue", "queue", "total", "rtt",
+            "dns", "tcp", "tls", "upgrade", "connect"};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_COUNT];
+
+    public LatencyTelemetry() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram getHistogram(int stage) {
+        return histograms[stage];
+    }
+
+    /** 记录从输入事件时间（毫秒）到现在的耗时。 */
+    public void recordSinceEvent(int stage, long eventTimeMs, long nowNanos) {
+        histograms[stage].recordNanos(nowNanos - eventTimeMs * 1_000_000L);
+    }
+
+    public void recordNanos(int stage, long nanos) {
+        histograms[stage].recordNanos(nanos);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /** 多行摘要，每个有数据的阶段一行。 */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            if (histograms[i].getCount() == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(STAGE_NAMES[i]).append(": ").append(histograms[i].summary());
+        }
+        return sb.toString();
+    }
+}
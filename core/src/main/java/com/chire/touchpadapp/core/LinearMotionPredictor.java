@@ -0,0 +1,88 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 短时线性运动预测：对最近一段时间内的采样做最小二乘拟合求速度，
+ * 再按给定毫秒数外推位置。用于降低光标/笔尖的感知延迟。
+ */
+public final class LinearMotionPredictor {
+
+    private static final int HISTORY_SIZE = 8;
+    // 外推上限，预测越远误差越大
+    public static final long MAX_HORIZON_MS = 50;
+
+    private final long[] times = new long[HISTORY_SIZE];
+    private final float[] xs = new float[HISTORY_SIZE];
+    private final float[] ys = new float[HISTORY_SIZE];
+    private int count;
+    private int next;
+
+    private long windowMs = 60;
+
+    /** 参与拟合的时间窗口，超出窗口的旧采样被忽略。 */
+    public void setWindowMs(long windowMs) {
+        this.windowMs = Math.max(1, windowMs);
+    }
+
+    public void reset() {
+        count = 0;
+        next = 0;
+    }
+
+    public void addSample(long time, float x, float y) {
+        times[next] = time;
+        xs[next] = x;
+        ys[next] = y;
+        next = (next + 1) % HISTORY_SIZE;
+        if (count < HISTORY_SIZE) {
+            count++;
+        }
+    }
+
+    /**
+     * 预测最后一个采样之后 horizonMs 毫秒的位置，写入 out[0], out[1]。
+     * 采样不足或时间跨度为零时返回 false。
+     */
+    public boolean predict(long horizonMs, float[] out) {
+        if (count < 2 || horizonMs <= 0) {
+            return false;
+        }
+
+        int last = (next - 1 + HISTORY_SIZE) % HISTORY_SIZE;
+        long lastTime = times[last];
+
+        // 以最后一个采样为原点做最小二乘，避免大数相减的精度问题
+        double sumT = 0, sumTT = 0, sumX = 0, sumTX = 0, sumY = 0, sumTY = 0;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int idx = (last - i + HISTORY_SIZE) % HISTORY_SIZE;
+            long dt = times[idx] - lastTime;
+            if (-dt > windowMs) {
+                break;
+            }
+            double dx = xs[idx] - xs[last];
+            double dy = ys[idx] - ys[last];
+            sumT += dt;
+            sumTT += (double) dt * dt;
+            sumX += dx;
+            sumTX += dt * dx;
+            sumY += dy;
+            sumTY += dt * dy;
+            n++;
+        }
+        if (n < 2) {
+            return false;
+        }
+
+        double denom = n * sumTT - sumT * sumT;
+        if (denom == 0) {
+            return false;
+        }
+        double vx = (n * sumTX - sumT * sumX) / denom;
+        double vy = (n * sumTY - sumT * sumY) / denom;
+
+        long horizon = Math.min(horizonMs, MAX_HORIZON_MS);
+        out[0] = (float) (xs[last] + vx * horizon);
+        out[1] = (float) (ys[last] + vy * horizon);
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 根据链路反馈调整滑动的发送方式：心跳往返时间相对基线的膨胀、发送队列积压字节数和发送失败。
+ *
+ * 分为若干档位，每档决定合并窗口、坐标步长，以及滑动以位移还是累计位置
+ * （{@link TouchProtocol#OP_POSITION}，丢弃旧记录不影响结果）发送。
+ * 检测到拥塞时升一档（两次升档至少间隔 {@link #setTimings} 的 holdMs），
+ * 持续 recoveryMs 没有拥塞才降一档，升快降慢，避免在临界状态来回切换。
+ *
+ * 线程安全：读线程报告往返时间，发送线程报告失败，调度线程周期性调用 {@link #tick}，
+ * 合并层随时读取当前档位。
+ */
+public final class LinkRateController {
+
+    // 各档位：合并窗口（0为跟随显示帧）、坐标步长（像素）、是否发送累计位置
+    private static final long[] WINDOW_MS = {0, 33, 66, 100};
+    private static final float[] QUANTUM = {1f / TouchProtocol.COORD_SCALE, 0.25f, 0.5f, 1f};
+    private static final boolean[] ABSOLUTE = {false, false, true, true};
+    public static final int MAX_LEVEL = WINDOW_MS.length - 1;
+
+    // 往返时间基线取最近若干个采样的最小值
+    private static final int RTT_HISTORY = 16;
+
+    private volatile int level;
+    private volatile boolean absoluteAllowed;
+
+    // 以下字段由 this 保护
+    private final long[] rttHistory = new long[RTT_HISTORY];
+    private int rttCount;
+    private int rttNext;
+    private long latestRttMicros;
+    private boolean rttPending; // 最新采样尚未被 tick 判定过；心跳间隔远大于 tick 周期，每个采样只算一次
+    private int pendingFailures;
+    private long lastCongestionMs = Long.MIN_VALUE / 2;
+    private long lastChangeMs = Long.MIN_VALUE / 2;
+
+    private long queueHighBytes = 4096;
+    private float rttFactor = 3f;
+    private long rttSlackMicros = 50_000;
+    private long holdMs = 500;
+    private long recoveryMs = 2000;
+
+    // 统计
+    private long congestionCount;
+    private long backoffCount;
+    private long recoveryCount;
+    private long lastQueuedBytes;
+    private long maxQueuedBytes;
+
+    /**
+     * 拥塞判定阈值：发送队列超过 queueHighBytes 字节，
+     * 或往返时间同时超过基线的 rttFactor 倍和基线加 rttSlackMs。
+     */
+    public synchronized void setThresholds(long queueHighBytes, float rttFactor, long rttSlackMs) {
+        this.queueHighBytes = queueHighBytes;
+        this.rttFactor = rttFactor;
+        this.rttSlackMicros = rttSlackMs * 1000;
+    }
+
+    public synchronized void setTimings(long holdMs, long recoveryMs) {
+        this.holdMs = holdMs;
+        this.recoveryMs = recoveryMs;
+    }
+
+    /** 接收端能处理 {@link TouchProtocol#OP_POSITION} 时才允许发送累计位置。 */
+    public void setAbsoluteAllowed(boolean allowed) {
+        this.absoluteAllowed = allowed;
+    }
+
+    public synchronized void onRtt(long nanos) {
+        latestRttMicros = nanos / 1000;
+        rttPending = true;
+        rttHistory[rttNext] = latestRttMicros;
+        rttNext = (rttNext + 1) % RTT_HISTORY;
+        if (rttCount < RTT_HISTORY) {
+            rttCount++;
+        }
+    }
+
+    public synchronized void onSendFailure() {
+        pendingFailures++;
+    }
+
+    /** 周期性调用，queuedBytes 为 WebSocket 尚未写出的字节数。 */
+    public synchronized void tick(long nowMs, long queuedBytes) {
+        lastQueuedBytes = queuedBytes;
+        maxQueuedBytes = Math.max(maxQueuedBytes, queuedBytes);
+
+        boolean congested = pendingFailures > 0 || queuedBytes > queueHighBytes || (rttPending && isRttInflated());
+        pendingFailures = 0;
+        rttPending = false;
+
+        if (congested) {
+            congestionCount++;
+            lastCongestionMs = nowMs;
+            if (level < MAX_LEVEL && nowMs - lastChangeMs >= holdMs) {
+                level++;
+                backoffCount++;
+                lastChangeMs = nowMs;
+            }
+        } else if (level > 0 && nowMs - lastCongestionMs >= recoveryMs && nowMs - lastChangeMs >= recoveryMs) {
+            level--;
+            recoveryCount++;
+            lastChangeMs = nowMs;
+        }
+    }
+
+    private boolean isRttInflated() {
+        if (rttCount < 2) {
+            return false;
+        }
+        long baseline = getBaselineRttMicros();
+        return latestRttMicros > baseline * rttFactor && latestRttMicros > baseline + rttSlackMicros;
+    }
+
+    /** 新连接开始时调用，回到最高精度。 */
+    public synchronized void reset() {
+        level = 0;
+        rttCount = 0;
+        rttNext = 0;
+        latestRttMicros = 0;
+        rttPending = false;
+        pendingFailures = 0;
+        lastCongestionMs = Long.MIN_VALUE / 2;
+        lastChangeMs = Long.MIN_VALUE / 2;
+        lastQueuedBytes = 0;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /** 滑动合并窗口（毫秒），0 表示跟随显示帧。 */
+    public long getCoalesceWindowMs() {
+        return WINDOW_MS[level];
+    }
+
+    /** 滑动量的量化步长（像素），不小于协议精度。 */
+    public float getQuantum() {
+        return QUANTUM[level];
+    }
+
+    public boolean isAbsoluteMotion() {
+        return absoluteAllowed && ABSOLUTE[level];
+    }
+
+    public synchronized long getBaselineRttMicros() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < rttCount; i++) {
+            min = Math.min(min, rttHistory[i]);
+        }
+        return rttCount > 0 ? min : 0;
+    }
+
+    public synchronized long getLatestRttMicros() {
+        return latestRttMicros;
+    }
+
+    public synchronized long getCongestionCount() {
+        return congestionCount;
+    }
+
+    public synchronized long getBackoffCount() {
+        return backoffCount;
+    }
+
+    public synchronized long getRecoveryCount() {
+        return recoveryCount;
+    }
+
+    public synchronized long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    /** 例如 "rate: level=1 window=33ms step=0.25px delta queue=512B (max 9000B) rtt=40/12ms backoff=2 recover=1"。 */
+    public synchronized String summary() {
+        return "rate: level=" + level
+                + " window=" + getCoalesceWindowMs() + "ms"
+                + " step=" + getQuantum() + "px"
+                + (isAbsoluteMotion() ? " absolute" : " delta")
+                + " queue=" + lastQueuedBytes + "B (max " + maxQueuedBytes + "B)"
+                + " rtt=" + latestRttMicros / 1000 + "/" + getBaselineRttMicros() / 1000 + "ms"
+                + " backoff=" + backoffCount
+                + " recover=" + recoveryCount;
+    }
+}
@@ -0,0 +1,62 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 滑动数据报，每个UDP包一个，对象可复用。
+ *
+ * <pre>
+ * [header:u8 kind=3][session:u32][seq:u32][timestamp:u32 毫秒]
+ * [totalX:s32][totalY:s32][predictedX:s16][predictedY:s16]
+ * </pre>
+ *
+ * total 是本会话开始以来的累计滑动距离，predicted 是在其之上的预测位移
+ * （含义同 {@link TouchProtocol#FLAG_PROVISIONAL}），均为 {@link TouchProtocol#COORD_SCALE} 定点数。
+ * 累计值按32位回绕，接收端只使用相邻两次的差值。
+ */
+public final class MotionDatagram {
+
+    public static final int SIZE = TouchProtocol.HEADER_SIZE + 4 + 4 + 4 + 4 + 4 + 2 + 2;
+
+    public int session;
+    public int seq;
+    public long timestamp;
+    public int totalX;
+    public int totalY;
+    public int predictedX;
+    public int predictedY;
+
+    /** 返回写入后的偏移。 */
+    public int encode(byte[] out, int offset) {
+        offset = TouchProtocol.writeHeader(out, offset, TouchProtocol.KIND_MOTION);
+        TouchProtocol.putInt(out, offset, session);
+        TouchProtocol.putInt(out, offset + 4, seq);
+        TouchProtocol.putInt(out, offset + 8, (int) timestamp);
+        TouchProtocol.putInt(out, offset + 12, totalX);
+        TouchProtocol.putInt(out, offset + 16, totalY);
+        TouchProtocol.putShort(out, offset + 20, predictedX);
+        TouchProtocol.putShort(out, offset + 22, predictedY);
+        return offset + SIZE - TouchProtocol.HEADER_SIZE;
+    }
+
+    /** 长度、帧类型或版本不符时返回 false，字段保持不变。 */
+    public boolean decode(byte[] in, int offset, int length) {
+        if (length != SIZE
+                || TouchProtocol.frameKind(in[offset]) != TouchProtocol.KIND_MOTION
+                || TouchProtocol.frameVersion(in[offset]) != TouchProtocol.VERSION) {
+            return false;
+        }
+        offset += TouchProtocol.HEADER_SIZE;
+        session = TouchProtocol.getInt(in, offset);
+        seq = TouchProtocol.getInt(in, offset + 4);
+        timestamp = TouchProtocol.getInt(in, offset + 8) & 0xFFFFFFFFL;
+        totalX = TouchProtocol.getInt(in, offset + 12);
+        totalY = TouchProtocol.getInt(in, offset + 16);
+        predictedX = TouchProtocol.getShort(in, offset + 20);
+        predictedY = TouchProtocol.getShort(in, offset + 22);
+        return true;
+    }
+
+    /** 把一段滑动距离换算为定点数，累加进 total 时使用（不截断到 s16）。 */
+    public static int toFixed(float value) {
+        return Math.round(value * TouchProtocol.COORD_SCALE);
+    }
+}
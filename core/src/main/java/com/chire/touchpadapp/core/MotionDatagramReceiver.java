@@ -0,0 +1,89 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 接收端对滑动数据报的处理：只接受比已应用的更新的数据报，位移取累计值之差。
+ * 中间丢失的数据报由之后到达的任意一个补齐，乱序迟到和重复的数据报被丢弃。
+ * 会话号变化时视为新会话，从零开始累计。非线程安全。
+ */
+public final class MotionDatagramReceiver {
+
+    private boolean started;
+    private int session;
+    private int lastSeq;
+    private int appliedX;
+    private int appliedY;
+
+    private float deltaX;
+    private float deltaY;
+    private float predictedX;
+    private float predictedY;
+
+    private long acceptedCount;
+    private long staleCount;
+    private long skippedCount;
+
+    /**
+     * 处理一个数据报。返回 true 时可通过 {@link #getDeltaX()} 等取得相对上一个被接受数据报的位移
+     * 以及最新的预测位移；返回 false 表示数据报过期或重复，应忽略。
+     */
+    public boolean accept(MotionDatagram datagram) {
+        if (!started || datagram.session != session) {
+            started = true;
+            session = datagram.session;
+            lastSeq = 0;
+            appliedX = 0;
+            appliedY = 0;
+        } else if (datagram.seq - lastSeq <= 0) {
+            staleCount++;
+            return false;
+        }
+        skippedCount += datagram.seq - lastSeq - 1;
+        lastSeq = datagram.seq;
+
+        deltaX = TouchProtocol.dequantize(datagram.totalX - appliedX);
+        deltaY = TouchProtocol.dequantize(datagram.totalY - appliedY);
+        appliedX = datagram.totalX;
+        appliedY = datagram.totalY;
+        predictedX = TouchProtocol.dequantize(datagram.predictedX);
+        predictedY = TouchProtocol.dequantize(datagram.predictedY);
+        acceptedCount++;
+        return true;
+    }
+
+    public void reset() {
+        started = false;
+        acceptedCount = 0;
+        staleCount = 0;
+        skippedCount = 0;
+    }
+
+    public float getDeltaX() {
+        return deltaX;
+    }
+
+    public float getDeltaY() {
+        return deltaY;
+    }
+
+    public float getPredictedX() {
+        return predictedX;
+    }
+
+    public float getPredictedY() {
+        return predictedY;
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /** 迟到或重复而被丢弃的数据报数。 */
+    public long getStaleCount() {
+        return staleCount;
+    }
+
+    /** 序号跳过的数据报数，即丢失（或仍在路上、之后会被当作过期丢弃）的数量。 */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+}
@@ -0,0 +1,173 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 连接建立或重连期间暂存的事件，连接打开后一次性发出。
+ *
+ * 入队时连续的滑动合并为一条净位移（超出协议坐标范围时另起一条），
+ * {@link TouchProtocol#OP_POSITION} 覆盖之前的位移，预测记录直接丢弃——连接恢复时已经过时。
+ * 每条记录记下最后一次写入的时间，超过 maxAgeMs 的在入队和取出时淘汰；
+ * 满时淘汰最旧的一条。
+ *
+ * 线程安全：通常UI线程入队，发送线程取出。
+ */
+public final class OfflineSpool {
+
+    // 合并后的净位移不能超出协议坐标范围，超出时拆成多条
+    private static final float MAX_MERGED_DELTA = Short.MAX_VALUE / TouchProtocol.COORD_SCALE;
+
+    private final int mask;
+    private long maxAgeMs;
+    private final int[] opcode;
+    private final int[] flags;
+    private final long[] timestamp;
+    private final float[] x;
+    private final float[] y;
+    private final long[] spooledAt;
+    private long head;
+    private long tail;
+
+    private long offeredCount;
+    private long collapsedCount;
+    private long expiredCount;
+    private long evictedCount;
+
+    private final TouchEvent scratch = new TouchEvent();
+
+    public OfflineSpool(int capacity, long maxAgeMs) {
+        if (maxAgeMs <= 0) {
+            throw new IllegalArgumentException("maxAgeMs must be positive: " + maxAgeMs);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        mask = size - 1;
+        this.maxAgeMs = maxAgeMs;
+        opcode = new int[size];
+        flags = new int[size];
+        timestamp = new long[size];
+        x = new float[size];
+        y = new float[size];
+        spooledAt = new long[size];
+    }
+
+    /** 暂存一条事件，nowMs 为单调时钟的当前时间。 */
+    public synchronized void offer(int op, int f, long time, float px, float py, long nowMs) {
+        expire(nowMs);
+        if ((f & TouchProtocol.FLAG_PROVISIONAL) != 0) {
+            return;
+        }
+        offeredCount++;
+        if (TouchProtocol.isMotion(op) && tail > head) {
+            int last = (int) (tail - 1) & mask;
+            if (TouchProtocol.isMotion(opcode[last]) && merge(last, op, px, py)) {
+                flags[last] = f;
+                timestamp[last] = time;
+                spooledAt[last] = nowMs;
+                collapsedCount++;
+                return;
+            }
+        }
+        if (tail - head > mask) {
+            head++;
+            evictedCount++;
+        }
+        int index = (int) tail++ & mask;
+        opcode[index] = op;
+        flags[index] = f;
+        timestamp[index] = time;
+        x[index] = px;
+        y[index] = py;
+        spooledAt[index] = nowMs;
+    }
+
+    // 合并进最后一条移动记录，放不下时返回 false
+    private boolean merge(int index, int op, float px, float py) {
+        if (op == TouchProtocol.OP_POSITION) {
+            // 位置记录覆盖之前的位移
+            opcode[index] = op;
+            x[index] = px;
+            y[index] = py;
+            return true;
+        }
+        if (opcode[index] == TouchProtocol.OP_POSITION) {
+            // 位置之后的位移加在位置上，回绕到16位
+            x[index] = TouchProtocol.wrapPosition(x[index] + px);
+            y[index] = TouchProtocol.wrapPosition(y[index] + py);
+            return true;
+        }
+        float mx = x[index] + px;
+        float my = y[index] + py;
+        if (Math.abs(mx) > MAX_MERGED_DELTA || Math.abs(my) > MAX_MERGED_DELTA) {
+            return false;
+        }
+        x[index] = mx;
+        y[index] = my;
+        return true;
+    }
+
+    /**
+     * 淘汰过期记录后按顺序取出最多 max 条，返回取出的条数。
+     * 回调中的 {@link TouchEvent} 会被复用，不要保存引用。
+     */
+    public synchronized int drain(OutboundEventQueue.Consumer consumer, int max, long nowMs) {
+        expire(nowMs);
+        int count = 0;
+        while (count < max && head < tail) {
+            int index = (int) head++ & mask;
+            scratch.set(opcode[index], flags[index], timestamp[index], x[index], y[index]);
+            scratch.enqueuedNanos = System.nanoTime();
+            consumer.accept(scratch);
+            count++;
+        }
+        return count;
+    }
+
+    private void expire(long nowMs) {
+        // 写入时间按顺序不减（合并只更新最后一条），从头部淘汰即可
+        while (head < tail && nowMs - spooledAt[(int) head & mask] > maxAgeMs) {
+            head++;
+            expiredCount++;
+        }
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        tail = 0;
+    }
+
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    public synchronized boolean isEmpty() {
+        return head == tail;
+    }
+
+    /** 暂存过的非预测事件数，包括被合并的。 */
+    public synchronized long getOfferedCount() {
+        return offeredCount;
+    }
+
+    /** 合并进已有移动记录的事件数。 */
+    public synchronized long getCollapsedCount() {
+        return collapsedCount;
+    }
+
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /** 满时被淘汰的记录数。 */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public synchronized void setMaxAgeMs(long maxAgeMs) {
+        if (maxAgeMs <= 0) {
+            throw new IllegalArgumentException("maxAgeMs must be positive: " + maxAgeMs);
+        }
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public synchronized long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+}
@@ -0,0 +1,224 @@
+package com.chire.touchpadapp.core;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者/单消费者的有界出站事件队列，入队不分配对象。
+ *
+ * 移动事件与可靠事件分别放在两个环形缓冲区中，出队时按入队序号合并，保持整体顺序：
+ * <ul>
+ *   <li>移动事件满时丢弃最旧的一条（drop-oldest）</li>
+ *   <li>可靠事件（单击等）永不丢弃，环满时溢出到无界链表，仅在极端拥塞时才会分配</li>
+ * </ul>
+ * 生产者通常是UI线程，消费者是发送线程。
+ */
+public final class OutboundEventQueue {
+
+    public interface Consumer {
+        void accept(TouchEvent event);
+    }
+
+    private final Ring motion;
+    private final Ring reliable;
+    private final ConcurrentLinkedQueue<Spilled> overflow = new ConcurrentLinkedQueue<>();
+
+    // 仅生产者写
+    private long nextStamp;
+    private volatile int highWaterMark;
+    private final AtomicLong droppedMotion = new AtomicLong();
+    private final AtomicLong overflowedReliable = new AtomicLong();
+
+    // 仅消费者使用
+    private final TouchEvent scratch = new TouchEvent();
+
+    public OutboundEventQueue(int motionCapacity, int reliableCapacity) {
+        motion = new Ring(motionCapacity);
+        reliable = new Ring(reliableCapacity);
+    }
+
+    /** 生产者入队，按 {@link TouchProtocol#isMotion} 选择溢出策略。 */
+    public void offer(int opcode, int flags, long timestamp, float x, float y) {
+        long stamp = nextStamp++;
+        if (TouchProtocol.isMotion(opcode)) {
+            if (motion.offerDropOldest(stamp, opcode, flags, timestamp, x, y)) {
+                droppedMotion.incrementAndGet();
+            }
+        } else if (!overflow.isEmpty() || !reliable.offer(stamp, opcode, flags, timestamp, x, y)) {
+            // 溢出区非空时也必须继续溢出，否则会越过更早的事件
+            TouchEvent spilled = new TouchEvent().set(opcode, flags, timestamp, x, y);
+            spilled.enqueuedNanos = System.nanoTime();
+            overflow.add(new Spilled(stamp, spilled));
+            overflowedReliable.incrementAndGet();
+        }
+
+        int depth = size();
+        if (depth > highWaterMark) {
+            highWaterMark = depth;
+        }
+    }
+
+    /**
+     * 消费者按入队顺序取出最多 max 条事件，返回实际条数。
+     * 回调中的 {@link TouchEvent} 会被复用，不要保存引用。
+     */
+    public int drain(Consumer consumer, int max) {
+        int count = 0;
+        while (count < max) {
+            long motionHead = motion.head.get();
+            long motionStamp = motionHead < motion.tail.get()
+                    ? motion.read(motionHead, scratch) : Long.MAX_VALUE;
+
+            Spilled spilled = null;
+            long reliableStamp;
+            if (reliable.isEmpty()) {
+                spilled = overflow.peek();
+                if (spilled != null && !reliable.isEmpty()) {
+                    // 期间生产者先填满了环再溢出，环里的事件更早，重新选择
+                    continue;
+                }
+                reliableStamp = spilled != null ? spilled.stamp : Long.MAX_VALUE;
+            } else {
+                reliableStamp = reliable.stamp[reliable.index(reliable.head.get())];
+            }
+
+            if (motionStamp == Long.MAX_VALUE && reliableStamp == Long.MAX_VALUE) {
+                break;
+            }
+
+            if (motionStamp < reliableStamp) {
+                // 读取期间生产者可能丢弃了这条，CAS失败则重读
+                if (!motion.head.compareAndSet(motionHead, motionHead + 1)) {
+                    continue;
+                }
+                consumer.accept(scratch);
+            } else if (spilled != null) {
+                overflow.poll();
+                consumer.accept(spilled.event);
+            } else {
+                long head = reliable.head.get();
+                reliable.read(head, scratch);
+                reliable.head.set(head + 1);
+                consumer.accept(scratch);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        return motion.size() + reliable.size() + overflow.size();
+    }
+
+    public boolean isEmpty() {
+        return motion.isEmpty() && reliable.isEmpty() && overflow.isEmpty();
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public long getDroppedMotionCount() {
+        return droppedMotion.get();
+    }
+
+    public long getOverflowedReliableCount() {
+        return overflowedReliable.get();
+    }
+
+    /** 清空队列，只能由消费者线程或在两端都停止时调用。 */
+    public void clear() {
+        motion.head.set(motion.tail.get());
+        reliable.head.set(reliable.tail.get());
+        overflow.clear();
+    }
+
+    private static final class Spilled {
+        final long stamp;
+        final TouchEvent event;
+
+        Spilled(long stamp, TouchEvent event) {
+            this.stamp = stamp;
+            this.event = event;
+        }
+    }
+
+    private static final class Ring {
+        final int mask;
+        final long[] stamp;
+        final int[] opcode;
+        final int[] flags;
+        final long[] timestamp;
+        final float[] x;
+        final float[] y;
+        final long[] enqueuedNanos;
+        // head 由消费者推进；drop-oldest 时生产者也会CAS推进
+        final AtomicLong head = new AtomicLong();
+        final AtomicLong tail = new AtomicLong();
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+            mask = size - 1;
+            stamp = new long[size];
+            opcode = new int[size];
+            flags = new int[size];
+            timestamp = new long[size];
+            x = new float[size];
+            y = new float[size];
+            enqueuedNanos = new long[size];
+        }
+
+        int index(long sequence) {
+            return (int) sequence & mask;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head.get());
+        }
+
+        boolean isEmpty() {
+            return head.get() >= tail.get();
+        }
+
+        boolean offer(long s, int op, int f, long t, float px, float py) {
+            long t0 = tail.get();
+            if (t0 - head.get() > mask) {
+                return false;
+            }
+            write(t0, s, op, f, t, px, py);
+            return true;
+        }
+
+        /** 返回是否丢弃了最旧的一条。 */
+        boolean offerDropOldest(long s, int op, int f, long t, float px, float py) {
+            long t0 = tail.get();
+            long h = head.get();
+            boolean dropped = false;
+            if (t0 - h > mask) {
+                // CAS失败说明消费者刚取走一条，已有空位
+                dropped = head.compareAndSet(h, h + 1);
+            }
+            write(t0, s, op, f, t, px, py);
+            return dropped;
+        }
+
+        private void write(long sequence, long s, int op, int f, long t, float px, float py) {
+            int i = index(sequence);
+            stamp[i] = s;
+            opcode[i] = op;
+            flags[i] = f;
+            timestamp[i] = t;
+            x[i] = px;
+            y[i] = py;
+            enqueuedNanos[i] = System.nanoTime();
+            tail.lazySet(sequence + 1);
+        }
+
+        long read(long sequence, TouchEvent out) {
+            int i = index(sequence);
+            out.set(opcode[i], flags[i], timestamp[i], x[i], y[i]);
+            out.enqueuedNanos = enqueuedNanos[i];
+            return stamp[i];
+        }
+    }
+}
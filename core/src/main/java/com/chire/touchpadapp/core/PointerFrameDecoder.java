@@ -0,0 +1,52 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * {@link PointerTracker} 多指帧的解码器。不依赖Android，解码过程不分配对象。
+ */
+public final class PointerFrameDecoder {
+
+    public interface Listener {
+        /** 每帧先回调一次，gestures 为 {@link PointerTracker#GESTURE_SCROLL} 等位的组合。 */
+        void onFrame(long timestamp, int gestures, float scrollX, float scrollY, float scale, float rotation);
+
+        void onPointer(int id, int state, float x, float y);
+    }
+
+    /**
+     * 解码一帧，返回触点数。
+     *
+     * @throws IllegalArgumentException 不是多指帧、版本不支持或长度不符
+     */
+    public int decode(byte[] frame, int offset, int length, Listener listener) {
+        if (length < PointerTracker.FRAME_HEADER_SIZE
+                || TouchProtocol.frameVersion(frame[offset]) != TouchProtocol.VERSION
+                || TouchProtocol.frameKind(frame[offset]) != TouchProtocol.KIND_POINTERS) {
+            throw new IllegalArgumentException("Not a pointer frame: " + length + " bytes");
+        }
+        int pos = offset + TouchProtocol.HEADER_SIZE;
+        long timestamp = TouchProtocol.getInt(frame, pos) & 0xFFFFFFFFL;
+        int count = frame[pos + 4] & 0xFF;
+        int gestures = frame[pos + 5] & 0xFF;
+        if (length != PointerTracker.FRAME_HEADER_SIZE + count * PointerTracker.POINTER_SIZE) {
+            throw new IllegalArgumentException("Truncated pointer frame: " + length + " bytes");
+        }
+        listener.onFrame(timestamp, gestures,
+                TouchProtocol.dequantize(TouchProtocol.getShort(frame, pos + 6)),
+                TouchProtocol.dequantize(TouchProtocol.getShort(frame, pos + 8)),
+                1f + TouchProtocol.getShort(frame, pos + 10) / PointerTracker.GESTURE_SCALE,
+                TouchProtocol.getShort(frame, pos + 12) / PointerTracker.GESTURE_SCALE);
+
+        pos = offset + PointerTracker.FRAME_HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            listener.onPointer(frame[pos] & 0xFF, frame[pos + 1] & 0xFF,
+                    TouchProtocol.dequantize(TouchProtocol.getShort(frame, pos + 2)),
+                    TouchProtocol.dequantize(TouchProtocol.getShort(frame, pos + 4)));
+            pos += PointerTracker.POINTER_SIZE;
+        }
+        return count;
+    }
+
+    public int decode(byte[] frame, Listener listener) {
+        return decode(frame, 0, frame.length, listener);
+    }
+}
@@ -0,0 +1,285 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 按触点ID跟踪多指触摸，每个输入帧编码为一个多指帧，并派生两指滚动、缩放和旋转手势。
+ *
+ * <pre>
+ * [header:u8 kind=4][timestamp:u32 毫秒][count:u8][gestures:u8]
+ * [scrollX:s16][scrollY:s16][scale:s16][rotation:s16]
+ * 之后 count 个触点: [id:u8][state:u8][x:s16][y:s16]
+ * </pre>
+ *
+ * 触点坐标为触摸区域内的绝对位置，定点数同 {@link TouchProtocol#COORD_SCALE}。
+ * 手势均为相对上一帧的变化量，只由两帧都存在的触点计算：
+ * scroll 为触点重心的位移，方向约定同 {@link TouchProtocol#OP_SCROLL}（上一位置 - 当前位置）；
+ * scale 为触点到重心平均距离之比，编码为 (scale - 1) * {@link #GESTURE_SCALE}；
+ * rotation 为ID最小的两个触点连线转过的弧度（顺时针为正），编码为 rotation * {@link #GESTURE_SCALE}。
+ *
+ * 抬起的触点在最后一帧带 {@link #POINTER_UP} 出现一次。非线程安全，编码过程不分配对象。
+ */
+public final class PointerTracker {
+
+    public static final int MAX_POINTERS = 10;
+
+    // 触点状态位
+    public static final int POINTER_DOWN = 0x01; // 本帧新按下
+    public static final int POINTER_UP = 0x02;   // 本帧抬起，之后不再出现
+
+    // 帧中携带的手势，对应字段无效时为0
+    public static final int GESTURE_SCROLL = 0x01;
+    public static final int GESTURE_PINCH = 0x02;
+    public static final int GESTURE_ROTATE = 0x04;
+
+    public static final float GESTURE_SCALE = 4096f;
+
+    public static final int FRAME_HEADER_SIZE = TouchProtocol.HEADER_SIZE + 4 + 1 + 1 + 2 + 2 + 2 + 2;
+    public static final int POINTER_SIZE = 6;
+    public static final int MAX_FRAME_SIZE = FRAME_HEADER_SIZE + MAX_POINTERS * POINTER_SIZE;
+
+    // 触点间距太小时缩放和旋转不稳定
+    private static final float MIN_SPAN = 8f;
+
+    private final int[] ids = new int[MAX_POINTERS];
+    private final int[] states = new int[MAX_POINTERS];
+    private final boolean[] tracked = new boolean[MAX_POINTERS]; // 上一帧已存在
+    private final float[] xs = new float[MAX_POINTERS];
+    private final float[] ys = new float[MAX_POINTERS];
+    private final float[] prevXs = new float[MAX_POINTERS];
+    private final float[] prevYs = new float[MAX_POINTERS];
+    private int count;
+    private boolean dirty;
+
+    // 最近一帧的手势
+    private int gestures;
+    private float scrollX;
+    private float scrollY;
+    private float scale = 1f;
+    private float rotation;
+
+    /** 触点按下；已满 {@link #MAX_POINTERS} 时忽略并返回 false。 */
+    public boolean pointerDown(int id, float x, float y) {
+        int slot = find(id);
+        if (slot < 0) {
+            if (count == MAX_POINTERS) {
+                return false;
+            }
+            slot = count++;
+            ids[slot] = id;
+            tracked[slot] = false;
+            states[slot] = POINTER_DOWN;
+        }
+        xs[slot] = x;
+        ys[slot] = y;
+        dirty = true;
+        return true;
+    }
+
+    public void pointerMove(int id, float x, float y) {
+        int slot = find(id);
+        if (slot < 0 || (states[slot] & POINTER_UP) != 0) {
+            return;
+        }
+        if (xs[slot] != x || ys[slot] != y) {
+            xs[slot] = x;
+            ys[slot] = y;
+            dirty = true;
+        }
+    }
+
+    public void pointerUp(int id, float x, float y) {
+        int slot = find(id);
+        if (slot < 0) {
+            return;
+        }
+        xs[slot] = x;
+        ys[slot] = y;
+        states[slot] |= POINTER_UP;
+        dirty = true;
+    }
+
+    /** 触摸被取消：全部触点在下一帧抬起。 */
+    public void cancelAll() {
+        for (int i = 0; i < count; i++) {
+            states[i] |= POINTER_UP;
+        }
+        dirty = count > 0;
+    }
+
+    /** 未抬起的触点数。 */
+    public int getActiveCount() {
+        int active = 0;
+        for (int i = 0; i < count; i++) {
+            if ((states[i] & POINTER_UP) == 0) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public boolean hasChanges() {
+        return dirty;
+    }
+
+    /**
+     * 把自上一帧以来的变化编码为一帧写入 out（至少 {@link #MAX_FRAME_SIZE} 字节可用），
+     * 返回写入后的偏移；没有变化时不写入，直接返回 offset。
+     */
+    public int encodeFrame(long timestamp, byte[] out, int offset) {
+        if (!dirty) {
+            return offset;
+        }
+        computeGestures();
+
+        int pos = TouchProtocol.writeHeader(out, offset, TouchProtocol.KIND_POINTERS);
+        TouchProtocol.putInt(out, pos, (int) timestamp);
+        out[pos + 4] = (byte) count;
+        out[pos + 5] = (byte) gestures;
+        TouchProtocol.putShort(out, pos + 6, TouchProtocol.quantize(scrollX));
+        TouchProtocol.putShort(out, pos + 8, TouchProtocol.quantize(scrollY));
+        TouchProtocol.putShort(out, pos + 10, clampShort((scale - 1f) * GESTURE_SCALE));
+        TouchProtocol.putShort(out, pos + 12, clampShort(rotation * GESTURE_SCALE));
+        pos += FRAME_HEADER_SIZE - TouchProtocol.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            out[pos] = (byte) ids[i];
+            out[pos + 1] = (byte) states[i];
+            TouchProtocol.putShort(out, pos + 2, TouchProtocol.quantize(xs[i]));
+            TouchProtocol.putShort(out, pos + 4, TouchProtocol.quantize(ys[i]));
+            pos += POINTER_SIZE;
+        }
+
+        advance();
+        return pos;
+    }
+
+    public int getGestures() {
+        return gestures;
+    }
+
+    public float getScrollX() {
+        return scrollX;
+    }
+
+    public float getScrollY() {
+        return scrollY;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public float getRotation() {
+        return rotation;
+    }
+
+    private void computeGestures() {
+        gestures = 0;
+        scrollX = 0;
+        scrollY = 0;
+        scale = 1f;
+        rotation = 0;
+
+        int first = -1;
+        int second = -1;
+        int n = 0;
+        float cx = 0, cy = 0, px = 0, py = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isContinuing(i)) {
+                continue;
+            }
+            cx += xs[i];
+            cy += ys[i];
+            px += prevXs[i];
+            py += prevYs[i];
+            n++;
+            if (first < 0 || ids[i] < ids[first]) {
+                second = first;
+                first = i;
+            } else if (second < 0 || ids[i] < ids[second]) {
+                second = i;
+            }
+        }
+        if (n < 2) {
+            return;
+        }
+        cx /= n;
+        cy /= n;
+        px /= n;
+        py /= n;
+        scrollX = px - cx;
+        scrollY = py - cy;
+        if (scrollX != 0 || scrollY != 0) {
+            gestures |= GESTURE_SCROLL;
+        }
+
+        float span = 0;
+        float prevSpan = 0;
+        for (int i = 0; i < count; i++) {
+            if (isContinuing(i)) {
+                span += (float) Math.hypot(xs[i] - cx, ys[i] - cy);
+                prevSpan += (float) Math.hypot(prevXs[i] - px, prevYs[i] - py);
+            }
+        }
+        span /= n;
+        prevSpan /= n;
+        if (span >= MIN_SPAN && prevSpan >= MIN_SPAN) {
+            scale = span / prevSpan;
+            if (scale != 1f) {
+                gestures |= GESTURE_PINCH;
+            }
+
+            double angle = Math.atan2(ys[second] - ys[first], xs[second] - xs[first]);
+            double prevAngle = Math.atan2(prevYs[second] - prevYs[first], prevXs[second] - prevXs[first]);
+            double delta = angle - prevAngle;
+            if (delta > Math.PI) {
+                delta -= 2 * Math.PI;
+            } else if (delta <= -Math.PI) {
+                delta += 2 * Math.PI;
+            }
+            rotation = (float) delta;
+            if (rotation != 0) {
+                gestures |= GESTURE_ROTATE;
+            }
+        }
+    }
+
+    // 上一帧已存在且本帧未抬起
+    private boolean isContinuing(int slot) {
+        return tracked[slot] && (states[slot] & POINTER_UP) == 0;
+    }
+
+    // 当前位置成为下一帧的起点，移除已抬起的触点
+    private void advance() {
+        int write = 0;
+        for (int i = 0; i < count; i++) {
+            if ((states[i] & POINTER_UP) != 0) {
+                continue;
+            }
+            ids[write] = ids[i];
+            states[write] = 0;
+            tracked[write] = true;
+            xs[write] = xs[i];
+            ys[write] = ys[i];
+            prevXs[write] = xs[i];
+            prevYs[write] = ys[i];
+            write++;
+        }
+        count = write;
+        dirty = false;
+    }
+
+    private int find(int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int clampShort(float value) {
+        int raw = Math.round(value);
+        if (raw > Short.MAX_VALUE) return Short.MAX_VALUE;
+        if (raw < Short.MIN_VALUE) return Short.MIN_VALUE;
+        return raw;
+    }
+}
@@ -0,0 +1,59 @@
+package com.chire.touchpadapp.core;
+
+import java.util.Random;
+
+/**
+ * 带抖动的指数退避：第 n 次重连的上限为 min(maxDelay, initialDelay * 2^n)，
+ * 实际延迟在上限的一半到上限之间随机取值，避免大量客户端在服务端恢复时同时重连。
+ *
+ * 非线程安全，由调用方加锁。
+ */
+public final class ReconnectBackoff {
+
+    private final Random random;
+    private long initialDelayMs;
+    private long maxDelayMs;
+    private int maxAttempts;
+    private int attempts;
+
+    public ReconnectBackoff(long initialDelayMs, long maxDelayMs, int maxAttempts) {
+        this(initialDelayMs, maxDelayMs, maxAttempts, new Random());
+    }
+
+    ReconnectBackoff(long initialDelayMs, long maxDelayMs, int maxAttempts, Random random) {
+        this.random = random;
+        configure(initialDelayMs, maxDelayMs, maxAttempts);
+    }
+
+    /** maxAttempts 小于等于0表示不限次数。 */
+    public void configure(long initialDelayMs, long maxDelayMs, int maxAttempts) {
+        if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs) {
+            throw new IllegalArgumentException("Invalid backoff: " + initialDelayMs + ".." + maxDelayMs);
+        }
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /** 下一次重连前的等待时间（毫秒）并计数；超过最大次数时返回 -1。 */
+    public long nextDelayMs() {
+        if (maxAttempts > 0 && attempts >= maxAttempts) {
+            return -1;
+        }
+        // 位移不超过62位，避免溢出
+        int shift = Math.min(attempts, 62 - (63 - Long.numberOfLeadingZeros(initialDelayMs)));
+        long ceiling = Math.min(maxDelayMs, initialDelayMs << shift);
+        attempts++;
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half + 1));
+    }
+
+    /** 连接成功后调用。 */
+    public void reset() {
+        attempts = 0;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,226 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 断线续传用的重发缓冲区：保存已发送（或断线期间尚未发出）但还没被接收端确认的事件。
+ *
+ * {@link #append} 按顺序分配序号，{@link #ack} 累积确认并释放，{@link #replay} 依次输出全部未确认事件：
+ * 连续的滑动记录合并为一条净位移（取最后一条的序号和时间），其中有 {@link TouchProtocol#OP_POSITION}
+ * 时合并为一条位置记录（最后的位置加上其后的位移），预测记录直接丢弃。
+ * 缓冲区满时先按同样的规则原地合并，仍然放不下才淘汰最旧的记录。
+ * 原地合并只涉及尚未交给连接的记录（见 {@link #markSent}）：已发出的记录可能已被接收端应用，
+ * 合并后取最大序号的记录在续传确认后仍会保留，重放时会把已应用的位移再发一次。
+ *
+ * 线程安全：发送线程追加和重放，读线程确认。
+ */
+public final class RetransmitBuffer {
+
+    public interface Sink {
+        void accept(int seq, int opcode, int flags, long timestamp, float x, float y);
+    }
+
+    // 合并后的净位移不能超出协议坐标范围，超出时拆成多条
+    private static final float MAX_MERGED_DELTA = Short.MAX_VALUE / TouchProtocol.COORD_SCALE;
+
+    private final int mask;
+    private final int[] seq;
+    private final int[] opcode;
+    private final int[] flags;
+    private final long[] timestamp;
+    private final float[] x;
+    private final float[] y;
+    private long head;
+    private long tail;
+
+    private int nextSeq = 1;
+    private int lastAcked;
+    private int sentSeq; // 已交给连接的最大序号
+    private long collapsedCount;
+    private long evictedCount;
+
+    // 原地合并时的写入位置
+    private long compactWrite;
+    private final Sink compactor = this::writeCompacted;
+
+    public RetransmitBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        mask = size - 1;
+        seq = new int[size];
+        opcode = new int[size];
+        flags = new int[size];
+        timestamp = new long[size];
+        x = new float[size];
+        y = new float[size];
+    }
+
+    /** 追加一条事件，返回分配的序号。 */
+    public synchronized int append(int opcode, int flags, long timestamp, float x, float y) {
+        if (tail - head > mask) {
+            compact();
+            if (tail - head > mask) {
+                head++;
+                evictedCount++;
+            }
+        }
+        int s = nextSeq++;
+        write(tail++, s, opcode, flags, timestamp, x, y);
+        return s;
+    }
+
+    /** 接收端确认已收到序号不大于 ackSeq 的全部事件。 */
+    public synchronized void ack(int ackSeq) {
+        // 序号按有符号差值比较，回绕后依然有效
+        if (ackSeq - lastAcked > 0) {
+            lastAcked = ackSeq;
+        }
+        while (head < tail && seq[(int) head & mask] - ackSeq <= 0) {
+            head++;
+        }
+    }
+
+    /** 序号不大于 seq 的记录已交给连接，不再参与缓冲区满时的原地合并。 */
+    public synchronized void markSent(int seq) {
+        if (seq - sentSeq > 0) {
+            sentSeq = seq;
+        }
+    }
+
+    /** 按顺序输出合并后的未确认事件，不会移除它们，返回输出的条数。 */
+    public synchronized int replay(Sink sink) {
+        // 续传确认之后调用，其余记录接收端都没有应用过，可以整体合并
+        return collapse(head, sink);
+    }
+
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    public synchronized int getLastAcked() {
+        return lastAcked;
+    }
+
+    /** 下一个将要分配的序号。 */
+    public synchronized int getNextSeq() {
+        return nextSeq;
+    }
+
+    /** 缓冲区满时因合并而省去的记录数。 */
+    public synchronized long getCollapsedCount() {
+        return collapsedCount;
+    }
+
+    /** 合并后仍放不下而被淘汰的记录数，不为0说明接收端可能丢失了事件。 */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /** 开始新会话：清空并从序号1重新开始。 */
+    public synchronized void clear() {
+        head = 0;
+        tail = 0;
+        nextSeq = 1;
+        lastAcked = 0;
+        sentSeq = 0;
+    }
+
+    private void compact() {
+        long before = tail - head;
+        long from = head;
+        while (from < tail && seq[(int) from & mask] - sentSeq <= 0) {
+            from++;
+        }
+        compactWrite = from;
+        collapse(from, compactor);
+        tail = compactWrite;
+        collapsedCount += before - (tail - head);
+    }
+
+    private void writeCompacted(int s, int op, int f, long t, float px, float py) {
+        // 输出条数不超过已读条数，写入位置不会越过读取位置
+        write(compactWrite++, s, op, f, t, px, py);
+    }
+
+    private int collapse(long from, Sink sink) {
+        int emitted = 0;
+        boolean pending = false;
+        boolean pendingPosition = false;
+        int pendingSeq = 0;
+        int pendingFlags = 0;
+        long pendingTime = 0;
+        float pendingX = 0;
+        float pendingY = 0;
+
+        for (long i = from; i < tail; i++) {
+            int index = (int) i & mask;
+            int s = seq[index];
+            int op = opcode[index];
+            int f = flags[index];
+            long t = timestamp[index];
+            float px = x[index];
+            float py = y[index];
+
+            if ((f & TouchProtocol.FLAG_PROVISIONAL) != 0) {
+                continue;
+            }
+            if (TouchProtocol.isMotion(op)) {
+                if (pending && !pendingPosition && op == TouchProtocol.OP_SCROLL
+                        && (Math.abs(pendingX + px) > MAX_MERGED_DELTA
+                        || Math.abs(pendingY + py) > MAX_MERGED_DELTA)) {
+                    emitMotion(sink, pendingSeq, pendingPosition, pendingFlags, pendingTime, pendingX, pendingY);
+                    emitted++;
+                    pending = false;
+                }
+                if (!pending) {
+                    pending = true;
+                    pendingPosition = false;
+                    pendingX = 0;
+                    pendingY = 0;
+                }
+                if (op == TouchProtocol.OP_POSITION) {
+                    // 位置记录覆盖之前的位移
+                    pendingPosition = true;
+                    pendingX = px;
+                    pendingY = py;
+                } else {
+                    pendingX += px;
+                    pendingY += py;
+                }
+                pendingSeq = s;
+                pendingFlags = f;
+                pendingTime = t;
+                continue;
+            }
+
+            if (pending) {
+                emitMotion(sink, pendingSeq, pendingPosition, pendingFlags, pendingTime, pendingX, pendingY);
+                emitted++;
+                pending = false;
+            }
+            sink.accept(s, op, f, t, px, py);
+            emitted++;
+        }
+        if (pending) {
+            emitMotion(sink, pendingSeq, pendingPosition, pendingFlags, pendingTime, pendingX, pendingY);
+            emitted++;
+        }
+        return emitted;
+    }
+
+    private static void emitMotion(Sink sink, int s, boolean position, int f, long t, float px, float py) {
+        if (position) {
+            sink.accept(s, TouchProtocol.OP_POSITION, f, t,
+                    TouchProtocol.wrapPosition(px), TouchProtocol.wrapPosition(py));
+        } else {
+            sink.accept(s, TouchProtocol.OP_SCROLL, f, t, px, py);
+        }
+    }
+
+    private void write(long position, int s, int op, int f, long t, float px, float py) {
+        int index = (int) position & mask;
+        seq[index] = s;
+        opcode[index] = op;
+        flags[index] = f;
+        timestamp[index] = t;
+        x[index] = px;
+        y[index] = py;
+    }
+}
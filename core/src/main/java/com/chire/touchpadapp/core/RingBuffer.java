@@ -0,0 +1,68 @@
+package com.chire.touchpadapp.core;
+
+import java.util.Arrays;
+
+/**
+ * 固定容量的环形缓冲区，满了以后覆盖最旧的元素。非线程安全。
+ */
+public final class RingBuffer<T> {
+
+    private Object[] items;
+    private int head; // 最旧元素的位置
+    private int size;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        items = new Object[capacity];
+    }
+
+    public void add(T item) {
+        if (size < items.length) {
+            items[(head + size) % items.length] = item;
+            size++;
+        } else {
+            items[head] = item;
+            head = (head + 1) % items.length;
+        }
+    }
+
+    /** index 0 为最旧的元素。 */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return (T) items[(head + index) % items.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    /** 调整容量，超出部分丢弃最旧的元素。 */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int keep = Math.min(size, capacity);
+        Object[] resized = new Object[capacity];
+        for (int i = 0; i < keep; i++) {
+            resized[i] = items[(head + size - keep + i) % items.length];
+        }
+        items = resized;
+        head = 0;
+        size = keep;
+    }
+
+    public void clear() {
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,137 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 把关键点折线拟合为二次贝塞尔曲线：以每个中间关键点为控制点，
+ * 相邻关键点的中点为曲线段端点，首尾两段为直线。曲线在每个中点处切线连续。
+ *
+ * 曲线在拐角处偏离折线的距离为 |A + C - 2P| / 8（A、C 为前后关键点），
+ * 超过容差时把曲线段收缩到拐角附近、两侧补直线，使偏离恰好等于容差，急转弯不会被削平。
+ *
+ * 本地绘制和接收端以相同的关键点和容差构造，结果一致。
+ * 可以逐点增量构造（绘制中），也可以用 {@link #build} 一次构造（解码或恢复的笔画）。
+ */
+public final class SmoothCurveBuilder {
+
+    public interface PathSink {
+        void moveTo(float x, float y);
+
+        void lineTo(float x, float y);
+
+        void quadTo(float controlX, float controlY, float x, float y);
+    }
+
+    private final PathSink sink;
+    private float tolerance;
+    private int count;
+    private float prevX;
+    private float prevY;
+    private float keyX;
+    private float keyY;
+    // 已输出曲线的终点：第一个关键点或最近两个关键点的中点
+    private float tailX;
+    private float tailY;
+
+    public SmoothCurveBuilder(float tolerance, PathSink sink) {
+        this.sink = sink;
+        setTolerance(tolerance);
+    }
+
+    /** 拐角处允许的最大偏离，一般与 {@link StrokeSimplifier} 的容差相同。从下一个笔画开始生效。 */
+    public void setTolerance(float tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance must not be negative: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    public void begin(float x, float y) {
+        count = 1;
+        keyX = x;
+        keyY = y;
+        tailX = x;
+        tailY = y;
+        sink.moveTo(x, y);
+    }
+
+    public void addPoint(float x, float y) {
+        if (count == 0) {
+            begin(x, y);
+            return;
+        }
+        float midX = (keyX + x) / 2;
+        float midY = (keyY + y) / 2;
+        if (count == 1) {
+            sink.lineTo(midX, midY);
+        } else {
+            corner(x, y, midX, midY);
+        }
+        tailX = midX;
+        tailY = midY;
+        prevX = keyX;
+        prevY = keyY;
+        keyX = x;
+        keyY = y;
+        count++;
+    }
+
+    // 以 keyX/keyY 为控制点，从 tail 到 (midX, midY)
+    private void corner(float nextX, float nextY, float midX, float midY) {
+        float ex = prevX + nextX - 2 * keyX;
+        float ey = prevY + nextY - 2 * keyY;
+        float deviation = (float) Math.sqrt(ex * ex + ey * ey) / 8;
+        if (deviation <= tolerance) {
+            sink.quadTo(keyX, keyY, midX, midY);
+            return;
+        }
+        float f = tolerance / deviation;
+        sink.lineTo(keyX + (tailX - keyX) * f, keyY + (tailY - keyY) * f);
+        if (f > 0) {
+            sink.quadTo(keyX, keyY, keyX + (midX - keyX) * f, keyY + (midY - keyY) * f);
+        }
+        sink.lineTo(midX, midY);
+    }
+
+    /** 补上最后半段直线。 */
+    public void end() {
+        if (count > 0) {
+            sink.lineTo(keyX, keyY);
+            tailX = keyX;
+            tailY = keyY;
+        }
+        count = 0;
+    }
+
+    public int getKeyPointCount() {
+        return count;
+    }
+
+    public float getTailX() {
+        return tailX;
+    }
+
+    public float getTailY() {
+        return tailY;
+    }
+
+    /** 最近一个关键点，尚未被曲线覆盖的部分为 tail → 关键点。 */
+    public float getKeyX() {
+        return keyX;
+    }
+
+    public float getKeyY() {
+        return keyY;
+    }
+
+    /** 对交错存储的前 count 个关键点一次构造完整曲线。 */
+    public static void build(float[] points, int count, float tolerance, PathSink sink) {
+        if (count <= 0) {
+            return;
+        }
+        SmoothCurveBuilder builder = new SmoothCurveBuilder(tolerance, sink);
+        builder.begin(points[0], points[1]);
+        for (int i = 1; i < count; i++) {
+            builder.addPoint(points[i * 2], points[i * 2 + 1]);
+        }
+        builder.end();
+    }
+}
@@ -0,0 +1,76 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * {@link StrokeEncoder} 分块的解码器。不依赖Android，解码过程不分配对象。
+ */
+public final class StrokeDecoder {
+
+    public interface Listener {
+        void onStrokeBegin(int strokeId, int color, float width);
+
+        /**
+         * 带 {@link StrokeEncoder#FLAG_CURVE} 的笔画：点为关键点，应以 curveTolerance
+         * 按 {@link SmoothCurveBuilder} 绘制。默认当作普通笔画。
+         */
+        default void onCurveStrokeBegin(int strokeId, int color, float width, float curveTolerance) {
+            onStrokeBegin(strokeId, color, width);
+        }
+
+        void onPoint(int strokeId, float x, float y);
+
+        void onStrokeEnd(int strokeId);
+    }
+
+    private final Varint.Reader reader = new Varint.Reader();
+
+    /**
+     * 解码一个分块，返回其中的点数。
+     *
+     * @throws IllegalArgumentException 不是笔画帧、版本不支持或数据不完整
+     */
+    public int decode(byte[] chunk, int offset, int length, Listener listener) {
+        reader.reset(chunk, offset, length);
+        byte header = (byte) reader.readByte();
+        if (TouchProtocol.frameVersion(header) != TouchProtocol.VERSION
+                || TouchProtocol.frameKind(header) != TouchProtocol.KIND_STROKE) {
+            throw new IllegalArgumentException("Not a stroke chunk: 0x" + Integer.toHexString(header & 0xFF));
+        }
+
+        int flags = reader.readByte();
+        int strokeId = reader.readVarint();
+        int scale = reader.readByte();
+        if (scale == 0) {
+            throw new IllegalArgumentException("Invalid scale");
+        }
+        float inv = 1f / scale;
+
+        if ((flags & StrokeEncoder.FLAG_BEGIN) != 0) {
+            int color = reader.readInt();
+            float width = reader.readVarint() * inv;
+            if ((flags & StrokeEncoder.FLAG_CURVE) != 0) {
+                listener.onCurveStrokeBegin(strokeId, color, width, reader.readVarint() * inv);
+            } else {
+                listener.onStrokeBegin(strokeId, color, width);
+            }
+        }
+
+        int count = 0;
+        int qx = 0;
+        int qy = 0;
+        while (reader.hasRemaining()) {
+            qx += reader.readSignedVarint();
+            qy += reader.readSignedVarint();
+            listener.onPoint(strokeId, qx * inv, qy * inv);
+            count++;
+        }
+
+        if ((flags & StrokeEncoder.FLAG_END) != 0) {
+            listener.onStrokeEnd(strokeId);
+        }
+        return count;
+    }
+
+    public int decode(byte[] chunk, Listener listener) {
+        return decode(chunk, 0, chunk.length, listener);
+    }
+}
@@ -0,0 +1,197 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 流式笔画编码器，用来替代 drawing_data JSON 里的绝对坐标数组。
+ *
+ * <pre>
+ * 笔画帧: [header:u8 kind=1][flags:u8][strokeId:varint][scale:u8]
+ *         若 FLAG_BEGIN: [color:u32][width:varint]，再若 FLAG_CURVE: [tolerance:varint]
+ *         [x0:zigzag][y0:zigzag] 后接 ([dx:zigzag][dy:zigzag])*
+ * </pre>
+ *
+ * 坐标量化为 1/scale 像素的整数；每个分块的第一个点为绝对坐标，其余为与前一点的差值，
+ * 因此分块之间互不依赖。长笔画在绘制过程中按 {@link #setChunkPoints} 分块发出，
+ * 不必等到抬笔。量化后与上一点重合的点会被跳过。
+ *
+ * 带 {@link #FLAG_CURVE} 的笔画发送的是简化后的关键点，接收端应以帧头中的容差按
+ * {@link SmoothCurveBuilder} 拟合为二次贝塞尔曲线，而不是逐点连线。
+ */
+public final class StrokeEncoder {
+
+    public interface ChunkSink {
+        void onChunk(byte[] data, int offset, int length);
+    }
+
+    public static final int FLAG_BEGIN = 0x01;
+    public static final int FLAG_END = 0x02;
+    public static final int FLAG_CURVE = 0x04;
+
+    public static final int DEFAULT_SCALE = 8;
+    public static final int DEFAULT_CHUNK_POINTS = 64;
+
+    // 帧头最长: 1 + 1 + 5 + 1 + 4 + 5 + 5
+    private static final int HEADER_RESERVE = 22;
+
+    private final ChunkSink sink;
+    private final byte[] header = new byte[HEADER_RESERVE];
+    private byte[] buffer;
+    private int chunkPoints;
+    private int scale = DEFAULT_SCALE;
+    private int chunkScale;
+
+    private boolean active;
+    private boolean beginPending;
+    private int strokeId;
+    private int color;
+    private float width;
+    private boolean curve;
+    private float curveTolerance;
+
+    private int pos;
+    private int pointCount;
+    private int lastQx;
+    private int lastQy;
+
+    // 统计
+    private long totalBytes;
+    private long totalChunks;
+
+    public StrokeEncoder(ChunkSink sink) {
+        this.sink = sink;
+        setChunkPoints(DEFAULT_CHUNK_POINTS);
+    }
+
+    /** 每个分块最多包含的点数。 */
+    public void setChunkPoints(int points) {
+        if (points <= 0) {
+            throw new IllegalArgumentException("points must be positive: " + points);
+        }
+        if (pointCount > 0) {
+            flush();
+        }
+        chunkPoints = points;
+        buffer = new byte[HEADER_RESERVE + points * 2 * Varint.MAX_BYTES];
+        pos = HEADER_RESERVE;
+    }
+
+    /** 量化精度（每像素的单位数），从下一个分块开始生效。 */
+    public void setScale(int scale) {
+        if (scale < 1 || scale > 255) {
+            throw new IllegalArgumentException("scale must be in [1, 255]: " + scale);
+        }
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public void beginStroke(int strokeId, int color, float width) {
+        beginStroke(strokeId, color, width, false, 0f);
+    }
+
+    /** 后续的点为 {@link SmoothCurveBuilder} 的关键点，tolerance 为拟合容差（像素）。 */
+    public void beginCurveStroke(int strokeId, int color, float width, float tolerance) {
+        beginStroke(strokeId, color, width, true, tolerance);
+    }
+
+    private void beginStroke(int strokeId, int color, float width, boolean curve, float tolerance) {
+        if (active) {
+            endStroke();
+        }
+        this.strokeId = strokeId;
+        this.color = color;
+        this.width = width;
+        this.curve = curve;
+        this.curveTolerance = tolerance;
+        active = true;
+        beginPending = true;
+        resetChunk();
+    }
+
+    public void addPoint(float x, float y) {
+        if (!active) {
+            throw new IllegalStateException("addPoint() before beginStroke()");
+        }
+        if (pointCount == chunkPoints) {
+            emit(0);
+        }
+
+        int qx = Math.round(x * chunkScale);
+        int qy = Math.round(y * chunkScale);
+        if (pointCount == 0) {
+            pos = Varint.writeSigned(buffer, pos, qx);
+            pos = Varint.writeSigned(buffer, pos, qy);
+        } else {
+            if (qx == lastQx && qy == lastQy) {
+                return;
+            }
+            pos = Varint.writeSigned(buffer, pos, qx - lastQx);
+            pos = Varint.writeSigned(buffer, pos, qy - lastQy);
+        }
+        lastQx = qx;
+        lastQy = qy;
+        pointCount++;
+    }
+
+    /** 把已积累的点作为一个中间分块发出，例如每帧调用一次。 */
+    public void flush() {
+        if (active && (pointCount > 0 || beginPending)) {
+            emit(0);
+        }
+    }
+
+    public void endStroke() {
+        if (!active) {
+            return;
+        }
+        emit(FLAG_END);
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getTotalChunks() {
+        return totalChunks;
+    }
+
+    private void emit(int extraFlags) {
+        int flags = extraFlags | (beginPending ? FLAG_BEGIN : 0) | (curve ? FLAG_CURVE : 0);
+
+        int h = TouchProtocol.writeHeader(header, 0, TouchProtocol.KIND_STROKE);
+        header[h++] = (byte) flags;
+        h = Varint.write(header, h, strokeId);
+        header[h++] = (byte) chunkScale;
+        if (beginPending) {
+            TouchProtocol.putInt(header, h, color);
+            h += 4;
+            h = Varint.write(header, h, Math.round(width * chunkScale));
+            if (curve) {
+                h = Varint.write(header, h, Math.round(curveTolerance * chunkScale));
+            }
+        }
+
+        // 帧头右对齐写到点数据前面，点数据本身不用复制
+        int start = HEADER_RESERVE - h;
+        System.arraycopy(header, 0, buffer, start, h);
+        int length = pos - start;
+        sink.onChunk(buffer, start, length);
+
+        totalBytes += length;
+        totalChunks++;
+        beginPending = false;
+        resetChunk();
+    }
+
+    private void resetChunk() {
+        pos = HEADER_RESERVE;
+        pointCount = 0;
+        chunkScale = scale;
+    }
+}
@@ -0,0 +1,60 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 笔画几何计算，点以 (x, y) 交错存储在 float[] 中。
+ */
+public final class StrokeGeometry {
+
+    private StrokeGeometry() {}
+
+    /** 点 (px, py) 到线段 (x0, y0)-(x1, y1) 的距离平方。 */
+    public static float segmentDistanceSq(float px, float py, float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float lengthSq = dx * dx + dy * dy;
+        float t = 0;
+        if (lengthSq > 0) {
+            t = ((px - x0) * dx + (py - y0) * dy) / lengthSq;
+            t = Math.max(0, Math.min(1, t));
+        }
+        float ex = x0 + t * dx - px;
+        float ey = y0 + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    /** 点到折线（前 count 个点）的最小距离平方，没有点时返回无穷大。 */
+    public static float polylineDistanceSq(float[] points, int count, float px, float py) {
+        if (count <= 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        if (count == 1) {
+            float dx = points[0] - px;
+            float dy = points[1] - py;
+            return dx * dx + dy * dy;
+        }
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = 2; i < count * 2; i += 2) {
+            min = Math.min(min, segmentDistanceSq(px, py,
+                    points[i - 2], points[i - 1], points[i], points[i + 1]));
+        }
+        return min;
+    }
+
+    /** 前 count 个点的包围盒按 padding 外扩，写入 out[left, top, right, bottom]。 */
+    public static void bounds(float[] points, int count, float padding, float[] out) {
+        float left = Float.POSITIVE_INFINITY;
+        float top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float bottom = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count * 2; i += 2) {
+            left = Math.min(left, points[i]);
+            right = Math.max(right, points[i]);
+            top = Math.min(top, points[i + 1]);
+            bottom = Math.max(bottom, points[i + 1]);
+        }
+        out[0] = left - padding;
+        out[1] = top - padding;
+        out[2] = right + padding;
+        out[3] = bottom + padding;
+    }
+}
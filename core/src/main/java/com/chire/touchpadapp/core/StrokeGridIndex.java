@@ -0,0 +1,208 @@
+package com.chire.touchpadapp.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 笔画包围盒的均匀网格索引，用于视口裁剪、橡皮擦和点选。
+ *
+ * 每个笔画按包围盒登记到覆盖的所有网格中，查询只访问与查询范围重叠的网格，
+ * 同一笔画在一次查询中只回调一次。笔画编号由调用方分配，应从0开始连续使用。
+ * 查询过程中不能修改索引，需要删除时先收集编号。只能在一个线程中使用。
+ */
+public final class StrokeGridIndex {
+
+    public interface Visitor {
+        void visit(int id);
+    }
+
+    private static final class Cell {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final float cellSize;
+    private final HashMap<Long, Cell> cells = new HashMap<>();
+
+    // 按编号保存包围盒 [left, top, right, bottom]
+    private float[] bounds = new float[64 * 4];
+    private boolean[] present = new boolean[64];
+    private int[] visitMarks = new int[64];
+    private int visitStamp;
+    private int count;
+
+    public StrokeGridIndex(float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /** 登记或更新一个笔画的包围盒。 */
+    public void insert(int id, float left, float top, float right, float bottom) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        ensureCapacity(id + 1);
+        if (present[id]) {
+            remove(id);
+        }
+        int b = id * 4;
+        bounds[b] = left;
+        bounds[b + 1] = top;
+        bounds[b + 2] = right;
+        bounds[b + 3] = bottom;
+        present[id] = true;
+        count++;
+
+        int cx1 = cell(right);
+        int cy1 = cell(bottom);
+        for (int cy = cell(top); cy <= cy1; cy++) {
+            for (int cx = cell(left); cx <= cx1; cx++) {
+                Long key = key(cx, cy);
+                Cell c = cells.get(key);
+                if (c == null) {
+                    c = new Cell();
+                    cells.put(key, c);
+                }
+                c.add(id);
+            }
+        }
+    }
+
+    public void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        int b = id * 4;
+        int cx1 = cell(bounds[b + 2]);
+        int cy1 = cell(bounds[b + 3]);
+        for (int cy = cell(bounds[b + 1]); cy <= cy1; cy++) {
+            for (int cx = cell(bounds[b]); cx <= cx1; cx++) {
+                Long key = key(cx, cy);
+                Cell c = cells.get(key);
+                if (c != null) {
+                    c.remove(id);
+                    if (c.size == 0) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+        present[id] = false;
+        count--;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < present.length && present[id];
+    }
+
+    public void clear() {
+        cells.clear();
+        Arrays.fill(present, false);
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** 回调包围盒与给定范围相交的笔画，返回回调次数。 */
+    public int query(float left, float top, float right, float bottom, Visitor visitor) {
+        if (count == 0) {
+            return 0;
+        }
+        if (++visitStamp == 0) {
+            Arrays.fill(visitMarks, 0);
+            visitStamp = 1;
+        }
+        int cx0 = cell(left);
+        int cy0 = cell(top);
+        int cx1 = cell(right);
+        int cy1 = cell(bottom);
+        int visited = 0;
+        // 缩得很小时查询范围覆盖的网格可能远多于已占用的网格，改为遍历已占用的网格
+        long span = (long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+        if (span > cells.size()) {
+            for (Cell c : cells.values()) {
+                visited += visitCell(c, left, top, right, bottom, visitor);
+            }
+        } else {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    Cell c = cells.get(key(cx, cy));
+                    if (c != null) {
+                        visited += visitCell(c, left, top, right, bottom, visitor);
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /** 包围盒与以 (x, y) 为中心、radius 为半径的方形相交的笔画，精确判断由调用方完成。 */
+    public int queryNear(float x, float y, float radius, Visitor visitor) {
+        return query(x - radius, y - radius, x + radius, y + radius, visitor);
+    }
+
+    private int visitCell(Cell c, float left, float top, float right, float bottom, Visitor visitor) {
+        int visited = 0;
+        for (int i = 0; i < c.size; i++) {
+            int id = c.ids[i];
+            if (visitMarks[id] == visitStamp) {
+                continue;
+            }
+            visitMarks[id] = visitStamp;
+            int b = id * 4;
+            if (bounds[b] <= right && bounds[b + 2] >= left
+                    && bounds[b + 1] <= bottom && bounds[b + 3] >= top) {
+                visitor.visit(id);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    private int cell(float v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static Long key(int cx, int cy) {
+        return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+    }
+
+    private void ensureCapacity(int ids) {
+        if (ids <= present.length) {
+            return;
+        }
+        int capacity = Math.max(ids, present.length * 2);
+        bounds = Arrays.copyOf(bounds, capacity * 4);
+        present = Arrays.copyOf(present, capacity);
+        visitMarks = Arrays.copyOf(visitMarks, capacity);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /** 已占用的网格数。 */
+    public int getCellCount() {
+        return cells.size();
+    }
+}
@@ -0,0 +1,135 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 绘制过程中的流式笔画简化，误差有上限的 Ramer–Douglas–Peucker 变体。
+ *
+ * 以最近一个关键点为锚点，不断尝试用“锚点到最新点”的一条线段代替其间的所有采样点；
+ * 某个采样点偏离超过容差（或窗口已满）时，把上一个采样点定为关键点并作为新锚点。
+ * 因此每个被丢弃的点到关键点折线的距离都不超过容差，每个采样点的开销与窗口大小成正比。
+ *
+ * 关键点通过 {@link Sink} 实时输出，第一个点和最后一个点一定是关键点。
+ */
+public final class StrokeSimplifier {
+
+    public interface Sink {
+        void onKeyPoint(float x, float y);
+    }
+
+    public static final int DEFAULT_MAX_WINDOW = 32;
+
+    private final Sink sink;
+    private float tolerance;
+    private final float[] window;
+    private int windowCount;
+    private float anchorX;
+    private float anchorY;
+    private boolean active;
+
+    // 统计
+    private long inputPoints;
+    private long keyPoints;
+
+    public StrokeSimplifier(float tolerance, Sink sink) {
+        this(tolerance, DEFAULT_MAX_WINDOW, sink);
+    }
+
+    /** maxWindow 为两个关键点之间最多保留的采样点数，限制单点的最坏开销。 */
+    public StrokeSimplifier(float tolerance, int maxWindow, Sink sink) {
+        if (maxWindow < 1) {
+            throw new IllegalArgumentException("maxWindow must be positive: " + maxWindow);
+        }
+        this.window = new float[maxWindow * 2];
+        this.sink = sink;
+        setTolerance(tolerance);
+    }
+
+    /** 容差（与坐标同单位），0 表示只合并严格共线的点。从下一个笔画开始生效。 */
+    public void setTolerance(float tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance must not be negative: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    public void begin(float x, float y) {
+        active = true;
+        windowCount = 0;
+        inputPoints++;
+        emit(x, y);
+    }
+
+    public void add(float x, float y) {
+        if (!active) {
+            throw new IllegalStateException("add() before begin()");
+        }
+        inputPoints++;
+        int n = windowCount * 2;
+        if (n > 0) {
+            float lastX = window[n - 2];
+            float lastY = window[n - 1];
+            if (lastX == x && lastY == y) {
+                return;
+            }
+            if (n == window.length || !fits(x, y)) {
+                emit(lastX, lastY);
+                windowCount = 0;
+            }
+        } else if (x == anchorX && y == anchorY) {
+            return;
+        }
+        window[windowCount * 2] = x;
+        window[windowCount * 2 + 1] = y;
+        windowCount++;
+    }
+
+    // 窗口内所有点到线段 锚点-(x, y) 的距离都不超过容差
+    private boolean fits(float x, float y) {
+        float limit = tolerance * tolerance;
+        for (int i = 0; i < windowCount * 2; i += 2) {
+            if (StrokeGeometry.segmentDistanceSq(window[i], window[i + 1], anchorX, anchorY, x, y) > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 结束笔画，最后一个采样点作为关键点输出。 */
+    public void end() {
+        if (!active) {
+            return;
+        }
+        if (windowCount > 0) {
+            emit(window[windowCount * 2 - 2], window[windowCount * 2 - 1]);
+            windowCount = 0;
+        }
+        active = false;
+    }
+
+    private void emit(float x, float y) {
+        anchorX = x;
+        anchorY = y;
+        keyPoints++;
+        sink.onKeyPoint(x, y);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /** 尚未确定是否保留的采样点数。 */
+    public int getPendingCount() {
+        return windowCount;
+    }
+
+    public long getInputPoints() {
+        return inputPoints;
+    }
+
+    public long getKeyPoints() {
+        return keyPoints;
+    }
+}
@@ -0,0 +1,187 @@
+package com.chire.touchpadapp.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 读取 {@link StrokeStoreWriter} 写入的笔画存储。
+ *
+ * 打开时只按记录长度跳读一遍，记下仍然存在的笔画（未被擦除或清空）的偏移，
+ * 元数据和点数据都在访问时才从缓冲区读取。配合 {@link #map} 使用内存映射时，
+ * 恢复一个很大的会话只会读入实际访问到的页面。
+ *
+ * 末尾不完整的记录（写入中途进程被杀）和损坏的记录及其后的内容被忽略，
+ * {@link #getValidLength} 为最后一条完整记录的结尾，继续追加前应把文件截断到该长度。只读，可在任意线程使用，但不要并发调用。
+ */
+public final class StrokeStoreReader {
+
+    private final ByteBuffer buffer;
+    private int[] offsets = new int[64]; // 笔画记录的载荷偏移
+    private int count;
+    private int validLength;
+    private int nextId;
+    private int recordCount;
+
+    /**
+     * @throws IOException 不是笔画存储或版本不支持
+     */
+    public StrokeStoreReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        scan();
+    }
+
+    /** 以只读方式映射文件，文件不存在或为空时得到空的存储。 */
+    public static StrokeStoreReader map(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return new StrokeStoreReader(ByteBuffer.allocate(0));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // 映射在通道关闭后仍然有效
+            return new StrokeStoreReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private void scan() throws IOException {
+        int limit = buffer.limit();
+        if (limit == 0) {
+            return;
+        }
+        if (limit < StrokeStoreWriter.HEADER_SIZE) {
+            // 连文件头都没有写完
+            return;
+        }
+        for (int i = 0; i < StrokeStoreWriter.MAGIC.length; i++) {
+            if (buffer.get(i) != StrokeStoreWriter.MAGIC[i]) {
+                throw new IOException("Not a stroke store");
+            }
+        }
+        int version = buffer.get(StrokeStoreWriter.MAGIC.length);
+        if (version != StrokeStoreWriter.VERSION) {
+            throw new IOException("Unsupported stroke store version: " + version);
+        }
+
+        HashMap<Integer, Integer> positions = new HashMap<>();
+        int pos = StrokeStoreWriter.HEADER_SIZE;
+        validLength = pos;
+        while (pos + StrokeStoreWriter.RECORD_HEADER_SIZE <= limit) {
+            int type = buffer.get(pos) & 0xFF;
+            int length = buffer.getInt(pos + 1);
+            int payload = pos + StrokeStoreWriter.RECORD_HEADER_SIZE;
+            if (length < 0 || payload + length > limit || payload + length < payload) {
+                break;
+            }
+            if (type == StrokeStoreWriter.TYPE_STROKE) {
+                int pointBytes = length - StrokeStoreWriter.STROKE_META_SIZE;
+                if (pointBytes < 0 || pointBytes % 8 != 0 || pointCountAt(payload) != pointBytes / 8) {
+                    // 长度与点数不符，视为损坏，只保留此前的记录
+                    break;
+                }
+                int id = buffer.getInt(payload);
+                Integer old = positions.put(id, count);
+                if (old != null) {
+                    offsets[old] = -1;
+                }
+                add(payload);
+                nextId = Math.max(nextId, id + 1);
+            } else if (type == StrokeStoreWriter.TYPE_ERASE && length >= 4) {
+                Integer old = positions.remove(buffer.getInt(payload));
+                if (old != null) {
+                    offsets[old] = -1;
+                }
+            } else if (type == StrokeStoreWriter.TYPE_CLEAR) {
+                positions.clear();
+                count = 0;
+            }
+            pos = payload + length;
+            validLength = pos;
+            recordCount++;
+        }
+
+        // 去掉被擦除的笔画，保持写入顺序（即绘制顺序）
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] >= 0) {
+                offsets[live++] = offsets[i];
+            }
+        }
+        count = live;
+    }
+
+    private void add(int payload) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = payload;
+    }
+
+    private int pointCountAt(int payload) {
+        return buffer.getInt(payload + StrokeStoreWriter.STROKE_META_SIZE - 4);
+    }
+
+    /** 仍然存在的笔画数，按绘制顺序编号为 0..count-1。 */
+    public int getStrokeCount() {
+        return count;
+    }
+
+    public int getId(int index) {
+        return buffer.getInt(offsets[index]);
+    }
+
+    public int getColor(int index) {
+        return buffer.getInt(offsets[index] + 4);
+    }
+
+    public boolean isCurve(int index) {
+        return (buffer.get(offsets[index] + 8) & StrokeStoreWriter.FLAG_CURVE) != 0;
+    }
+
+    public float getWidth(int index) {
+        return buffer.getFloat(offsets[index] + 9);
+    }
+
+    public float getCurveTolerance(int index) {
+        return buffer.getFloat(offsets[index] + 13);
+    }
+
+    /** 包围盒写入 out[left, top, right, bottom]。 */
+    public void getBounds(int index, float[] out) {
+        int p = offsets[index] + 17;
+        for (int i = 0; i < 4; i++) {
+            out[i] = buffer.getFloat(p + i * 4);
+        }
+    }
+
+    public int getPointCount(int index) {
+        return pointCountAt(offsets[index]);
+    }
+
+    /** 读取全部点，交错写入 out（长度至少为点数的两倍），返回点数。 */
+    public int readPoints(int index, float[] out) {
+        int n = getPointCount(index);
+        int p = offsets[index] + StrokeStoreWriter.STROKE_META_SIZE;
+        for (int i = 0; i < n * 2; i++) {
+            out[i] = buffer.getFloat(p + i * 4);
+        }
+        return n;
+    }
+
+    /** 不与已有笔画重复的下一个编号。 */
+    public int getNextId() {
+        return nextId;
+    }
+
+    /** 最后一条完整记录的结尾，没有文件头时为0。 */
+    public int getValidLength() {
+        return validLength;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+}
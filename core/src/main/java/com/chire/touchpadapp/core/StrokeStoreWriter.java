@@ -0,0 +1,116 @@
+package com.chire.touchpadapp.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 绘图会话的只追加二进制存储，笔画结束时逐条写入，由 {@link StrokeStoreReader} 读回。
+ *
+ * <pre>
+ * 文件: 魔数 "TPSS" 版本:u8，之后为若干记录 [type:u8][length:u32][payload]
+ * TYPE_STROKE: [id:u32][color:u32][flags:u8][width:f32][tolerance:f32]
+ *              [left:f32][top:f32][right:f32][bottom:f32][count:u32] ([x:f32][y:f32])*
+ * TYPE_ERASE:  [id:u32]
+ * TYPE_CLEAR:  空
+ * </pre>
+ *
+ * 点坐标为定长 float，读取时可以直接在映射的文件上按偏移访问，不必逐字节解析；
+ * 包围盒写在点数据之前，恢复时只读元数据即可建立空间索引。
+ * 每条记录带长度，读取时能跳过不认识的记录和末尾写了一半的记录。
+ *
+ * 非线程安全，只能在一个线程里调用。
+ */
+public final class StrokeStoreWriter {
+
+    static final byte[] MAGIC = {'T', 'P', 'S', 'S'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1;
+    static final int RECORD_HEADER_SIZE = 5;
+    static final int STROKE_META_SIZE = 4 + 4 + 1 + 4 + 4 + 16 + 4;
+
+    public static final int TYPE_STROKE = 1;
+    public static final int TYPE_ERASE = 2;
+    public static final int TYPE_CLEAR = 3;
+
+    /** 点为 {@link SmoothCurveBuilder} 的关键点，按 tolerance 拟合曲线。 */
+    public static final int FLAG_CURVE = 0x01;
+
+    private final OutputStream out;
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private final float[] bounds = new float[4];
+    private boolean headerWritten;
+    private long recordCount;
+    private long bytesWritten;
+
+    /** headerPresent 为真表示追加到已有的存储文件之后。 */
+    public StrokeStoreWriter(OutputStream out, boolean headerPresent) {
+        this.out = out;
+        this.headerWritten = headerPresent;
+    }
+
+    /**
+     * 写入一个完成的笔画，points 为交错存储的前 count 个点。
+     * boundsPadding 为包围盒外扩距离，一般为笔宽的一半。
+     */
+    public void appendStroke(int id, int color, float width, boolean curve, float tolerance,
+                             float[] points, int count, float boundsPadding) throws IOException {
+        StrokeGeometry.bounds(points, count, boundsPadding, bounds);
+        int payload = STROKE_META_SIZE + count * 8;
+        ByteBuffer b = begin(TYPE_STROKE, payload);
+        b.putInt(id);
+        b.putInt(color);
+        b.put((byte) (curve ? FLAG_CURVE : 0));
+        b.putFloat(width);
+        b.putFloat(tolerance);
+        b.putFloat(bounds[0]).putFloat(bounds[1]).putFloat(bounds[2]).putFloat(bounds[3]);
+        b.putInt(count);
+        for (int i = 0; i < count * 2; i++) {
+            b.putFloat(points[i]);
+        }
+        commit(b);
+    }
+
+    public void appendErase(int id) throws IOException {
+        ByteBuffer b = begin(TYPE_ERASE, 4);
+        b.putInt(id);
+        commit(b);
+    }
+
+    public void appendClear() throws IOException {
+        commit(begin(TYPE_CLEAR, 0));
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private ByteBuffer begin(int type, int payload) {
+        int needed = HEADER_SIZE + RECORD_HEADER_SIZE + payload;
+        if (scratch.capacity() < needed) {
+            scratch = ByteBuffer.allocate(Math.max(needed, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        if (!headerWritten) {
+            scratch.put(MAGIC).put((byte) VERSION);
+        }
+        scratch.put((byte) type).putInt(payload);
+        return scratch;
+    }
+
+    // 一条记录一次写出，中途失败最多留下末尾一条不完整的记录
+    private void commit(ByteBuffer b) throws IOException {
+        out.write(b.array(), 0, b.position());
+        bytesWritten += b.position();
+        headerWritten = true;
+        recordCount++;
+    }
+}
@@ -0,0 +1,28 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 一条触摸事件记录。对象可复用，解码时由调用方传入并反复填充。
+ */
+public final class TouchEvent {
+    public int opcode;
+    public int flags;
+    public long timestamp; // 事件时间（毫秒，线上只保留低32位）
+    public float x;
+    public float y;
+    public int seq; // 带序号帧中的序号，其它帧为0
+    public long enqueuedNanos; // 本地字段，不参与编码：进入发送队列的时间
+
+    public TouchEvent set(int opcode, int flags, long timestamp, float x, float y) {
+        this.opcode = opcode;
+        this.flags = flags;
+        this.timestamp = timestamp;
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return TouchProtocol.toText(opcode, x, y);
+    }
+}
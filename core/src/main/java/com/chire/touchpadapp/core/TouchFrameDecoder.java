@@ -0,0 +1,66 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * {@link TouchProtocol} 帧解码器，不依赖Android，桌面端可直接使用。
+ * 解码过程不分配对象，每条记录填充到同一个 {@link TouchEvent} 后回调。
+ */
+public final class TouchFrameDecoder {
+
+    public interface Handler {
+        void onEvent(TouchEvent event);
+    }
+
+    private final TouchEvent event = new TouchEvent();
+
+    /**
+     * 解码一帧，返回记录条数。
+     *
+     * 带序号帧的序号写入 {@link TouchEvent#seq}。
+     *
+     * @throws IllegalArgumentException 版本不支持、不是事件帧或帧长度不完整
+     */
+    public int decode(byte[] frame, int offset, int length, Handler handler) {
+        if (length < TouchProtocol.HEADER_SIZE) {
+            throw new IllegalArgumentException("Empty frame");
+        }
+        int version = TouchProtocol.frameVersion(frame[offset]);
+        if (version != TouchProtocol.VERSION) {
+            throw new IllegalArgumentException("Unsupported protocol version: " + version);
+        }
+        int kind = TouchProtocol.frameKind(frame[offset]);
+        int pos = offset + TouchProtocol.HEADER_SIZE;
+        int seq = 0;
+        if (kind == TouchProtocol.KIND_SEQ_EVENTS) {
+            if (length < TouchProtocol.SEQ_HEADER_SIZE) {
+                throw new IllegalArgumentException("Truncated frame: " + length + " bytes");
+            }
+            seq = TouchProtocol.getInt(frame, pos);
+            pos = offset + TouchProtocol.SEQ_HEADER_SIZE;
+        } else if (kind != TouchProtocol.KIND_EVENTS) {
+            throw new IllegalArgumentException("Not an event frame, kind: " + kind);
+        }
+
+        int end = offset + length;
+        if ((end - pos) % TouchProtocol.RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Truncated frame: " + length + " bytes");
+        }
+
+        int count = 0;
+        while (pos < end) {
+            event.set(frame[pos] & 0xFF,
+                    frame[pos + 1] & 0xFF,
+                    TouchProtocol.getInt(frame, pos + 2) & 0xFFFFFFFFL,
+                    TouchProtocol.dequantize(TouchProtocol.getShort(frame, pos + 6)),
+                    TouchProtocol.dequantize(TouchProtocol.getShort(frame, pos + 8)));
+            event.seq = kind == TouchProtocol.KIND_SEQ_EVENTS ? seq + count : 0;
+            handler.onEvent(event);
+            pos += TouchProtocol.RECORD_SIZE;
+            count++;
+        }
+        return count;
+    }
+
+    public int decode(byte[] frame, Handler handler) {
+        return decode(frame, 0, frame.length, handler);
+    }
+}
@@ -0,0 +1,189 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 触摸板二进制线协议 v1。
+ *
+ * <pre>
+ * 帧头: [kind:4 bit | version:4 bit]
+ * 事件帧 (kind = 0): 帧头后接一条或多条记录
+ * 记录: [opcode:u8][flags:u8][timestamp:u32 毫秒][x:s16][y:s16]
+ * 笔画帧 (kind = 1): 见 {@link StrokeEncoder}
+ * 带序号事件帧 (kind = 2): 帧头后接 [seq:u32]，第 i 条记录的序号为 seq + i
+ * 滑动数据报 (kind = 3): 通过UDP发送，见 {@link MotionDatagram}
+ * 多指帧 (kind = 4): 一个输入帧内的全部触点及派生手势，见 {@link PointerTracker}
+ * </pre>
+ *
+ * 坐标为定点数，实际值 = raw / {@link #COORD_SCALE}，全部字段为大端序。
+ * 旧接收端通过 Sec-WebSocket-Protocol 协商回退到文本格式，见 {@link #toText}。
+ *
+ * 带 {@link #FLAG_PROVISIONAL} 的滑动记录是客户端预测出的额外位移，不应累加进光标位置：
+ * 接收端可以临时显示在 "真实位置 + 预测位移" 处，新的预测记录替换旧的，
+ * 下一条非预测记录到达时丢弃预测部分。
+ *
+ * 协商到 {@link #SUBPROTOCOL_SESSION} 时事件使用带序号帧，连接断开后可以续传：
+ * 客户端连接后先发送 {@link #OP_RESUME}（timestamp 为会话号），接收端以 {@link #OP_ACK}
+ * 回复该会话已收到的最大序号（新会话为0），之后也定期以 OP_ACK 累积确认。
+ * 客户端据此只重发缺口部分，其中连续的滑动记录合并为一条净位移，所以序号可能跳跃；
+ * 接收端丢弃序号不大于已收到最大序号的记录即可去重。
+ *
+ * 协商到 {@link #SUBPROTOCOL_DATAGRAM} 时在此基础上，滑动改为向接收端同一地址的UDP端口发送
+ * {@link MotionDatagram}，其余事件仍走WebSocket。数据报携带会话内的累计位移，
+ * 丢包由下一个数据报补上，乱序到达的旧数据报直接丢弃，见 {@link MotionDatagramReceiver}。
+ *
+ * {@link #OP_POSITION} 是滑动的另一种表示，只在协商到 {@link #SUBPROTOCOL_SESSION} 时使用：
+ * x/y 为客户端累计滑动量的定点数低16位。接收端维护自己的累计量（{@link #OP_SCROLL} 同样累加进去），
+ * 收到 OP_POSITION 时按16位回绕取差值应用到光标。较旧的位置记录丢失不影响结果，
+ * 链路拥塞时发送队列可以放心丢弃，见 {@link LinkRateController}。
+ *
+ * 两指及以上触摸时客户端改发多指帧，期间不再发送单指滑动；接收端不认识的帧类型应忽略。
+ */
+public final class TouchProtocol {
+    // 子协议名，客户端按优先级依次声明
+    public static final String SUBPROTOCOL_DATAGRAM = "touchpad.v1.udp";
+    public static final String SUBPROTOCOL_SESSION = "touchpad.v1.session";
+    public static final String SUBPROTOCOL_BINARY = "touchpad.v1";
+    public static final String SUBPROTOCOL_TEXT = "chat";
+
+    public static final int VERSION = 1;
+
+    // 帧类型，占帧头高4位
+    public static final int KIND_EVENTS = 0;
+    public static final int KIND_STROKE = 1;
+    public static final int KIND_SEQ_EVENTS = 2;
+    public static final int KIND_MOTION = 3;
+    public static final int KIND_POINTERS = 4;
+
+    public static final int OP_TAP = 0x01;
+    public static final int OP_DOUBLE_TAP = 0x02;
+    public static final int OP_SCROLL = 0x03;
+    public static final int OP_POSITION = 0x04;
+    // 心跳：timestamp 字段携带序号，接收端以 OP_PONG 原样返回（回显服务器直接回显 OP_PING 亦可）
+    public static final int OP_PING = 0x10;
+    public static final int OP_PONG = 0x11;
+    // 会话续传：timestamp 字段分别携带会话号和累积确认的序号
+    public static final int OP_RESUME = 0x12;
+    public static final int OP_ACK = 0x13;
+
+    // 记录标志位
+    public static final int FLAG_PROVISIONAL = 0x01;
+
+    public static final int HEADER_SIZE = 1;
+    public static final int RECORD_SIZE = 10;
+    public static final int SEQ_HEADER_SIZE = HEADER_SIZE + 4;
+
+    // 1/8 像素精度，s16 可表示 ±4096 像素
+    public static final float COORD_SCALE = 8f;
+
+    private TouchProtocol() {}
+
+    public static int writeHeader(byte[] out, int offset) {
+        return writeHeader(out, offset, KIND_EVENTS);
+    }
+
+    public static int writeHeader(byte[] out, int offset, int kind) {
+        out[offset] = (byte) (kind << 4 | VERSION);
+        return offset + HEADER_SIZE;
+    }
+
+    /** 写入带序号事件帧的帧头，seq 为帧内第一条记录的序号。 */
+    public static int writeSequencedHeader(byte[] out, int offset, int seq) {
+        offset = writeHeader(out, offset, KIND_SEQ_EVENTS);
+        putInt(out, offset, seq);
+        return offset + 4;
+    }
+
+    public static int frameKind(byte header) {
+        return (header & 0xF0) >>> 4;
+    }
+
+    public static int frameVersion(byte header) {
+        return header & 0x0F;
+    }
+
+    public static int writeRecord(byte[] out, int offset, int opcode, int flags,
+                                  long timestamp, float x, float y) {
+        out[offset] = (byte) opcode;
+        out[offset + 1] = (byte) flags;
+        putInt(out, offset + 2, (int) timestamp);
+        putShort(out, offset + 6, quantize(x));
+        putShort(out, offset + 8, quantize(y));
+        return offset + RECORD_SIZE;
+    }
+
+    /** 编码单条事件为完整的一帧，返回写入后的偏移。 */
+    public static int encode(byte[] out, int offset, int opcode, int flags,
+                             long timestamp, float x, float y) {
+        offset = writeHeader(out, offset);
+        return writeRecord(out, offset, opcode, flags, timestamp, x, y);
+    }
+
+    public static int encode(byte[] out, int offset, TouchEvent event) {
+        return encode(out, offset, event.opcode, event.flags, event.timestamp, event.x, event.y);
+    }
+
+    /** 移动类事件可以合并或丢弃，其余事件必须可靠送达。 */
+    public static boolean isMotion(int opcode) {
+        return opcode == OP_SCROLL || opcode == OP_POSITION;
+    }
+
+    /** 把累计滑动量回绕到 {@link #OP_POSITION} 可表示的范围，编码后恰好是定点数的低16位。 */
+    public static float wrapPosition(float total) {
+        return dequantize((short) Math.round(total * COORD_SCALE));
+    }
+
+    public static int quantize(float value) {
+        int raw = Math.round(value * COORD_SCALE);
+        if (raw > Short.MAX_VALUE) return Short.MAX_VALUE;
+        if (raw < Short.MIN_VALUE) return Short.MIN_VALUE;
+        return raw;
+    }
+
+    public static float dequantize(int raw) {
+        return raw / COORD_SCALE;
+    }
+
+    /** 旧版文本格式，供未协商二进制协议的接收端使用。 */
+    public static String toText(int opcode, float x, float y) {
+        switch (opcode) {
+            case OP_TAP:
+                return "单指单击 " + x + " " + y;
+            case OP_DOUBLE_TAP:
+                return "单指双击 " + x + " " + y;
+            case OP_SCROLL:
+                return "单指滑动 " + x + " " + y;
+            case OP_POSITION:
+                return "单指位置 " + x + " " + y;
+            case OP_PING:
+            case OP_PONG:
+                return "心跳";
+            case OP_RESUME:
+            case OP_ACK:
+                return "会话控制";
+            default:
+                return "未知事件(" + opcode + ") " + x + " " + y;
+        }
+    }
+
+    static void putInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    static void putShort(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 8);
+        out[offset + 1] = (byte) value;
+    }
+
+    static int getInt(byte[] in, int offset) {
+        return (in[offset] & 0xFF) << 24
+                | (in[offset + 1] & 0xFF) << 16
+                | (in[offset + 2] & 0xFF) << 8
+                | (in[offset + 3] & 0xFF);
+    }
+
+    static short getShort(byte[] in, int offset) {
+        return (short) ((in[offset] & 0xFF) << 8 | (in[offset + 1] & 0xFF));
+    }
+}
@@ -0,0 +1,93 @@
+package com.chire.touchpadapp.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 读取 {@link TouchTraceWriter} 录制的轨迹。调用方传入 BufferedInputStream 等带缓冲的流。
+ */
+public final class TouchTraceReader {
+
+    private final InputStream in;
+    private boolean headerRead;
+    private boolean empty;
+    private long lastTimestamp;
+
+    public TouchTraceReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * 读取下一条记录填入 event，读到文件末尾时返回 false。
+     *
+     * @throws IOException 不是轨迹文件、版本不支持或记录不完整
+     */
+    public boolean next(TouchEvent event) throws IOException {
+        if (!headerRead) {
+            readHeader();
+        }
+        if (empty) {
+            return false;
+        }
+        int opcode = in.read();
+        if (opcode < 0) {
+            return false;
+        }
+        int flags = readByte();
+        lastTimestamp += readSignedVarint();
+        float x = TouchProtocol.dequantize(readSignedVarint());
+        float y = TouchProtocol.dequantize(readSignedVarint());
+        event.set(opcode, flags, lastTimestamp, x, y);
+        return true;
+    }
+
+    private void readHeader() throws IOException {
+        headerRead = true;
+        int first = in.read();
+        if (first < 0) {
+            // 没有任何事件时写入端不会写文件头
+            empty = true;
+            return;
+        }
+        if (first != TouchTraceWriter.MAGIC[0]) {
+            throw new IOException("Not a touch trace");
+        }
+        for (int i = 1; i < TouchTraceWriter.MAGIC.length; i++) {
+            if (readByte() != TouchTraceWriter.MAGIC[i]) {
+                throw new IOException("Not a touch trace");
+            }
+        }
+        int version = readByte();
+        if (version != TouchTraceWriter.VERSION) {
+            throw new IOException("Unsupported trace version: " + version);
+        }
+        long high = readInt();
+        long low = readInt() & 0xFFFFFFFFL;
+        lastTimestamp = high << 32 | low;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated trace");
+        }
+        return b;
+    }
+
+    private int readInt() throws IOException {
+        return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+
+    private int readSignedVarint() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return Varint.unzigzag(result);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,65 @@
+package com.chire.touchpadapp.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 把发送路径上的触摸事件录制成紧凑的轨迹文件，供 {@link TouchTraceReader} 回放。
+ *
+ * 文件格式：魔数 "TPTR"、版本号、首个事件的时间戳（8字节）；之后每条记录为
+ * opcode、flags、与上一条的时间差（毫秒，varint）、x 和 y（按 {@link TouchProtocol#COORD_SCALE}
+ * 定点，zigzag varint）。常见的滑动记录只占 5~7 个字节。
+ *
+ * 非线程安全，只能在一个线程里调用。
+ */
+public final class TouchTraceWriter {
+
+    static final byte[] MAGIC = {'T', 'P', 'T', 'R'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1 + 8;
+    static final int MAX_RECORD_SIZE = 2 + 3 * Varint.MAX_BYTES;
+
+    private final OutputStream out;
+    private final byte[] scratch = new byte[Math.max(HEADER_SIZE, MAX_RECORD_SIZE)];
+    private boolean headerWritten;
+    private long lastTimestamp;
+    private long recordCount;
+
+    public TouchTraceWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void record(int opcode, int flags, long timestamp, float x, float y) throws IOException {
+        if (!headerWritten) {
+            writeHeader(timestamp);
+        }
+        // 预测记录的时间戳可能在前一条之后又回退，差值按有符号处理
+        int pos = 0;
+        scratch[pos++] = (byte) opcode;
+        scratch[pos++] = (byte) flags;
+        pos = Varint.writeSigned(scratch, pos, (int) (timestamp - lastTimestamp));
+        pos = Varint.writeSigned(scratch, pos, TouchProtocol.quantize(x));
+        pos = Varint.writeSigned(scratch, pos, TouchProtocol.quantize(y));
+        out.write(scratch, 0, pos);
+        lastTimestamp = timestamp;
+        recordCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeHeader(long firstTimestamp) throws IOException {
+        System.arraycopy(MAGIC, 0, scratch, 0, MAGIC.length);
+        scratch[MAGIC.length] = VERSION;
+        TouchProtocol.putInt(scratch, MAGIC.length + 1, (int) (firstTimestamp >>> 32));
+        TouchProtocol.putInt(scratch, MAGIC.length + 5, (int) firstTimestamp);
+        out.write(scratch, 0, HEADER_SIZE);
+        lastTimestamp = firstTimestamp;
+        headerWritten = true;
+    }
+}
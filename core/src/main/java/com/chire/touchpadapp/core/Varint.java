@@ -0,0 +1,77 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * LEB128 变长整数与 zigzag 编码。小的正负数只占1个字节。
+ */
+final class Varint {
+
+    // 32位整数最多5个字节
+    static final int MAX_BYTES = 5;
+
+    private Varint() {}
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int write(byte[] out, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[offset++] = (byte) value;
+        return offset;
+    }
+
+    static int writeSigned(byte[] out, int offset, int value) {
+        return write(out, offset, zigzag(value));
+    }
+
+    /** 读取游标，避免每次解码都分配对象。 */
+    static final class Reader {
+        byte[] data;
+        int pos;
+        int end;
+
+        void reset(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        boolean hasRemaining() {
+            return pos < end;
+        }
+
+        int readByte() {
+            if (pos >= end) {
+                throw new IllegalArgumentException("Unexpected end of stroke chunk");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int readVarint() {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        int readSignedVarint() {
+            return unzigzag(readVarint());
+        }
+
+        int readInt() {
+            return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+        }
+    }
+}
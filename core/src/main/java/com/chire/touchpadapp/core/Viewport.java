@@ -0,0 +1,89 @@
+package com.chire.touchpadapp.core;
+
+/**
+ * 画布视口：世界坐标到屏幕坐标的缩放加平移，screen = world * scale + offset。
+ * 笔画以世界坐标保存，缩放和平移只改变视口。
+ */
+public final class Viewport {
+
+    private float scale = 1f;
+    private float offsetX;
+    private float offsetY;
+    private float minScale = 0.25f;
+    private float maxScale = 8f;
+
+    public void setScaleLimits(float minScale, float maxScale) {
+        if (minScale <= 0 || maxScale < minScale) {
+            throw new IllegalArgumentException("Bad scale limits: " + minScale + ".." + maxScale);
+        }
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        scale = clamp(scale);
+    }
+
+    public void reset() {
+        scale = 1f;
+        offsetX = 0;
+        offsetY = 0;
+    }
+
+    /** 按屏幕像素平移。 */
+    public void panBy(float dx, float dy) {
+        offsetX += dx;
+        offsetY += dy;
+    }
+
+    /** 以屏幕上的 (focusX, focusY) 为中心缩放，该点下的世界坐标保持不动。返回实际生效的倍数。 */
+    public float zoomBy(float factor, float focusX, float focusY) {
+        float newScale = clamp(scale * factor);
+        float applied = newScale / scale;
+        offsetX = focusX - (focusX - offsetX) * applied;
+        offsetY = focusY - (focusY - offsetY) * applied;
+        scale = newScale;
+        return applied;
+    }
+
+    private float clamp(float s) {
+        return Math.max(minScale, Math.min(maxScale, s));
+    }
+
+    public float toWorldX(float screenX) {
+        return (screenX - offsetX) / scale;
+    }
+
+    public float toWorldY(float screenY) {
+        return (screenY - offsetY) / scale;
+    }
+
+    public float toScreenX(float worldX) {
+        return worldX * scale + offsetX;
+    }
+
+    public float toScreenY(float worldY) {
+        return worldY * scale + offsetY;
+    }
+
+    /** 宽高为 width x height 的屏幕区域对应的世界坐标范围，写入 out[left, top, right, bottom]。 */
+    public void visibleWorld(int width, int height, float[] out) {
+        out[0] = toWorldX(0);
+        out[1] = toWorldY(0);
+        out[2] = toWorldX(width);
+        out[3] = toWorldY(height);
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public float getOffsetX() {
+        return offsetX;
+    }
+
+    public float getOffsetY() {
+        return offsetY;
+    }
+
+    public boolean isIdentity() {
+        return scale == 1f && offsetX == 0 && offsetY == 0;
+    }
+}
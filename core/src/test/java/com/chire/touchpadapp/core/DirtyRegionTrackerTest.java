@@ -0,0 +1,63 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirtyRegionTrackerTest {
+
+    @Test
+    public void segment_isPaddedByStrokeWidth() {
+        DirtyRegionTracker tracker = new DirtyRegionTracker(4f);
+        tracker.addSegment(10f, 20f, 30f, 25f);
+
+        int[] rect = new int[4];
+        assertTrue(tracker.takeFrame(rect, 1000, 1000));
+        assertArrayEquals(new int[]{6, 16, 34, 29}, rect);
+        assertEquals(28 * 13, tracker.getLastFramePixels());
+    }
+
+    @Test
+    public void segmentsInOneFrame_areUnioned() {
+        DirtyRegionTracker tracker = new DirtyRegionTracker(0f);
+        tracker.addSegment(10f, 10f, 20f, 20f);
+        tracker.addSegment(20f, 20f, 50f, 15f);
+        tracker.addPoint(5f, 40f);
+
+        int[] rect = new int[4];
+        assertTrue(tracker.takeFrame(rect, 1000, 1000));
+        assertArrayEquals(new int[]{5, 10, 50, 40}, rect);
+        assertFalse(tracker.isDirty());
+        assertFalse(tracker.takeFrame(rect, 1000, 1000));
+    }
+
+    @Test
+    public void region_isRoundedOutAndClipped() {
+        DirtyRegionTracker tracker = new DirtyRegionTracker(2f);
+        tracker.addSegment(-5.5f, 1.2f, 99.3f, 48.6f);
+
+        int[] rect = new int[4];
+        assertTrue(tracker.takeFrame(rect, 100, 50));
+        assertArrayEquals(new int[]{0, 0, 100, 50}, rect);
+    }
+
+    @Test
+    public void offscreenRegion_isSkipped() {
+        DirtyRegionTracker tracker = new DirtyRegionTracker(1f);
+        tracker.addPoint(500f, 500f);
+        assertFalse(tracker.takeFrame(new int[4], 100, 100));
+        assertEquals(0, tracker.getFrameCount());
+    }
+
+    @Test
+    public void stats_averageOverFrames() {
+        DirtyRegionTracker tracker = new DirtyRegionTracker(0f);
+        int[] rect = new int[4];
+        tracker.addSegment(0f, 0f, 10f, 10f);
+        tracker.takeFrame(rect, 100, 100);
+        tracker.recordFullFrame(100, 100);
+
+        assertEquals(2, tracker.getFrameCount());
+        assertEquals((100 + 10000) / 2, tracker.getAveragePixelsPerFrame());
+    }
+}
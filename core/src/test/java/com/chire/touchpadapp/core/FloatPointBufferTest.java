@@ -0,0 +1,61 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class FloatPointBufferTest {
+
+    @Test
+    public void drainNew_returnsOnlyPointsSinceLastExport() {
+        FloatPointBuffer buffer = new FloatPointBuffer(4, 100);
+        buffer.add(1, 2);
+        buffer.add(3, 4);
+        assertEquals(4, buffer.drainNew().remaining());
+
+        buffer.add(5, 6);
+        FloatBuffer fresh = buffer.drainNew();
+        assertEquals(2, fresh.remaining());
+        assertEquals(5f, fresh.get(0), 0f);
+        assertEquals(6f, fresh.get(1), 0f);
+        assertEquals(0, buffer.drainNew().remaining());
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    public void views_areReadOnly() {
+        FloatPointBuffer buffer = new FloatPointBuffer(4, 100);
+        buffer.add(1, 2);
+        assertTrue(buffer.asReadOnlyBuffer().isReadOnly());
+        assertTrue(buffer.drainNew().isReadOnly());
+    }
+
+    @Test
+    public void cap_compactsExportedPointsFirst() {
+        FloatPointBuffer buffer = new FloatPointBuffer(2, 4);
+        for (int i = 0; i < 4; i++) {
+            buffer.add(i, i);
+        }
+        buffer.drainNew();
+        buffer.add(4, 4);
+
+        assertEquals(1, buffer.size());
+        assertEquals(0, buffer.getDroppedPoints());
+        assertEquals(4f, buffer.asReadOnlyBuffer().get(0), 0f);
+    }
+
+    @Test
+    public void cap_dropsOldestWhenNothingExported() {
+        FloatPointBuffer buffer = new FloatPointBuffer(2, 8);
+        for (int i = 0; i < 20; i++) {
+            buffer.add(i, i);
+        }
+
+        assertTrue(buffer.size() <= 8);
+        assertEquals(20 - buffer.size(), buffer.getDroppedPoints());
+        FloatBuffer all = buffer.asReadOnlyBuffer();
+        assertEquals(19f, all.get(all.limit() - 1), 0f);
+    }
+}
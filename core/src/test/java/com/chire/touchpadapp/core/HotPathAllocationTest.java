@@ -0,0 +1,129 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 手势到发送的热路径在稳态下不分配对象：事件入队、批量编码、多指帧、笔画简化和分块编码。
+ * 按当前线程的累计分配字节数衡量，先预热让缓冲区扩容和类加载完成。
+ */
+public class HotPathAllocationTest {
+
+    private static final int EVENTS = 20_000;
+    // 两次读取计数本身的开销，远小于每个事件一个对象
+    private static final long SLACK_BYTES = 1024;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private long allocated() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void assertAllocationFree(String name, Runnable perEvent) {
+        for (int i = 0; i < EVENTS; i++) {
+            perEvent.run();
+        }
+        long before = allocated();
+        for (int i = 0; i < EVENTS; i++) {
+            perEvent.run();
+        }
+        long bytes = allocated() - before;
+        assertTrue(name + " allocated " + bytes + " bytes for " + EVENTS + " events", bytes <= SLACK_BYTES);
+    }
+
+    @Test
+    public void queueAndBatchEncoding() {
+        OutboundEventQueue queue = new OutboundEventQueue(256, 64);
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + 32 * TouchProtocol.RECORD_SIZE];
+        int[] length = new int[1];
+        OutboundEventQueue.Consumer writer = event ->
+                length[0] = TouchProtocol.writeRecord(frame, length[0], event.opcode, event.flags,
+                        event.timestamp, event.x, event.y);
+        RetransmitBuffer retransmit = new RetransmitBuffer(1024);
+        long[] time = new long[1];
+        assertAllocationFree("queue", () -> {
+            long t = time[0]++;
+            queue.offer(TouchProtocol.OP_SCROLL, 0, t, 1.5f, -2f);
+            if ((t & 7) == 0) {
+                queue.offer(TouchProtocol.OP_TAP, 0, t, 10f, 20f);
+            }
+            retransmit.append(TouchProtocol.OP_SCROLL, 0, t, 1.5f, -2f);
+            retransmit.ack(retransmit.getNextSeq() - 1);
+            if ((t & 3) == 0) {
+                length[0] = TouchProtocol.writeHeader(frame, 0);
+                queue.drain(writer, 32);
+            }
+        });
+    }
+
+    @Test
+    public void pointerFramesAndMotionDatagrams() {
+        PointerTracker tracker = new PointerTracker();
+        byte[] frame = new byte[PointerTracker.MAX_FRAME_SIZE];
+        MotionDatagram datagram = new MotionDatagram();
+        byte[] packet = new byte[MotionDatagram.SIZE];
+        tracker.pointerDown(0, 100, 100);
+        tracker.pointerDown(1, 300, 100);
+        long[] time = new long[1];
+        assertAllocationFree("pointer", () -> {
+            long t = time[0]++;
+            float d = t % 200;
+            tracker.pointerMove(0, 100 - d, 100 + d);
+            tracker.pointerMove(1, 300 + d, 100 - d);
+            tracker.encodeFrame(t, frame, 0);
+            datagram.seq++;
+            datagram.totalX += 3;
+            datagram.encode(packet, 0);
+        });
+    }
+
+    @Test
+    public void strokeSimplificationAndChunks() {
+        StrokeEncoder encoder = new StrokeEncoder((data, offset, length) -> {});
+        StrokeSimplifier simplifier = new StrokeSimplifier(0.75f, encoder::addPoint);
+        SmoothCurveBuilder curve = new SmoothCurveBuilder(0.75f, new SmoothCurveBuilder.PathSink() {
+            @Override
+            public void moveTo(float x, float y) {}
+
+            @Override
+            public void lineTo(float x, float y) {}
+
+            @Override
+            public void quadTo(float controlX, float controlY, float x, float y) {}
+        });
+        long[] n = new long[1];
+        assertAllocationFree("stroke", () -> {
+            long i = n[0]++;
+            if (i % 500 == 0) {
+                simplifier.end();
+                curve.end();
+                encoder.endStroke();
+                encoder.beginCurveStroke((int) i, 0xFF0000FF, 8f, 0.75f);
+                simplifier.begin(0, 0);
+                curve.begin(0, 0);
+                return;
+            }
+            float x = i % 500;
+            float y = (float) Math.sin(x / 20) * 40;
+            simplifier.add(x, y);
+            curve.addPoint(x, y);
+            if (i % 16 == 0) {
+                encoder.flush();
+            }
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InboundDispatcherTest {
+
+    @Test
+    public void routesTextByJsonTypeOrPrefix_withoutParsing() {
+        InboundDispatcher dispatcher = new InboundDispatcher(16, "test-inbound");
+        List<String> drawing = new ArrayList<>();
+        List<String> pings = new ArrayList<>();
+        List<String> other = new ArrayList<>();
+        dispatcher.onText("drawing_data", drawing::add);
+        dispatcher.onText("ping", pings::add);
+        dispatcher.setDefaultTextHandler(other::add);
+
+        dispatcher.dispatch("{\"type\" : \"drawing_data\", \"points\": []}");
+        dispatcher.dispatch("{\"x\": 1, \"type\":\"drawing\"}");
+        dispatcher.dispatch("ping 42");
+        dispatcher.dispatch("ping");
+        dispatcher.dispatch("pingpong");
+        dispatcher.dispatch("{\"type\": 3}");
+        dispatcher.dispatch("");
+
+        assertEquals(1, drawing.size());
+        assertEquals(2, pings.size());
+        assertEquals(4, other.size());
+        assertEquals(7, dispatcher.getDispatchedCount());
+    }
+
+    @Test
+    public void routesFramesByKindThenOpcode() {
+        InboundDispatcher dispatcher = new InboundDispatcher(16, "test-inbound");
+        List<Integer> strokes = new ArrayList<>();
+        List<String> taps = new ArrayList<>();
+        List<Integer> other = new ArrayList<>();
+        dispatcher.onFrameKind(TouchProtocol.KIND_STROKE, frame -> strokes.add(frame.length));
+        dispatcher.onOpcode(TouchProtocol.OP_TAP, event -> taps.add(event.toString()));
+        dispatcher.setDefaultEventHandler(event -> other.add(event.opcode));
+
+        dispatcher.dispatch(eventFrame(TouchProtocol.OP_TAP, TouchProtocol.OP_SCROLL, TouchProtocol.OP_TAP));
+        byte[] stroke = new byte[8];
+        TouchProtocol.writeHeader(stroke, 0, TouchProtocol.KIND_STROKE);
+        dispatcher.dispatch(stroke);
+
+        assertEquals(2, taps.size());
+        assertEquals(1, other.size());
+        assertEquals(TouchProtocol.OP_SCROLL, (int) other.get(0));
+        assertEquals(1, strokes.size());
+    }
+
+    @Test
+    public void handlerFailure_doesNotStopLaterMessages() throws Exception {
+        InboundDispatcher dispatcher = new InboundDispatcher(16, "test-inbound");
+        CountDownLatch delivered = new CountDownLatch(1);
+        dispatcher.onText("bad", message -> {
+            throw new IllegalArgumentException(message);
+        });
+        dispatcher.onText("good", message -> delivered.countDown());
+
+        assertTrue(dispatcher.post("bad 1"));
+        assertTrue(dispatcher.post("good 2"));
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getFailedCount());
+        dispatcher.stop();
+    }
+
+    @Test
+    public void fullQueue_dropsAndCounts() throws Exception {
+        InboundDispatcher dispatcher = new InboundDispatcher(2, "test-inbound");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.onText("slow", message -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        dispatcher.post("slow");
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        assertTrue(dispatcher.post("a"));
+        assertTrue(dispatcher.post("b"));
+        assertFalse(dispatcher.post("c"));
+        assertEquals(1, dispatcher.getDroppedCount());
+        release.countDown();
+        dispatcher.stop();
+    }
+
+    private static byte[] eventFrame(int... opcodes) {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + opcodes.length * TouchProtocol.RECORD_SIZE];
+        int offset = TouchProtocol.writeHeader(frame, 0);
+        for (int opcode : opcodes) {
+            offset = TouchProtocol.writeRecord(frame, offset, opcode, 0, 0, 1f, 2f);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,67 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_areContiguousAndMonotonic() {
+        long previousUpper = -1;
+        for (long v = 0; v < 100_000; v++) {
+            int index = LatencyHistogram.bucketIndex(v);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(v <= upper);
+            assertTrue(upper >= previousUpper);
+            // 相对误差不超过 1/8
+            assertTrue(upper - v <= Math.max(0, v / 8));
+            previousUpper = upper;
+        }
+    }
+
+    @Test
+    public void percentiles_ofUniformDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 100L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000, histogram.percentile(0.5), 50_000 / 8.0);
+        assertEquals(99_000, histogram.percentile(0.99), 99_000 / 8.0);
+        assertEquals(100_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void emptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        histogram.record(42);
+        histogram.record(-5);
+        assertEquals(2, histogram.getCount());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void concurrentRecording_countsEverySample() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMax());
+    }
+}
@@ -0,0 +1,74 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LinearMotionPredictorTest {
+
+    @Test
+    public void constantVelocity_isExtrapolated() {
+        LinearMotionPredictor predictor = new LinearMotionPredictor();
+        for (int i = 0; i <= 5; i++) {
+            predictor.addSample(1000 + i * 8, 100 + i * 4f, 50 - i * 2f);
+        }
+
+        float[] out = new float[2];
+        assertTrue(predictor.predict(16, out));
+        assertEquals(120f + 8f, out[0], 0.01f);
+        assertEquals(40f - 4f, out[1], 0.01f);
+    }
+
+    @Test
+    public void stationaryPointer_staysPut() {
+        LinearMotionPredictor predictor = new LinearMotionPredictor();
+        for (int i = 0; i < 4; i++) {
+            predictor.addSample(i * 8, 10f, 20f);
+        }
+
+        float[] out = new float[2];
+        assertTrue(predictor.predict(20, out));
+        assertEquals(10f, out[0], 0.001f);
+        assertEquals(20f, out[1], 0.001f);
+    }
+
+    @Test
+    public void insufficientSamples_noPrediction() {
+        LinearMotionPredictor predictor = new LinearMotionPredictor();
+        float[] out = new float[2];
+        assertFalse(predictor.predict(16, out));
+
+        predictor.addSample(0, 1f, 1f);
+        assertFalse(predictor.predict(16, out));
+
+        predictor.reset();
+        predictor.addSample(0, 1f, 1f);
+        predictor.addSample(0, 2f, 2f);
+        assertFalse("zero time span", predictor.predict(16, out));
+    }
+
+    @Test
+    public void staleSamples_outsideWindow_areIgnored() {
+        LinearMotionPredictor predictor = new LinearMotionPredictor();
+        predictor.setWindowMs(20);
+        predictor.addSample(0, 0f, 0f);      // 很久以前，方向相反
+        predictor.addSample(100, 500f, 0f);
+        predictor.addSample(108, 508f, 0f);
+        predictor.addSample(116, 516f, 0f);
+
+        float[] out = new float[2];
+        assertTrue(predictor.predict(8, out));
+        assertEquals(524f, out[0], 0.01f);
+    }
+
+    @Test
+    public void horizon_isCapped() {
+        LinearMotionPredictor predictor = new LinearMotionPredictor();
+        predictor.addSample(0, 0f, 0f);
+        predictor.addSample(10, 10f, 0f);
+
+        float[] out = new float[2];
+        assertTrue(predictor.predict(1000, out));
+        assertEquals(10f + LinearMotionPredictor.MAX_HORIZON_MS, out[0], 0.01f);
+    }
+}
@@ -0,0 +1,117 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LinkRateControllerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void queueBacklog_backsOffOneLevelPerHoldPeriod() {
+        LinkRateController controller = new LinkRateController();
+        controller.setTimings(500, 2000);
+        controller.setAbsoluteAllowed(true);
+        assertEquals(0, controller.getLevel());
+        assertEquals(0, controller.getCoalesceWindowMs());
+        assertFalse(controller.isAbsoluteMotion());
+
+        long now = 0;
+        for (int i = 0; i < 4; i++, now += 250) {
+            controller.tick(now, 100_000);
+        }
+        // 1秒内两次升档
+        assertEquals(2, controller.getLevel());
+        assertTrue(controller.getCoalesceWindowMs() > 0);
+        assertTrue(controller.getQuantum() > 1f / TouchProtocol.COORD_SCALE);
+        assertTrue(controller.isAbsoluteMotion());
+
+        for (int i = 0; i < 20; i++, now += 250) {
+            controller.tick(now, 100_000);
+        }
+        assertEquals(LinkRateController.MAX_LEVEL, controller.getLevel());
+        assertEquals(100_000, controller.getMaxQueuedBytes());
+    }
+
+    @Test
+    public void recoversOneLevelPerQuietPeriod() {
+        LinkRateController controller = new LinkRateController();
+        controller.setTimings(0, 1000);
+        long now = 0;
+        controller.tick(now, 100_000);
+        controller.tick(now += 10, 100_000);
+        assertEquals(2, controller.getLevel());
+
+        // 拥塞消失后不立即恢复
+        controller.tick(now += 500, 0);
+        assertEquals(2, controller.getLevel());
+        controller.tick(now += 500, 0);
+        assertEquals(1, controller.getLevel());
+        controller.tick(now += 500, 0);
+        assertEquals(1, controller.getLevel());
+        controller.tick(now += 500, 0);
+        assertEquals(0, controller.getLevel());
+        assertEquals(2, controller.getRecoveryCount());
+    }
+
+    @Test
+    public void rttInflation_andSendFailures_countAsCongestion() {
+        LinkRateController controller = new LinkRateController();
+        controller.setTimings(0, 1000);
+        controller.setThresholds(4096, 3f, 50);
+        controller.onRtt(10 * MS);
+        controller.onRtt(12 * MS);
+        controller.tick(0, 0);
+        assertEquals(0, controller.getLevel());
+
+        // 超过基线3倍但未超过基线+50ms，不算拥塞
+        controller.onRtt(40 * MS);
+        controller.tick(100, 0);
+        assertEquals(0, controller.getLevel());
+
+        controller.onRtt(200 * MS);
+        controller.tick(200, 0);
+        assertEquals(1, controller.getLevel());
+        assertEquals(10_000, controller.getBaselineRttMicros());
+
+        controller.onRtt(11 * MS);
+        controller.onSendFailure();
+        controller.tick(300, 0);
+        assertEquals(2, controller.getLevel());
+        assertEquals(2, controller.getBackoffCount());
+    }
+
+    @Test
+    public void singleRttSpike_countsOnceUntilNextSample() {
+        LinkRateController controller = new LinkRateController();
+        controller.setTimings(0, 10_000);
+        controller.onRtt(10 * MS);
+        controller.onRtt(12 * MS);
+        controller.onRtt(300 * MS);
+
+        // 下一次心跳之前 tick 多次，同一个采样只判定一次
+        for (long now = 0; now < 2000; now += 250) {
+            controller.tick(now, 0);
+        }
+        assertEquals(1, controller.getLevel());
+        assertEquals(1, controller.getCongestionCount());
+        assertEquals(300_000, controller.getLatestRttMicros());
+    }
+
+    @Test
+    public void absoluteMotionRequiresCapableHost_andResetRestoresPrecision() {
+        LinkRateController controller = new LinkRateController();
+        controller.setTimings(0, 1000);
+        for (int i = 0; i < 5; i++) {
+            controller.tick(i, 100_000);
+        }
+        assertEquals(LinkRateController.MAX_LEVEL, controller.getLevel());
+        assertFalse(controller.isAbsoluteMotion());
+        assertTrue(controller.summary().contains(" delta"));
+
+        controller.reset();
+        assertEquals(0, controller.getLevel());
+        assertEquals(1f / TouchProtocol.COORD_SCALE, controller.getQuantum(), 0f);
+    }
+}
@@ -0,0 +1,43 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MessageLogStructuresTest {
+
+    @Test
+    public void ringBuffer_keepsNewestEntries() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        for (int i = 0; i < 5; i++) {
+            ring.add(i);
+        }
+        assertEquals(3, ring.size());
+        assertEquals(2, (int) ring.get(0));
+        assertEquals(4, (int) ring.get(2));
+
+        ring.setCapacity(2);
+        assertEquals(2, ring.size());
+        assertEquals(3, (int) ring.get(0));
+        assertEquals(4, (int) ring.get(1));
+
+        ring.setCapacity(4);
+        ring.add(5);
+        assertEquals(3, ring.size());
+        assertEquals(5, (int) ring.get(2));
+    }
+
+    @Test
+    public void rateLimiter_reportsSuppressedCount() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(2, 1000);
+        assertEquals(0, limiter.acquire("echo", 0));
+        assertEquals(0, limiter.acquire("echo", 10));
+        assertEquals(-1, limiter.acquire("echo", 20));
+        assertEquals(-1, limiter.acquire("echo", 30));
+        // 其他类别不受影响
+        assertEquals(0, limiter.acquire("status", 30));
+
+        assertEquals(2, limiter.acquire("echo", 1000));
+        assertEquals(0, limiter.acquire("echo", 1001));
+    }
+}
@@ -0,0 +1,131 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionDatagramTest {
+
+    @Test
+    public void encodeDecode_roundTrip() {
+        MotionDatagram out = datagram(0xCAFEBABE, 7, 1.5f * 1000, -3.25f * 1000);
+        out.timestamp = 0xFFFFFFF0L;
+        out.predictedX = TouchProtocol.quantize(-2.5f);
+        out.predictedY = TouchProtocol.quantize(4f);
+        byte[] buffer = new byte[MotionDatagram.SIZE];
+        assertEquals(MotionDatagram.SIZE, out.encode(buffer, 0));
+        assertEquals(TouchProtocol.KIND_MOTION, TouchProtocol.frameKind(buffer[0]));
+
+        MotionDatagram in = new MotionDatagram();
+        assertTrue(in.decode(buffer, 0, buffer.length));
+        assertEquals(out.session, in.session);
+        assertEquals(7, in.seq);
+        assertEquals(0xFFFFFFF0L, in.timestamp);
+        assertEquals(out.totalX, in.totalX);
+        assertEquals(out.totalY, in.totalY);
+        assertEquals(-2.5f, TouchProtocol.dequantize(in.predictedX), 0f);
+        assertEquals(4f, TouchProtocol.dequantize(in.predictedY), 0f);
+
+        assertFalse(in.decode(buffer, 0, buffer.length - 1));
+        TouchProtocol.writeHeader(buffer, 0, TouchProtocol.KIND_EVENTS);
+        assertFalse(in.decode(buffer, 0, buffer.length));
+    }
+
+    @Test
+    public void lossAndReordering_stillConvergeToFinalPosition() {
+        // 200 次滑动，每次 (1.5, -0.5)，按发送顺序生成累计值数据报
+        List<MotionDatagram> sent = new ArrayList<>();
+        int totalX = 0;
+        int totalY = 0;
+        for (int seq = 1; seq <= 200; seq++) {
+            totalX += MotionDatagram.toFixed(1.5f);
+            totalY += MotionDatagram.toFixed(-0.5f);
+            MotionDatagram d = new MotionDatagram();
+            d.session = 42;
+            d.seq = seq;
+            d.totalX = totalX;
+            d.totalY = totalY;
+            sent.add(d);
+        }
+
+        // 丢掉约三成，剩下的在小窗口内打乱顺序，最后一个保证到达
+        Random random = new Random(1);
+        List<MotionDatagram> link = new ArrayList<>();
+        for (int i = 0; i < sent.size() - 1; i++) {
+            if (random.nextInt(10) >= 3) {
+                link.add(sent.get(i));
+            }
+        }
+        for (int i = 0; i + 4 <= link.size(); i += 4) {
+            Collections.shuffle(link.subList(i, i + 4), random);
+        }
+        link.add(sent.get(sent.size() - 1));
+
+        MotionDatagramReceiver receiver = new MotionDatagramReceiver();
+        float x = 0;
+        float y = 0;
+        float lastX = 0;
+        for (MotionDatagram d : link) {
+            if (receiver.accept(d)) {
+                x += receiver.getDeltaX();
+                y += receiver.getDeltaY();
+                // 光标只向前走，不会因为迟到的数据报倒退
+                assertTrue(x >= lastX);
+                lastX = x;
+            }
+        }
+
+        assertEquals(300f, x, 0f);
+        assertEquals(-100f, y, 0f);
+        assertTrue(receiver.getStaleCount() > 0);
+        assertEquals(receiver.getAcceptedCount() + receiver.getStaleCount(), link.size());
+        assertTrue(receiver.getSkippedCount() >= sent.size() - link.size());
+    }
+
+    @Test
+    public void duplicatesAreIgnored_andNewSessionStartsFromZero() {
+        MotionDatagramReceiver receiver = new MotionDatagramReceiver();
+        MotionDatagram d = datagram(1, 1, 10f, 0f);
+        assertTrue(receiver.accept(d));
+        assertEquals(10f, receiver.getDeltaX(), 0f);
+        assertFalse(receiver.accept(d));
+        assertEquals(1, receiver.getStaleCount());
+
+        // 新会话的累计值从零开始，即使序号更小
+        assertTrue(receiver.accept(datagram(2, 1, 3f, 4f)));
+        assertEquals(3f, receiver.getDeltaX(), 0f);
+        assertEquals(4f, receiver.getDeltaY(), 0f);
+    }
+
+    @Test
+    public void sequenceAndTotalsWrapAround() {
+        MotionDatagramReceiver receiver = new MotionDatagramReceiver();
+        MotionDatagram d = new MotionDatagram();
+        d.session = 5;
+        d.seq = Integer.MAX_VALUE;
+        d.totalX = Integer.MAX_VALUE - 7;
+        assertTrue(receiver.accept(d));
+
+        d.seq = Integer.MIN_VALUE; // 回绕后仍视为更新
+        d.totalX = Integer.MAX_VALUE + 9; // 回绕：净位移 +16 即 2 像素
+        assertTrue(receiver.accept(d));
+        assertEquals(2f, receiver.getDeltaX(), 0f);
+
+        d.seq = Integer.MAX_VALUE;
+        assertFalse(receiver.accept(d));
+    }
+
+    private static MotionDatagram datagram(int session, int seq, float totalX, float totalY) {
+        MotionDatagram d = new MotionDatagram();
+        d.session = session;
+        d.seq = seq;
+        d.totalX = MotionDatagram.toFixed(totalX);
+        d.totalY = MotionDatagram.toFixed(totalY);
+        return d;
+    }
+}
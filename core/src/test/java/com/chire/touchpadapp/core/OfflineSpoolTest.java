@@ -0,0 +1,93 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OfflineSpoolTest {
+
+    private static List<String> drain(OfflineSpool spool, long nowMs) {
+        List<String> out = new ArrayList<>();
+        spool.drain(event -> out.add(TouchProtocol.toText(event.opcode, event.x, event.y)),
+                Integer.MAX_VALUE, nowMs);
+        return out;
+    }
+
+    @Test
+    public void offer_collapsesMotionBetweenReliableEvents() {
+        OfflineSpool spool = new OfflineSpool(16, 5000);
+        spool.offer(TouchProtocol.OP_SCROLL, 0, 1, 1f, 2f, 0);
+        spool.offer(TouchProtocol.OP_SCROLL, TouchProtocol.FLAG_PROVISIONAL, 2, 9f, 9f, 0);
+        spool.offer(TouchProtocol.OP_SCROLL, 0, 3, 3f, -1f, 0);
+        spool.offer(TouchProtocol.OP_TAP, 0, 4, 10f, 20f, 0);
+        for (int i = 0; i < 100; i++) {
+            spool.offer(TouchProtocol.OP_SCROLL, 0, 5 + i, 0.5f, 0.25f, 0);
+        }
+
+        assertEquals(3, spool.size());
+        assertEquals(100, spool.getCollapsedCount());
+        assertEquals(List.of("单指滑动 4.0 1.0", "单指单击 10.0 20.0", "单指滑动 50.0 25.0"), drain(spool, 0));
+        assertTrue(spool.isEmpty());
+    }
+
+    @Test
+    public void offer_splitsNetDeltaBeyondProtocolRange() {
+        OfflineSpool spool = new OfflineSpool(16, 5000);
+        for (int i = 0; i < 10; i++) {
+            spool.offer(TouchProtocol.OP_SCROLL, 0, i, 1000f, 0f, 0);
+        }
+        List<String> out = drain(spool, 0);
+        assertEquals(List.of("单指滑动 4000.0 0.0", "单指滑动 4000.0 0.0", "单指滑动 2000.0 0.0"), out);
+    }
+
+    @Test
+    public void position_replacesEarlierMotion() {
+        OfflineSpool spool = new OfflineSpool(16, 5000);
+        spool.offer(TouchProtocol.OP_SCROLL, 0, 1, 5f, 5f, 0);
+        spool.offer(TouchProtocol.OP_POSITION, 0, 2, 100f, 50f, 0);
+        spool.offer(TouchProtocol.OP_SCROLL, 0, 3, 1f, 2f, 0);
+        List<TouchEvent> out = new ArrayList<>();
+        spool.drain(event -> out.add(new TouchEvent().set(event.opcode, event.flags, event.timestamp, event.x, event.y)),
+                10, 0);
+        assertEquals(1, out.size());
+        assertEquals(TouchProtocol.OP_POSITION, out.get(0).opcode);
+        assertEquals(101f, out.get(0).x, 0f);
+        assertEquals(52f, out.get(0).y, 0f);
+        assertEquals(3, out.get(0).timestamp);
+    }
+
+    @Test
+    public void drain_expiresStaleEntriesByAge() {
+        OfflineSpool spool = new OfflineSpool(16, 1000);
+        spool.offer(TouchProtocol.OP_TAP, 0, 1, 1f, 1f, 0);
+        spool.offer(TouchProtocol.OP_SCROLL, 0, 2, 1f, 0f, 500);
+        // 合并刷新了写入时间，这条移动记录仍然有效
+        spool.offer(TouchProtocol.OP_SCROLL, 0, 3, 1f, 0f, 1400);
+        spool.offer(TouchProtocol.OP_DOUBLE_TAP, 0, 4, 2f, 2f, 1500);
+
+        assertEquals(List.of("单指滑动 2.0 0.0", "单指双击 2.0 2.0"), drain(spool, 2000));
+        assertEquals(1, spool.getExpiredCount());
+
+        spool.offer(TouchProtocol.OP_TAP, 0, 5, 3f, 3f, 3000);
+        assertEquals(List.of(), drain(spool, 4001));
+        assertEquals(2, spool.getExpiredCount());
+    }
+
+    @Test
+    public void full_evictsOldestAndDrainRespectsMax() {
+        OfflineSpool spool = new OfflineSpool(4, 5000);
+        for (int i = 0; i < 6; i++) {
+            spool.offer(TouchProtocol.OP_TAP, 0, i, i, 0f, 0);
+        }
+        assertEquals(4, spool.size());
+        assertEquals(2, spool.getEvictedCount());
+
+        List<String> out = new ArrayList<>();
+        assertEquals(3, spool.drain(event -> out.add(TouchProtocol.toText(event.opcode, event.x, event.y)), 3, 0));
+        assertEquals(List.of("单指单击 2.0 0.0", "单指单击 3.0 0.0", "单指单击 4.0 0.0"), out);
+        assertEquals(1, spool.size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutboundEventQueueTest {
+
+    private static List<Float> drainX(OutboundEventQueue queue) {
+        List<Float> xs = new ArrayList<>();
+        queue.drain(e -> xs.add(e.x), Integer.MAX_VALUE);
+        return xs;
+    }
+
+    @Test
+    public void mixedEvents_keepInsertionOrder() {
+        OutboundEventQueue queue = new OutboundEventQueue(8, 8);
+        queue.offer(TouchProtocol.OP_SCROLL, 0, 0, 1, 0);
+        queue.offer(TouchProtocol.OP_TAP, 0, 0, 2, 0);
+        queue.offer(TouchProtocol.OP_SCROLL, 0, 0, 3, 0);
+        queue.offer(TouchProtocol.OP_DOUBLE_TAP, 0, 0, 4, 0);
+
+        assertEquals(List.of(1f, 2f, 3f, 4f), drainX(queue));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void motionOverflow_dropsOldest() {
+        OutboundEventQueue queue = new OutboundEventQueue(4, 4);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(TouchProtocol.OP_SCROLL, 0, i, i, 0);
+        }
+
+        assertEquals(2, queue.getDroppedMotionCount());
+        assertEquals(4, queue.getHighWaterMark());
+        assertEquals(List.of(2f, 3f, 4f, 5f), drainX(queue));
+    }
+
+    @Test
+    public void reliableOverflow_isNeverDropped() {
+        OutboundEventQueue queue = new OutboundEventQueue(4, 4);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(TouchProtocol.OP_TAP, 0, i, i, 0);
+        }
+        queue.offer(TouchProtocol.OP_SCROLL, 0, 10, 10, 0);
+
+        assertEquals(0, queue.getDroppedMotionCount());
+        assertEquals(6, queue.getOverflowedReliableCount());
+        assertEquals(List.of(0f, 1f, 2f, 3f, 4f, 5f, 6f, 7f, 8f, 9f, 10f), drainX(queue));
+    }
+
+    @Test
+    public void drain_respectsLimit() {
+        OutboundEventQueue queue = new OutboundEventQueue(8, 8);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(TouchProtocol.OP_SCROLL, 0, i, i, 0);
+        }
+        assertEquals(3, queue.drain(e -> {}, 3));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void concurrentProducerAndConsumer_preserveReliableEvents() throws Exception {
+        OutboundEventQueue queue = new OutboundEventQueue(16, 16);
+        int taps = 20000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < taps; i++) {
+                queue.offer(TouchProtocol.OP_SCROLL, 0, i, 0, 0);
+                queue.offer(TouchProtocol.OP_TAP, 0, i, i, 0);
+            }
+        });
+
+        List<Float> received = new ArrayList<>();
+        producer.start();
+        while (producer.isAlive() || !queue.isEmpty()) {
+            queue.drain(e -> {
+                if (e.opcode == TouchProtocol.OP_TAP) {
+                    received.add(e.x);
+                }
+            }, 64);
+        }
+        producer.join();
+
+        assertEquals(taps, received.size());
+        for (int i = 0; i < taps; i++) {
+            assertEquals(i, received.get(i), 0f);
+        }
+    }
+}
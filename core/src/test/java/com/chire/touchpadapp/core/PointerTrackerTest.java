@@ -0,0 +1,146 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PointerTrackerTest {
+
+    /** 记录解码结果，触点格式为 "id:state@x,y"。 */
+    private static final class Recorder implements PointerFrameDecoder.Listener {
+        long timestamp;
+        int gestures;
+        float scrollX;
+        float scrollY;
+        float scale;
+        float rotation;
+        final List<String> pointers = new ArrayList<>();
+
+        @Override
+        public void onFrame(long timestamp, int gestures, float scrollX, float scrollY, float scale, float rotation) {
+            this.timestamp = timestamp;
+            this.gestures = gestures;
+            this.scrollX = scrollX;
+            this.scrollY = scrollY;
+            this.scale = scale;
+            this.rotation = rotation;
+            pointers.clear();
+        }
+
+        @Override
+        public void onPointer(int id, int state, float x, float y) {
+            pointers.add(id + ":" + state + "@" + x + "," + y);
+        }
+    }
+
+    private final PointerTracker tracker = new PointerTracker();
+    private final PointerFrameDecoder decoder = new PointerFrameDecoder();
+    private final Recorder recorder = new Recorder();
+    private final byte[] frame = new byte[PointerTracker.MAX_FRAME_SIZE];
+
+    private int emit(long timestamp) {
+        int length = tracker.encodeFrame(timestamp, frame, 0);
+        if (length > 0) {
+            decoder.decode(frame, 0, length, recorder);
+        }
+        return length;
+    }
+
+    @Test
+    public void everyActivePointerInOneFrame_andLiftedOnesOnce() {
+        tracker.pointerDown(0, 100f, 100f);
+        tracker.pointerDown(3, 200f, 100f);
+        assertEquals(PointerTracker.FRAME_HEADER_SIZE + 2 * PointerTracker.POINTER_SIZE, emit(1000));
+        assertEquals(1000, recorder.timestamp);
+        assertEquals(List.of("0:1@100.0,100.0", "3:1@200.0,100.0"), recorder.pointers);
+        assertEquals(0, recorder.gestures);
+
+        // 没有变化时不出帧
+        tracker.pointerMove(0, 100f, 100f);
+        assertEquals(0, emit(1016));
+
+        tracker.pointerUp(3, 210f, 100f);
+        emit(1032);
+        assertEquals(List.of("0:0@100.0,100.0", "3:2@210.0,100.0"), recorder.pointers);
+        assertEquals(1, tracker.getActiveCount());
+
+        tracker.pointerMove(0, 90f, 100f);
+        emit(1048);
+        assertEquals(List.of("0:0@90.0,100.0"), recorder.pointers);
+    }
+
+    @Test
+    public void twoFingerScroll_isCentroidMotion() {
+        tracker.pointerDown(0, 100f, 300f);
+        tracker.pointerDown(1, 200f, 300f);
+        emit(0);
+
+        tracker.pointerMove(0, 100f, 280f);
+        tracker.pointerMove(1, 200f, 280f);
+        emit(16);
+        assertEquals(PointerTracker.GESTURE_SCROLL, recorder.gestures);
+        // 与单指滑动相同：上一位置 - 当前位置
+        assertEquals(0f, recorder.scrollX, 0f);
+        assertEquals(20f, recorder.scrollY, 0f);
+        assertEquals(1f, recorder.scale, 0f);
+        assertEquals(0f, recorder.rotation, 0f);
+    }
+
+    @Test
+    public void pinchAndRotate() {
+        tracker.pointerDown(0, 100f, 100f);
+        tracker.pointerDown(1, 200f, 100f);
+        emit(0);
+
+        // 间距加倍
+        tracker.pointerMove(0, 50f, 100f);
+        tracker.pointerMove(1, 250f, 100f);
+        emit(16);
+        assertTrue((recorder.gestures & PointerTracker.GESTURE_PINCH) != 0);
+        assertEquals(2f, recorder.scale, 1e-3f);
+        assertEquals(0, recorder.gestures & PointerTracker.GESTURE_SCROLL);
+
+        // 绕重心顺时针转90度（屏幕坐标y向下）
+        tracker.pointerMove(0, 150f, 0f);
+        tracker.pointerMove(1, 150f, 200f);
+        emit(32);
+        assertTrue((recorder.gestures & PointerTracker.GESTURE_ROTATE) != 0);
+        assertEquals(Math.PI / 2, recorder.rotation, 1e-3);
+        assertEquals(1f, recorder.scale, 1e-3f);
+    }
+
+    @Test
+    public void newPointerDoesNotProduceGestureInItsFirstFrame() {
+        tracker.pointerDown(0, 100f, 100f);
+        emit(0);
+        tracker.pointerMove(0, 110f, 100f);
+        tracker.pointerDown(1, 300f, 300f);
+        emit(16);
+        assertEquals(0, recorder.gestures);
+
+        tracker.cancelAll();
+        emit(32);
+        assertEquals(List.of("0:2@110.0,100.0", "1:2@300.0,300.0"), recorder.pointers);
+        assertEquals(0, tracker.getActiveCount());
+        assertFalse(tracker.hasChanges());
+    }
+
+    @Test
+    public void pointerLimit() {
+        for (int id = 0; id < PointerTracker.MAX_POINTERS; id++) {
+            assertTrue(tracker.pointerDown(id, id, id));
+        }
+        assertFalse(tracker.pointerDown(99, 0f, 0f));
+        assertEquals(PointerTracker.MAX_FRAME_SIZE, emit(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFrameIsRejected() {
+        tracker.pointerDown(0, 1f, 1f);
+        int length = tracker.encodeFrame(0, frame, 0);
+        decoder.decode(frame, 0, length - 1, recorder);
+    }
+}
@@ -0,0 +1,49 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectBackoffTest {
+
+    @Test
+    public void delays_growExponentiallyWithinJitterBounds() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 10_000, 0, new Random(42));
+        long ceiling = 100;
+        for (int i = 0; i < 20; i++) {
+            long delay = backoff.nextDelayMs();
+            assertTrue(delay + " < " + ceiling / 2, delay >= ceiling / 2);
+            assertTrue(delay + " > " + ceiling, delay <= ceiling);
+            ceiling = Math.min(10_000, ceiling * 2);
+        }
+        assertEquals(20, backoff.getAttempts());
+    }
+
+    @Test
+    public void maxAttempts_thenReset() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 1000, 3, new Random(1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(backoff.nextDelayMs() >= 0);
+        }
+        assertEquals(-1, backoff.nextDelayMs());
+
+        backoff.reset();
+        long delay = backoff.nextDelayMs();
+        assertTrue(delay >= 50 && delay <= 100);
+    }
+
+    @Test
+    public void manyAttempts_doNotOverflow() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1, Long.MAX_VALUE / 2, 0, new Random(7));
+        for (int i = 0; i < 200; i++) {
+            assertTrue(backoff.nextDelayMs() >= 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRange_isRejected() {
+        new ReconnectBackoff(1000, 10, 1);
+    }
+}
@@ -0,0 +1,154 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RetransmitBufferTest {
+
+    private static List<String> replay(RetransmitBuffer buffer) {
+        List<String> out = new ArrayList<>();
+        buffer.replay((seq, opcode, flags, timestamp, x, y) ->
+                out.add(seq + ":" + TouchProtocol.toText(opcode, x, y)));
+        return out;
+    }
+
+    @Test
+    public void ack_releasesEverythingUpToSeq() {
+        RetransmitBuffer buffer = new RetransmitBuffer(16);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, buffer.append(TouchProtocol.OP_TAP, 0, i, i, i));
+        }
+        buffer.ack(3);
+        assertEquals(2, buffer.size());
+        assertEquals(3, buffer.getLastAcked());
+        assertEquals(List.of("4:单指单击 3.0 3.0", "5:单指单击 4.0 4.0"), replay(buffer));
+
+        // 过期的确认不会回退
+        buffer.ack(1);
+        assertEquals(3, buffer.getLastAcked());
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    public void replay_collapsesMotionRunsAndDropsPredictions() {
+        RetransmitBuffer buffer = new RetransmitBuffer(64);
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 10, 1f, 2f);                            // 1
+        buffer.append(TouchProtocol.OP_SCROLL, TouchProtocol.FLAG_PROVISIONAL, 26, 9f, 9f); // 2
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 18, 3f, -1f);                           // 3
+        buffer.append(TouchProtocol.OP_TAP, 0, 30, 100f, 200f);                           // 4
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 40, 0.5f, 0.5f);                        // 5
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 48, 0.5f, 0.5f);                        // 6
+
+        assertEquals(List.of("3:单指滑动 4.0 1.0", "4:单指单击 100.0 200.0", "6:单指滑动 1.0 1.0"),
+                replay(buffer));
+        // 重放不移除，直到被确认
+        assertEquals(6, buffer.size());
+    }
+
+    @Test
+    public void replay_collapsesRunWithPositionIntoLatestPosition() {
+        RetransmitBuffer buffer = new RetransmitBuffer(64);
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 10, 5f, 5f);      // 1
+        buffer.append(TouchProtocol.OP_POSITION, 0, 20, 100f, 50f); // 2
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 30, 1f, -2f);     // 3
+        buffer.append(TouchProtocol.OP_TAP, 0, 40, 0f, 0f);         // 4
+        buffer.append(TouchProtocol.OP_POSITION, 0, 50, 4095f, 0f); // 5
+        buffer.append(TouchProtocol.OP_SCROLL, 0, 60, 2f, 0f);      // 6
+
+        // 位置之后的位移并入位置，超出范围时按16位回绕
+        assertEquals(List.of("3:单指位置 101.0 48.0", "4:单指单击 0.0 0.0", "6:单指位置 -4095.0 0.0"),
+                replay(buffer));
+    }
+
+    @Test
+    public void mergedDelta_isSplitBeforeLeavingCoordinateRange() {
+        RetransmitBuffer buffer = new RetransmitBuffer(64);
+        for (int i = 0; i < 10; i++) {
+            buffer.append(TouchProtocol.OP_SCROLL, 0, i, 1000f, 0f);
+        }
+        float total = 0;
+        List<String> out = replay(buffer);
+        for (String record : out) {
+            float dx = Float.parseFloat(record.split(" ")[1]);
+            assertTrue(dx <= Short.MAX_VALUE / TouchProtocol.COORD_SCALE);
+            total += dx;
+        }
+        assertEquals(10_000f, total, 0f);
+        assertEquals(3, out.size());
+    }
+
+    @Test
+    public void full_compactsMotionBeforeEvicting() {
+        RetransmitBuffer buffer = new RetransmitBuffer(8);
+        buffer.append(TouchProtocol.OP_TAP, 0, 0, 1f, 1f);
+        for (int i = 0; i < 100; i++) {
+            buffer.append(TouchProtocol.OP_SCROLL, 0, i, 1f, -1f);
+        }
+        buffer.append(TouchProtocol.OP_DOUBLE_TAP, 0, 200, 2f, 2f);
+
+        assertEquals(0, buffer.getEvictedCount());
+        assertTrue(buffer.getCollapsedCount() > 0);
+        assertEquals(List.of("1:单指单击 1.0 1.0", "101:单指滑动 100.0 -100.0", "102:单指双击 2.0 2.0"),
+                replay(buffer));
+    }
+
+    @Test
+    public void full_neverCompactsAcrossSentRecords() {
+        RetransmitBuffer buffer = new RetransmitBuffer(8);
+        for (int i = 1; i <= 8; i++) {
+            buffer.append(TouchProtocol.OP_SCROLL, 0, i, 1f, 0f);
+        }
+        // 1..4 已发出，接收端已应用但还没确认；连接中断后继续追加
+        buffer.markSent(4);
+        for (int i = 9; i <= 20; i++) {
+            buffer.append(TouchProtocol.OP_SCROLL, 0, i, 1f, 0f);
+        }
+        assertEquals(0, buffer.getEvictedCount());
+        assertTrue(buffer.getCollapsedCount() > 0);
+
+        buffer.ack(4);
+        float replayed = 0;
+        for (String record : replay(buffer)) {
+            replayed += Float.parseFloat(record.split(" ")[1]);
+        }
+        assertEquals(16f, replayed, 0f);
+    }
+
+    @Test
+    public void full_ofReliableEvents_evictsOldest() {
+        RetransmitBuffer buffer = new RetransmitBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.append(TouchProtocol.OP_TAP, 0, i, i, 0f);
+        }
+        assertEquals(2, buffer.getEvictedCount());
+        assertEquals(4, buffer.size());
+        assertEquals("3:单指单击 2.0 0.0", replay(buffer).get(0));
+    }
+
+    @Test
+    public void clear_startsNewSession() {
+        RetransmitBuffer buffer = new RetransmitBuffer(4);
+        buffer.append(TouchProtocol.OP_TAP, 0, 0, 0f, 0f);
+        buffer.ack(1);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getLastAcked());
+        assertEquals(1, buffer.getNextSeq());
+    }
+
+    @Test
+    public void sequencedFrame_decodesRecordSeqs() {
+        byte[] frame = new byte[TouchProtocol.SEQ_HEADER_SIZE + 2 * TouchProtocol.RECORD_SIZE];
+        int pos = TouchProtocol.writeSequencedHeader(frame, 0, 41);
+        pos = TouchProtocol.writeRecord(frame, pos, TouchProtocol.OP_TAP, 0, 1, 1f, 1f);
+        TouchProtocol.writeRecord(frame, pos, TouchProtocol.OP_SCROLL, 0, 2, 1f, 1f);
+
+        List<Integer> seqs = new ArrayList<>();
+        new TouchFrameDecoder().decode(frame, e -> seqs.add(e.seq));
+        assertEquals(List.of(41, 42), seqs);
+    }
+}
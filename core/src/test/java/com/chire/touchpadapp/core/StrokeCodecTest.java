@@ -0,0 +1,163 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StrokeCodecTest {
+
+    /** 收集解码结果，便于断言。 */
+    private static final class Collector implements StrokeDecoder.Listener {
+        final List<Float> points = new ArrayList<>();
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onStrokeBegin(int strokeId, int color, float width) {
+            events.add("begin " + strokeId + " " + Integer.toHexString(color) + " " + width);
+        }
+
+        @Override
+        public void onPoint(int strokeId, float x, float y) {
+            points.add(x);
+            points.add(y);
+        }
+
+        @Override
+        public void onStrokeEnd(int strokeId) {
+            events.add("end " + strokeId);
+        }
+    }
+
+    private static StrokeEncoder encoderInto(List<byte[]> chunks) {
+        return new StrokeEncoder((data, offset, length) ->
+                chunks.add(Arrays.copyOfRange(data, offset, offset + length)));
+    }
+
+    // 模拟一笔手写：平滑曲线，采样间距几个像素
+    private static float[] samplePoints(int count) {
+        float[] points = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            points[2 * i] = 200f + 150f * (float) Math.sin(i * 0.05) + i * 0.7f;
+            points[2 * i + 1] = 300f + 120f * (float) Math.cos(i * 0.031);
+        }
+        return points;
+    }
+
+    private static List<byte[]> encode(float[] points, int chunkPoints) {
+        List<byte[]> chunks = new ArrayList<>();
+        StrokeEncoder encoder = encoderInto(chunks);
+        encoder.setChunkPoints(chunkPoints);
+        encoder.beginStroke(7, 0xFF2196F3, 8f);
+        for (int i = 0; i < points.length; i += 2) {
+            encoder.addPoint(points[i], points[i + 1]);
+        }
+        encoder.endStroke();
+        return chunks;
+    }
+
+    @Test
+    public void roundTrip_withinQuantizationError() {
+        float[] points = samplePoints(500);
+        List<byte[]> chunks = encode(points, 64);
+        assertTrue(chunks.size() > 1);
+
+        Collector collector = new Collector();
+        StrokeDecoder decoder = new StrokeDecoder();
+        for (byte[] chunk : chunks) {
+            decoder.decode(chunk, collector);
+        }
+
+        assertEquals(List.of("begin 7 ff2196f3 8.0", "end 7"), collector.events);
+        assertEquals(points.length, collector.points.size());
+        float maxError = 0.5f / StrokeEncoder.DEFAULT_SCALE;
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(points[i], collector.points.get(i), maxError + 1e-4f);
+        }
+    }
+
+    @Test
+    public void chunks_areIndependent() {
+        float[] points = samplePoints(100);
+        List<byte[]> chunks = encode(points, 10);
+
+        // 跳过前面的分块，后面的分块仍能独立解码出绝对坐标
+        Collector collector = new Collector();
+        new StrokeDecoder().decode(chunks.get(3), collector);
+        assertEquals(20, collector.points.size());
+        assertEquals(points[60], collector.points.get(0), 0.1f);
+        assertEquals(points[61], collector.points.get(1), 0.1f);
+    }
+
+    @Test
+    public void negativeAndLargeCoordinates_roundTrip() {
+        float[] points = {-1000.5f, 20000f, 32000f, -32000f, 0f, 0f};
+        Collector collector = new Collector();
+        for (byte[] chunk : encode(points, 64)) {
+            new StrokeDecoder().decode(chunk, collector);
+        }
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(points[i], collector.points.get(i), 0.07f);
+        }
+    }
+
+    @Test
+    public void duplicateQuantizedPoints_areSkipped() {
+        float[] points = {10f, 10f, 10.01f, 10.01f, 10f, 10f, 12f, 10f};
+        Collector collector = new Collector();
+        for (byte[] chunk : encode(points, 64)) {
+            new StrokeDecoder().decode(chunk, collector);
+        }
+        assertEquals(List.of(10f, 10f, 12f, 10f), collector.points);
+    }
+
+    @Test
+    public void scaleChange_appliesToNextChunk() {
+        List<byte[]> chunks = new ArrayList<>();
+        StrokeEncoder encoder = encoderInto(chunks);
+        encoder.beginStroke(1, 0, 4f);
+        encoder.addPoint(10.3f, 10.3f);
+        encoder.setScale(1);
+        encoder.flush();
+        encoder.addPoint(10.3f, 10.3f);
+        encoder.endStroke();
+
+        Collector collector = new Collector();
+        for (byte[] chunk : chunks) {
+            new StrokeDecoder().decode(chunk, collector);
+        }
+        assertEquals(10.25f, collector.points.get(0), 0f);
+        assertEquals(10f, collector.points.get(2), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void eventFrame_isRejected() {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        TouchProtocol.encode(frame, 0, TouchProtocol.OP_TAP, 0, 0, 1f, 1f);
+        new StrokeDecoder().decode(frame, new Collector());
+    }
+
+    @Test
+    public void encoded_isMuchSmallerThanDrawingDataJson() {
+        float[] points = samplePoints(1000);
+        int binary = 0;
+        for (byte[] chunk : encode(points, 64)) {
+            binary += chunk.length;
+        }
+
+        // 与 MainActivity 解析的 drawing_data 消息形状相同
+        StringBuilder json = new StringBuilder("{\"type\":\"drawing_data\",\"points\":[");
+        for (int i = 0; i < points.length; i++) {
+            if (i > 0) json.append(',');
+            json.append(points[i]);
+        }
+        json.append("]}");
+        int jsonBytes = json.toString().getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(jsonBytes + " vs " + binary, jsonBytes > 5 * binary);
+    }
+}
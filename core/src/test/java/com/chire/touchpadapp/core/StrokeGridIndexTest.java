@@ -0,0 +1,114 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StrokeGridIndexTest {
+
+    @Test
+    public void query_matchesBruteForce_andVisitsEachStrokeOnce() {
+        StrokeGridIndex index = new StrokeGridIndex(64);
+        Random random = new Random(7);
+        float[][] boxes = new float[2000][];
+        for (int id = 0; id < boxes.length; id++) {
+            float x = random.nextFloat() * 4000 - 1000;
+            float y = random.nextFloat() * 4000 - 1000;
+            // 少数跨越很多网格的长笔画
+            float w = random.nextInt(20) == 0 ? 800 : random.nextFloat() * 60;
+            float h = random.nextFloat() * 60;
+            boxes[id] = new float[] {x, y, x + w, y + h};
+            index.insert(id, x, y, x + w, y + h);
+        }
+        for (int id = 0; id < boxes.length; id += 3) {
+            index.remove(id);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            float l = random.nextFloat() * 4000 - 1000;
+            float t = random.nextFloat() * 4000 - 1000;
+            float r = l + random.nextFloat() * 1000;
+            float b = t + random.nextFloat() * 1000;
+            List<Integer> found = new ArrayList<>();
+            int visited = index.query(l, t, r, b, found::add);
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < boxes.length; id++) {
+                float[] box = boxes[id];
+                if (id % 3 != 0 && box[0] <= r && box[2] >= l && box[1] <= b && box[3] >= t) {
+                    expected.add(id);
+                }
+            }
+            Collections.sort(found);
+            assertEquals(expected, found);
+            assertEquals(expected.size(), visited);
+        }
+    }
+
+    @Test
+    public void hugeQuery_walksOccupiedCellsOnly() {
+        StrokeGridIndex index = new StrokeGridIndex(16);
+        index.insert(0, 0, 0, 10, 10);
+        index.insert(1, 1e6f, 1e6f, 1e6f + 10, 1e6f + 10);
+        List<Integer> found = new ArrayList<>();
+        index.query(-1e7f, -1e7f, 1e7f, 1e7f, found::add);
+        assertEquals(2, found.size());
+        assertEquals(2, index.getCellCount());
+    }
+
+    @Test
+    public void reinsert_movesStroke_andClearEmptiesCells() {
+        StrokeGridIndex index = new StrokeGridIndex(100);
+        index.insert(5, 0, 0, 50, 50);
+        index.insert(5, 500, 500, 550, 550);
+        assertEquals(1, index.size());
+        assertEquals(0, index.query(0, 0, 99, 99, id -> fail()));
+        assertEquals(1, index.queryNear(520, 520, 5, id -> assertEquals(5, id)));
+
+        index.remove(5);
+        assertFalse(index.contains(5));
+        assertEquals(0, index.getCellCount());
+        index.insert(2, 0, 0, 1, 1);
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.query(-10, -10, 10, 10, id -> fail()));
+    }
+
+    @Test
+    public void polylineDistance_andBounds() {
+        float[] points = {0, 0, 10, 0, 10, 10};
+        assertEquals(25f, StrokeGeometry.polylineDistanceSq(points, 3, 5, 5), 1e-4f);
+        assertEquals(4f, StrokeGeometry.polylineDistanceSq(points, 3, 12, 5), 1e-4f);
+        assertEquals(2f, StrokeGeometry.polylineDistanceSq(points, 1, 1, 1), 1e-4f);
+
+        float[] box = new float[4];
+        StrokeGeometry.bounds(points, 3, 2, box);
+        assertArrayEquals(new float[] {-2, -2, 12, 12}, box, 0f);
+    }
+
+    @Test
+    public void viewportZoom_keepsFocusFixed_andReportsVisibleWorld() {
+        Viewport viewport = new Viewport();
+        viewport.panBy(100, 50);
+        float worldX = viewport.toWorldX(300);
+        float worldY = viewport.toWorldY(200);
+        viewport.zoomBy(2f, 300, 200);
+        assertEquals(300, viewport.toScreenX(worldX), 1e-3f);
+        assertEquals(200, viewport.toScreenY(worldY), 1e-3f);
+
+        float[] visible = new float[4];
+        viewport.visibleWorld(800, 600, visible);
+        assertEquals(400, visible[2] - visible[0], 1e-3f);
+        assertEquals(300, visible[3] - visible[1], 1e-3f);
+
+        // 超出上限的部分不生效
+        assertEquals(4f, viewport.zoomBy(100f, 0, 0), 1e-4f);
+        assertEquals(8f, viewport.getScale(), 0f);
+        viewport.reset();
+        assertTrue(viewport.isIdentity());
+    }
+}
@@ -0,0 +1,214 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StrokeSimplifierTest {
+
+    /** 把曲线展开为折线，二次曲线段按固定步数采样。 */
+    private static final class Flattener implements SmoothCurveBuilder.PathSink {
+        final List<Float> points = new ArrayList<>();
+        float x;
+        float y;
+
+        @Override
+        public void moveTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void quadTo(float cx, float cy, float x1, float y1) {
+            float x0 = x;
+            float y0 = y;
+            for (int i = 1; i <= 16; i++) {
+                float t = i / 16f;
+                float u = 1 - t;
+                add(u * u * x0 + 2 * u * t * cx + t * t * x1, u * u * y0 + 2 * u * t * cy + t * t * y1);
+            }
+        }
+
+        private void add(float px, float py) {
+            points.add(px);
+            points.add(py);
+            x = px;
+            y = py;
+        }
+
+        float[] toArray() {
+            float[] out = new float[points.size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = points.get(i);
+            }
+            return out;
+        }
+    }
+
+    // 约每像素一个采样的手绘笔画：直线、圆弧和波浪，带 ±0.15 像素抖动
+    private static float[] handDrawnStroke() {
+        Random random = new Random(3);
+        List<Float> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            points.add((float) i);
+            points.add(100f);
+        }
+        for (int i = 0; i <= 300; i++) {
+            double a = Math.PI * i / 300;
+            points.add((float) (300 + 100 * Math.sin(a)));
+            points.add((float) (200 - 100 * Math.cos(a)));
+        }
+        for (int i = 0; i < 600; i++) {
+            points.add((float) (300 - i * 0.5));
+            points.add((float) (300 + 40 * Math.sin(i / 30.0)));
+        }
+        float[] out = new float[points.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = points.get(i) + (random.nextFloat() - 0.5f) * 0.3f;
+        }
+        return out;
+    }
+
+    private static float maxError(float[] raw, float[] curve) {
+        float max = 0;
+        for (int i = 0; i < raw.length; i += 2) {
+            max = Math.max(max, StrokeGeometry.polylineDistanceSq(curve, curve.length / 2, raw[i], raw[i + 1]));
+        }
+        return (float) Math.sqrt(max);
+    }
+
+    private static float[] simplify(float[] raw, float tolerance, List<Float> keys) {
+        StrokeSimplifier simplifier = new StrokeSimplifier(tolerance, (x, y) -> {
+            keys.add(x);
+            keys.add(y);
+        });
+        simplifier.begin(raw[0], raw[1]);
+        for (int i = 2; i < raw.length; i += 2) {
+            simplifier.add(raw[i], raw[i + 1]);
+        }
+        simplifier.end();
+        float[] out = new float[keys.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = keys.get(i);
+        }
+        return out;
+    }
+
+    @Test
+    public void reductionVersusError_boundedByTolerance() {
+        float[] raw = handDrawnStroke();
+        int rawPoints = raw.length / 2;
+        int previousKeys = Integer.MAX_VALUE;
+        StringBuilder report = new StringBuilder();
+        for (float tolerance : new float[] {0.25f, 0.5f, 1f, 2f}) {
+            float[] keys = simplify(raw, tolerance, new ArrayList<>());
+            int keyPoints = keys.length / 2;
+            float polylineError = maxError(raw, keys);
+            Flattener curve = new Flattener();
+            SmoothCurveBuilder.build(keys, keyPoints, tolerance, curve);
+            float curveError = maxError(raw, curve.toArray());
+            report.append(String.format("tol=%.2f points=%d/%d (%.1fx) polyline=%.2f curve=%.2f%n",
+                    tolerance, keyPoints, rawPoints, (float) rawPoints / keyPoints, polylineError, curveError));
+
+            // 首尾保留，丢弃的点到关键点折线不超过容差
+            assertEquals(raw[0], keys[0], 0f);
+            assertEquals(raw[raw.length - 1], keys[keys.length - 1], 0f);
+            assertTrue(report.toString(), polylineError <= tolerance + 1e-3f);
+            // 拐角处曲线再偏离至多一个容差
+            assertTrue(report.toString(), curveError <= tolerance * 2 + 1e-3f);
+            assertTrue(report.toString(), keyPoints < previousKeys);
+            previousKeys = keyPoints;
+        }
+        // 1像素容差时至少减少到五分之一
+        float[] keys = simplify(raw, 1f, new ArrayList<>());
+        assertTrue(report.toString(), keys.length * 5 <= raw.length);
+    }
+
+    @Test
+    public void windowLimit_forcesKeyPointsOnStraightLines() {
+        List<Float> keys = new ArrayList<>();
+        StrokeSimplifier simplifier = new StrokeSimplifier(1f, 8, (x, y) -> keys.add(x));
+        simplifier.begin(0, 0);
+        for (int i = 1; i <= 100; i++) {
+            simplifier.add(i, 0);
+            // 重复点不占窗口
+            simplifier.add(i, 0);
+        }
+        simplifier.end();
+        assertEquals(0f, keys.get(0), 0f);
+        assertEquals(100f, keys.get(keys.size() - 1), 0f);
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i) - keys.get(i - 1) <= 8);
+        }
+        assertEquals(201, simplifier.getInputPoints());
+        assertEquals(keys.size(), simplifier.getKeyPoints());
+    }
+
+    @Test
+    public void curveCutsCornersWithinTolerance() {
+        List<String> ops = new ArrayList<>();
+        SmoothCurveBuilder.PathSink recorder = new SmoothCurveBuilder.PathSink() {
+            @Override
+            public void moveTo(float x, float y) {
+                ops.add("M" + x + "," + y);
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+                ops.add("L" + x + "," + y);
+            }
+
+            @Override
+            public void quadTo(float cx, float cy, float x, float y) {
+                ops.add("Q" + cx + "," + cy + " " + x + "," + y);
+            }
+        };
+        float[] corner = {0, 0, 10, 0, 10, 10};
+        // 拐角偏离 |A + C - 2P| / 8 约为1.77
+        SmoothCurveBuilder.build(corner, 3, 2f, recorder);
+        assertEquals("[M0.0,0.0, L5.0,0.0, Q10.0,0.0 10.0,5.0, L10.0,10.0]", ops.toString());
+
+        // 容差更小时曲线段收缩到拐角附近
+        ops.clear();
+        SmoothCurveBuilder.build(corner, 3, 0f, recorder);
+        assertEquals("[M0.0,0.0, L5.0,0.0, L10.0,0.0, L10.0,5.0, L10.0,10.0]", ops.toString());
+    }
+
+    @Test
+    public void curveFlag_roundTripsThroughStrokeCodec() {
+        List<byte[]> chunks = new ArrayList<>();
+        StrokeEncoder encoder = new StrokeEncoder((data, offset, length) ->
+                chunks.add(java.util.Arrays.copyOfRange(data, offset, offset + length)));
+        encoder.beginCurveStroke(1, 0xFF0000FF, 8f, 0.5f);
+        encoder.addPoint(1, 2);
+        encoder.endStroke();
+
+        float[] tolerance = new float[1];
+        new StrokeDecoder().decode(chunks.get(0), new StrokeDecoder.Listener() {
+            @Override
+            public void onStrokeBegin(int strokeId, int color, float width) {
+                fail("curve stroke expected");
+            }
+
+            @Override
+            public void onCurveStrokeBegin(int strokeId, int color, float width, float curveTolerance) {
+                tolerance[0] = curveTolerance;
+            }
+
+            @Override
+            public void onPoint(int strokeId, float x, float y) {}
+
+            @Override
+            public void onStrokeEnd(int strokeId) {}
+        });
+        assertEquals(0.5f, tolerance[0], 0f);
+    }
+}
@@ -0,0 +1,131 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class StrokeStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static float[] line(float x0, float y0, int points) {
+        float[] out = new float[points * 2];
+        for (int i = 0; i < points; i++) {
+            out[i * 2] = x0 + i;
+            out[i * 2 + 1] = y0 + i * 0.5f;
+        }
+        return out;
+    }
+
+    private static StrokeStoreReader read(ByteArrayOutputStream bytes) throws IOException {
+        return new StrokeStoreReader(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    @Test
+    public void roundTrip_metadataBoundsAndPoints() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StrokeStoreWriter writer = new StrokeStoreWriter(bytes, false);
+        float[] points = line(10, 20, 5);
+        writer.appendStroke(7, 0xFF00FF00, 8f, true, 0.75f, points, 5, 4f);
+        writer.appendStroke(8, 0xFF0000FF, 4f, false, 0f, line(0, 0, 1), 1, 2f);
+
+        StrokeStoreReader reader = read(bytes);
+        assertEquals(2, reader.getStrokeCount());
+        assertEquals(7, reader.getId(0));
+        assertEquals(0xFF00FF00, reader.getColor(0));
+        assertTrue(reader.isCurve(0));
+        assertFalse(reader.isCurve(1));
+        assertEquals(8f, reader.getWidth(0), 0f);
+        assertEquals(0.75f, reader.getCurveTolerance(0), 0f);
+        float[] bounds = new float[4];
+        reader.getBounds(0, bounds);
+        assertArrayEquals(new float[] {6, 16, 18, 26}, bounds, 0f);
+        float[] out = new float[reader.getPointCount(0) * 2];
+        assertEquals(5, reader.readPoints(0, out));
+        assertArrayEquals(points, out, 0f);
+        assertEquals(9, reader.getNextId());
+        assertEquals(bytes.size(), reader.getValidLength());
+    }
+
+    @Test
+    public void eraseAndClear_areAppliedInOrder() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StrokeStoreWriter writer = new StrokeStoreWriter(bytes, false);
+        writer.appendStroke(0, 1, 8f, false, 0f, line(0, 0, 2), 2, 4f);
+        writer.appendClear();
+        writer.appendStroke(1, 2, 8f, false, 0f, line(0, 0, 2), 2, 4f);
+        writer.appendStroke(2, 3, 8f, false, 0f, line(0, 0, 2), 2, 4f);
+        writer.appendStroke(3, 4, 8f, false, 0f, line(0, 0, 2), 2, 4f);
+        writer.appendErase(2);
+        writer.appendErase(99);
+
+        StrokeStoreReader reader = read(bytes);
+        assertEquals(2, reader.getStrokeCount());
+        assertEquals(1, reader.getId(0));
+        assertEquals(3, reader.getId(1));
+        assertEquals(7, reader.getRecordCount());
+        assertEquals(4, reader.getNextId());
+    }
+
+    @Test
+    public void truncatedTail_isIgnored_andAppendingResumes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StrokeStoreWriter writer = new StrokeStoreWriter(bytes, false);
+        writer.appendStroke(0, 1, 8f, false, 0f, line(0, 0, 10), 10, 4f);
+        int complete = bytes.size();
+        writer.appendStroke(1, 1, 8f, false, 0f, line(0, 0, 10), 10, 4f);
+
+        byte[] cut = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+        StrokeStoreReader reader = new StrokeStoreReader(ByteBuffer.wrap(cut));
+        assertEquals(1, reader.getStrokeCount());
+        assertEquals(complete, reader.getValidLength());
+
+        // 截断到完整记录后继续追加，不再写文件头
+        ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+        resumed.write(cut, 0, reader.getValidLength());
+        new StrokeStoreWriter(resumed, true).appendStroke(reader.getNextId(), 2, 8f, false, 0f, line(5, 5, 3), 3, 4f);
+        StrokeStoreReader again = read(resumed);
+        assertEquals(2, again.getStrokeCount());
+        assertEquals(1, again.getId(1));
+
+        // 只写了一半文件头
+        assertEquals(0, new StrokeStoreReader(ByteBuffer.wrap(new byte[] {'T', 'P'})).getStrokeCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void foreignFile_isRejected() throws IOException {
+        new StrokeStoreReader(ByteBuffer.wrap("TPTR\u0001....".getBytes("US-ASCII")));
+    }
+
+    @Test
+    public void mappedFile_restoresLargeSessionLazily() throws IOException {
+        File file = folder.newFile("session.tpss");
+        float[] points = line(0, 0, 200);
+        try (OutputStream out = new FileOutputStream(file)) {
+            StrokeStoreWriter writer = new StrokeStoreWriter(out, false);
+            for (int id = 0; id < 5000; id++) {
+                writer.appendStroke(id, id, 8f, true, 0.75f, points, 200, 4f);
+            }
+        }
+        assertEquals(0, StrokeStoreReader.map(new File(folder.getRoot(), "missing")).getStrokeCount());
+
+        StrokeStoreReader reader = StrokeStoreReader.map(file);
+        assertEquals(5000, reader.getStrokeCount());
+        assertEquals(file.length(), reader.getValidLength());
+        float[] out = new float[400];
+        assertEquals(200, reader.readPoints(4999, out));
+        assertEquals(199f, out[398], 0f);
+        assertEquals(4999, reader.getColor(4999));
+    }
+}
@@ -0,0 +1,79 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TouchProtocolTest {
+
+    @Test
+    public void singleEvent_roundTrip() {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        int len = TouchProtocol.encode(frame, 0, TouchProtocol.OP_SCROLL, 0, 123456789L, -12.375f, 3.5f);
+        assertEquals(frame.length, len);
+
+        List<String> decoded = new ArrayList<>();
+        int count = new TouchFrameDecoder().decode(frame, e -> {
+            assertEquals(TouchProtocol.OP_SCROLL, e.opcode);
+            assertEquals(123456789L, e.timestamp);
+            assertEquals(-12.375f, e.x, 0f);
+            assertEquals(3.5f, e.y, 0f);
+            decoded.add(e.toString());
+        });
+        assertEquals(1, count);
+        assertEquals(1, decoded.size());
+    }
+
+    @Test
+    public void multipleRecords_inOneFrame() {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + 3 * TouchProtocol.RECORD_SIZE];
+        int pos = TouchProtocol.writeHeader(frame, 0);
+        pos = TouchProtocol.writeRecord(frame, pos, TouchProtocol.OP_TAP, 0, 1, 100f, 200f);
+        pos = TouchProtocol.writeRecord(frame, pos, TouchProtocol.OP_SCROLL, 0, 2, 1f, -1f);
+        pos = TouchProtocol.writeRecord(frame, pos, TouchProtocol.OP_DOUBLE_TAP, 0, 3, 5f, 6f);
+        assertEquals(frame.length, pos);
+
+        List<Integer> opcodes = new ArrayList<>();
+        new TouchFrameDecoder().decode(frame, e -> opcodes.add(e.opcode));
+        assertEquals(List.of(TouchProtocol.OP_TAP, TouchProtocol.OP_SCROLL, TouchProtocol.OP_DOUBLE_TAP), opcodes);
+    }
+
+    @Test
+    public void timestamp_wrapsToUnsigned32() {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        long time = 0x1_2345_6789L;
+        TouchProtocol.encode(frame, 0, TouchProtocol.OP_TAP, 0, time, 0f, 0f);
+        new TouchFrameDecoder().decode(frame, e -> assertEquals(time & 0xFFFFFFFFL, e.timestamp));
+    }
+
+    @Test
+    public void coordinates_areClamped() {
+        assertEquals(Short.MAX_VALUE, TouchProtocol.quantize(100000f));
+        assertEquals(Short.MIN_VALUE, TouchProtocol.quantize(-100000f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownVersion_isRejected() {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        frame[0] = 99;
+        new TouchFrameDecoder().decode(frame, e -> {});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFrame_isRejected() {
+        byte[] frame = new byte[TouchProtocol.HEADER_SIZE + TouchProtocol.RECORD_SIZE];
+        TouchProtocol.encode(frame, 0, TouchProtocol.OP_TAP, 0, 0, 1f, 1f);
+        new TouchFrameDecoder().decode(frame, 0, frame.length - 1, e -> {});
+    }
+
+    @Test
+    public void binaryRecord_isMuchSmallerThanText() {
+        String text = TouchProtocol.toText(TouchProtocol.OP_SCROLL, -12.345678f, 3.4567891f);
+        int textBytes = text.getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(textBytes + " vs " + TouchProtocol.RECORD_SIZE, textBytes >= 3 * TouchProtocol.RECORD_SIZE);
+    }
+}
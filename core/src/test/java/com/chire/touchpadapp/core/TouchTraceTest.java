@@ -0,0 +1,84 @@
+package com.chire.touchpadapp.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TouchTraceTest {
+
+    private static List<TouchEvent> readAll(byte[] data) throws IOException {
+        TouchTraceReader reader = new TouchTraceReader(new ByteArrayInputStream(data));
+        List<TouchEvent> events = new ArrayList<>();
+        TouchEvent event = new TouchEvent();
+        while (reader.next(event)) {
+            events.add(new TouchEvent().set(event.opcode, event.flags, event.timestamp, event.x, event.y));
+        }
+        return events;
+    }
+
+    @Test
+    public void roundTrip_preservesEventsAndTiming() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TouchTraceWriter writer = new TouchTraceWriter(out);
+        long base = 0x1_0000_0000L + 12345;
+        writer.record(TouchProtocol.OP_TAP, 0, base, 120.5f, 340.25f);
+        for (int i = 1; i <= 100; i++) {
+            writer.record(TouchProtocol.OP_SCROLL, 0, base + i * 8L, -3.5f + i * 0.125f, 2f);
+        }
+        // 预测记录的时间戳在未来，之后的真实事件时间会回退
+        writer.record(TouchProtocol.OP_SCROLL, TouchProtocol.FLAG_PROVISIONAL, base + 850, 1f, 1f);
+        writer.record(TouchProtocol.OP_DOUBLE_TAP, 0, base + 810, 10f, 20f);
+        assertEquals(103, writer.getRecordCount());
+
+        List<TouchEvent> events = readAll(out.toByteArray());
+        assertEquals(103, events.size());
+        assertEquals(TouchProtocol.OP_TAP, events.get(0).opcode);
+        assertEquals(base, events.get(0).timestamp);
+        assertEquals(120.5f, events.get(0).x, 0f);
+        assertEquals(340.25f, events.get(0).y, 0f);
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(base + i * 8L, events.get(i).timestamp);
+            assertEquals(-3.5f + i * 0.125f, events.get(i).x, 0f);
+        }
+        assertEquals(TouchProtocol.FLAG_PROVISIONAL, events.get(101).flags);
+        assertEquals(base + 850, events.get(101).timestamp);
+        assertEquals(base + 810, events.get(102).timestamp);
+    }
+
+    @Test
+    public void scrollRecords_areCompact() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TouchTraceWriter writer = new TouchTraceWriter(out);
+        for (int i = 0; i < 1000; i++) {
+            writer.record(TouchProtocol.OP_SCROLL, 0, i * 8L, 4f, -2.5f);
+        }
+        int perRecord = (out.size() - TouchTraceWriter.HEADER_SIZE) / 1000;
+        assertTrue("bytes per record: " + perRecord, perRecord <= 6);
+    }
+
+    @Test
+    public void emptyTrace_hasNoEvents() throws IOException {
+        assertTrue(readAll(new byte[0]).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void badMagic_isRejected() throws IOException {
+        readAll(new byte[]{'X', 'P', 'T', 'R', 1, 0, 0, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedRecord_isRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TouchTraceWriter(out).record(TouchProtocol.OP_TAP, 0, 1000, 1000f, 1000f);
+        byte[] data = out.toByteArray();
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        readAll(truncated);
+    }
+}